@@ -0,0 +1,149 @@
+// ===================================================================
+// AdaptiveFrameSizeController
+// ===================================================================
+
+
+
+// ===================================================================
+// A frame size controller that chooses the size which maximises the
+// expected goodput (data bytes delivered per byte sent) for the bit
+// error rate it has observed.
+//
+// With h bytes of overhead per frame and n bytes of data, a frame
+// arrives intact with probability q^(n + h), where q = (1 - p)^8 is
+// the chance that a byte survives.  The goodput is then
+//
+//     n / (n + h) * q^(n + h)
+//
+// which is greatest where n^2 + h n = h / -ln(q).  Large frames
+// spread the overhead thinly on a clean link, and small ones lose
+// less to each error on a noisy link.
+//
+// The bit error rate is estimated from the fraction of frames that
+// failed, and the overhead from the frames' sizes, both as averages
+// that decay geometrically, so that the choice follows the link as
+// it changes.  Since a frame already sent at some size may have to
+// be sent again at that size, the choice grows cautiously -- by at
+// most a quarter with each frame reported -- but shrinks at once.
+class AdaptiveFrameSizeController extends FrameSizeController {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Start at frameSize, and adapt within
+    // [minFrameSize, maxFrameSize].
+    public AdaptiveFrameSizeController (int frameSize,
+					int minFrameSize,
+					int maxFrameSize) {
+
+	super(frameSize, minFrameSize, maxFrameSize);
+
+    } // AdaptiveFrameSizeController
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take in the fate of a frame, and choose the size anew.
+    public void record (int dataBytes, int frameBytes, boolean passed) {
+
+	super.record(dataBytes, frameBytes, passed);
+
+	// Age the averages, and add this frame to them.
+	frames = (decay * frames) + 1.0;
+	failures = (decay * failures) + (passed ? 0.0 : 1.0);
+	bits = (decay * bits) + (8.0 * frameBytes);
+	overhead = (decay * overhead) + Math.max(frameBytes - dataBytes, 0);
+
+	int growthLimit = frameSize + Math.max(frameSize / 4, 1);
+	frameSize = Math.min(optimalFrameSize(), growthLimit);
+
+    } // record
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The bit error rate estimated so far: the p for which frames of
+    // the average length fail as often as they have been seen to.
+    public double bitErrorRate () {
+
+	if (frames == 0.0) {
+
+	    return 0.0;
+
+	}
+
+	double failureRate = Math.min(failures / frames, maxFailureRate);
+	return -Math.log1p(-failureRate) / (bits / frames);
+
+    } // bitErrorRate
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The size that maximises the expected goodput, within bounds.
+    int optimalFrameSize () {
+
+	double p = bitErrorRate();
+	if (p <= 0.0) {
+
+	    return maxFrameSize;
+
+	}
+
+	double h = Math.max(overhead / frames, 1.0);
+	double lnQ = 8.0 * Math.log1p(-Math.min(p, maxFailureRate));
+	double n = (-h + Math.sqrt((h * h) + ((4.0 * h) / -lnQ))) / 2.0;
+	long size = Math.round(n);
+	return (int)Math.max(minFrameSize, Math.min(maxFrameSize, size));
+
+    } // optimalFrameSize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The decaying sums of frames, of failed frames, of bits sent,
+    // and of overhead bytes.
+    double frames;
+    double failures;
+    double bits;
+    double overhead;
+
+    // How much each frame's weight shrinks with each later frame,
+    // which makes the averages remember about the last 1 / (1 -
+    // decay) frames.
+    static final double decay = 0.95;
+
+    // The highest failure rate believed, so that a run of failures
+    // does not make the error rate infinite.
+    static final double maxFailureRate = 0.999;
+
+    // The size to start at, and the bounds to adapt within, when none
+    // are given: from a single byte, which suits the noisiest links,
+    // up to frames long enough that their overhead hardly counts.
+    static final int defaultFrameSize = 8;
+    static final int defaultMinFrameSize = 1;
+    static final int defaultMaxFrameSize = 1024;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class AdaptiveFrameSizeController
+// ===================================================================
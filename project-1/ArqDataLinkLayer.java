@@ -0,0 +1,717 @@
+// =============================================================================
+/**
+ *  A reliable data link layer, using Selective Repeat ARQ.  Each frame carries
+ *  a sequence number and a CRC.  The receiver acknowledges every frame it
+ *  gets over the reverse direction of the medium, and buffers frames that
+ *  arrive out of order, so that the network layer gets each frame exactly once
+ *  and in order.  The sender keeps up to a window of frames outstanding at
+ *  once, and retransmits only those whose timers expire unacknowledged.
+ *
+ *  Each acknowledgement is cumulative (the next sequence number the receiver
+ *  expects) and selective (a bitmap of the frames after that which it has
+ *  buffered), so that one surviving acknowledgement makes up for any lost
+ *  before it.
+ *
+ *  Unless the medium carries traffic in virtual time, the simulator has no
+ *  clock, so time is counted in <i>ticks</i>: each frame the sender transmits,
+ *  and each turn it waits with nothing to transmit, takes one tick.  Since the
+ *  media then deliver each frame (and the reply to it) before the send
+ *  returns, a frame that is not acknowledged by then was lost, and the timeout
+ *  only sets how long a loss waits behind new frames.
+ *
+ *  On a medium scheduled in virtual time (see {@link Medium#schedule}), frames
+ *  and acknowledgements take time to arrive, and the timers run on the
+ *  scheduler's clock.  A tick of the timeout then counts as the time to put
+ *  one largest frame on the wire, and a round trip's delay is added, so that
+ *  a timeout of at least the window does not expire before the frames queued
+ *  ahead of a frame, and its acknowledgement, could have made it.  While the
+ *  sender waits, it runs the scheduler's events itself, up to the next
+ *  timer.
+ *
+ *  Frames are laid out as a kind byte, a sequence number byte, the data (or,
+ *  for an acknowledgement, the bitmap), and the CRC.  Sequence numbers count
+ *  modulo 256, so the window may be at most 128 frames.
+ **/
+public class ArqDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new ARQ data link layer with the default window
+     * that frames the data with start/stop tags.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     **/
+    public ArqDataLinkLayer (PhysicalLayer physicalLayer) {
+
+	this(physicalLayer, new StuffedFraming());
+
+    } // ArqDataLinkLayer (PhysicalLayer physicalLayer)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new ARQ data link layer with the default window.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     **/
+    public ArqDataLinkLayer (PhysicalLayer physicalLayer, Framing framing) {
+
+	this(physicalLayer, framing, _defaultWindowSize, _defaultWindowSize);
+
+    } // ArqDataLinkLayer (PhysicalLayer physicalLayer, Framing framing)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new ARQ data link layer with the default window
+     * whose frame size is chosen by the given controller.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     * @param sizer The controller that chooses the number of data bytes in
+     *              each frame.
+     **/
+    public ArqDataLinkLayer (PhysicalLayer physicalLayer,
+			     Framing framing,
+			     FrameSizeController sizer) {
+
+	this(physicalLayer, framing, _defaultWindowSize, _defaultWindowSize,
+	     sizer);
+
+    } // ArqDataLinkLayer (PhysicalLayer, Framing, FrameSizeController)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new ARQ data link layer.  Both ends of a link
+     * must use the same window size.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     * @param windowSize The most frames outstanding at once: 1 to 128.
+     * @param timeout The number of ticks after which an unacknowledged frame
+     *                is sent again.
+     **/
+    public ArqDataLinkLayer (PhysicalLayer physicalLayer,
+			     Framing framing,
+			     int windowSize,
+			     int timeout) {
+
+	this(physicalLayer, framing, windowSize, timeout,
+	     new FrameSizeController(_defaultFrameSize));
+
+    } // ArqDataLinkLayer (PhysicalLayer, Framing, int, int)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new ARQ data link layer whose frame size is
+     * chosen by the given controller.  The controller is told of every frame
+     * this layer sends: as failed each time its timer expires, and as passed
+     * once it is acknowledged.  Both ends of a link must use the same window
+     * size, and controllers that allow the same largest frame.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     * @param windowSize The most frames outstanding at once: 1 to 128.
+     * @param timeout The number of ticks after which an unacknowledged frame
+     *                is sent again.
+     * @param sizer The controller that chooses the number of data bytes in
+     *              each frame.
+     **/
+    public ArqDataLinkLayer (PhysicalLayer physicalLayer,
+			     Framing framing,
+			     int windowSize,
+			     int timeout,
+			     FrameSizeController sizer) {
+
+	if ((windowSize < 1) || (windowSize > _sequenceSpace / 2) ||
+	    (timeout < 1)) {
+	    throw new RuntimeException("Bad ARQ window " + windowSize +
+				       " or timeout " + timeout);
+	}
+
+	_windowSize = windowSize;
+	_timeout = timeout;
+	_bitmapLength = (windowSize + 7) / 8;
+	int maxBodyLength = Math.max(sizer.maxFrameSize(), _bitmapLength);
+
+	_sendBuffer = new byte[windowSize][sizer.maxFrameSize()];
+	_sendLengths = new int[windowSize];
+	_sentAt = new long[windowSize];
+	_transmissions = new int[windowSize];
+	_frameLengths = new int[windowSize];
+	_acknowledged = new boolean[windowSize];
+	_receiveBuffer = new byte[windowSize][maxBodyLength];
+	_receiveLengths = new int[windowSize];
+	_received = new boolean[windowSize];
+	_content = new byte[_headerLength + maxBodyLength + _crc.bytes()];
+	_bitmap = new byte[_bitmapLength];
+
+	// Initialize the layer.
+	initialize(physicalLayer);
+
+	// Frame outgoing data, and decode incoming frames (checking their
+	// CRCs) as they arrive.
+	this.framing = framing;
+	this.sizer = sizer;
+	deframer = framing.createDeframer(_content.length,
+					  new CRCCheck(_crc));
+
+    } // ArqDataLinkLayer (PhysicalLayer, Framing, int, int, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return <tt>true</tt>, since every data frame received is acknowledged.
+     **/
+    public boolean replies () {
+
+	return true;
+
+    } // replies ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Accept a buffer of data to send.  Send it as divided into multiple frames
+     * of the size that the frame size controller chooses, keeping as many
+     * outstanding as the window allows.  Return once every frame has been
+     * acknowledged (or the link has failed).
+     *
+     * @param data An array of bytes to be framed and transmitted.
+     **/
+    public void send (byte[] data) {
+
+	// Queue each frame as soon as the window has room for it, asking the
+	// controller for its size only then, so that it reflects the fate of
+	// the frames sent before it.
+	int beginIndex = 0;
+	while (beginIndex < data.length) {
+
+	    while (_nextSequence - _sendBase == _windowSize) {
+		if (!serviceTimers()) {
+		    return;
+		}
+	    }
+
+	    int endIndex = Math.min(beginIndex + sizer.frameSize(),
+				    data.length);
+	    int slot = _nextSequence % _windowSize;
+	    System.arraycopy(data, beginIndex, _sendBuffer[slot], 0,
+			     endIndex - beginIndex);
+	    _sendLengths[slot] = endIndex - beginIndex;
+	    _acknowledged[slot] = false;
+	    _transmissions[slot] = 0;
+	    transmit(_nextSequence++);
+	    beginIndex = endIndex;
+
+	}
+
+	// Wait for the rest to be acknowledged.
+	while (_sendBase != _nextSequence) {
+	    if (!serviceTimers()) {
+		return;
+	    }
+	}
+
+    } // send (byte[] data)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Let one tick pass: retransmit each outstanding frame whose timer has
+     * expired (each taking a tick of its own), or else simply wait.
+     *
+     * @return Whether the link still works; <tt>false</tt> if a frame has been
+     *         sent too many times, in which case every outstanding frame is
+     *         given up.
+     **/
+    private boolean serviceTimers () {
+
+	boolean retransmitted = false;
+	long timeout = timeout();
+	for (int sequence = _sendBase; sequence < _nextSequence; sequence++) {
+
+	    int slot = sequence % _windowSize;
+	    if (_acknowledged[slot] || (now() - _sentAt[slot] < timeout)) {
+		continue;
+	    }
+
+	    if (_transmissions[slot] > _maxRetransmissions) {
+
+		System.err.println("ArqDLL: Frame " + sequence +
+				   " never acknowledged; link failed!");
+		_sendBase = _nextSequence;
+		return false;
+
+	    }
+	    sizer.record(_sendLengths[slot], _frameLengths[slot], false);
+	    transmit(sequence);
+	    retransmissions++;
+	    retransmitted = true;
+
+	}
+
+	if (!retransmitted) {
+	    waitForEvent();
+	}
+
+	return true;
+
+    } // serviceTimers ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Let time pass until something may have changed.  Without a scheduler,
+     * that is one tick.  With one, it is until the next event has run, or
+     * until the earliest timer expires, whichever comes first.  Whatever the
+     * physical layer holds back is sent first, since no reply can come to
+     * frames that have not left.
+     **/
+    private void waitForEvent () {
+
+	physicalLayer.flush();
+
+	EventScheduler scheduler = physicalLayer.medium.scheduler;
+	if (scheduler == null) {
+	    _clock++;
+	    return;
+	}
+
+	long timeout = timeout();
+	long expiry = Long.MAX_VALUE;
+	for (int sequence = _sendBase; sequence < _nextSequence; sequence++) {
+	    int slot = sequence % _windowSize;
+	    if (!_acknowledged[slot]) {
+		expiry = Math.min(expiry, _sentAt[slot] + timeout);
+	    }
+	}
+
+	if (scheduler.nextTime() <= expiry) {
+	    scheduler.step();
+	} else if (expiry != Long.MAX_VALUE) {
+	    scheduler.advanceTo(expiry);
+	}
+
+    } // waitForEvent ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The current time: ticks, or the scheduler's virtual time.
+     **/
+    private long now () {
+
+	EventScheduler scheduler = physicalLayer.medium.scheduler;
+	return (scheduler == null) ? _clock : scheduler.now();
+
+    } // now ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The time after which an unacknowledged frame is resent: ticks,
+     *         or virtual time on a scheduled medium, where each tick is the
+     *         time to send the largest frame now outstanding.  (Sizing it
+     *         for the largest frame the controller might ever ask for would
+     *         make an adaptive link wait many times too long.)
+     **/
+    private long timeout () {
+
+	Medium medium = physicalLayer.medium;
+	if (medium.scheduler == null) {
+	    return _timeout;
+	}
+
+	int largestFrame = 0;
+	for (int sequence = _sendBase; sequence < _nextSequence; sequence++) {
+	    largestFrame = Math.max(largestFrame,
+				    _frameLengths[sequence % _windowSize]);
+	}
+	return ((_timeout + 1) * medium.transmissionTime(8L * largestFrame)) +
+	    (2 * medium.delay);
+
+    } // timeout ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Send (or resend) one outstanding data frame, and start its timer.
+     *
+     * @param sequence The frame's sequence number.
+     **/
+    private void transmit (int sequence) {
+
+	int slot = sequence % _windowSize;
+	_sentAt[slot] = now();
+	_clock++;
+	_transmissions[slot]++;
+	int bodyLength = _sendLengths[slot];
+	byte[] frame = pool.take(framing.maxFrameLength(_headerLength +
+							bodyLength +
+							_crc.bytes()));
+	_frameLengths[slot] = constructFrame(_dataKind, sequence,
+					     _sendBuffer[slot], bodyLength,
+					     frame);
+	physicalLayer.send(frame, 0, _frameLengths[slot]);
+	pool.give(frame);
+
+    } // transmit (int sequence)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create a single frame to be transmitted, in the given buffer.
+     *
+     * @param kind Whether the frame carries data or an acknowledgement.
+     * @param sequence The sequence number it carries (only the low byte is
+     *                 sent).
+     * @param body The data or bitmap it carries.
+     * @param bodyLength The number of bytes of <tt>body</tt> to use.
+     * @param framedData A buffer large enough to hold the largest possible
+     *                   frame (framing included).
+     * @return The length of the frame constructed at the start of
+     *         <tt>framedData</tt>.
+     **/
+    private int constructFrame (byte kind,
+				int sequence,
+				byte[] body,
+				int bodyLength,
+				byte[] framedData) {
+
+	// Lay out the header and body, and compute their CRC.
+	int contentLength = _headerLength + bodyLength + _crc.bytes();
+	_content[0] = kind;
+	_content[1] = (byte)sequence;
+	System.arraycopy(body, 0, _content, _headerLength, bodyLength);
+	int checkIndex = _headerLength + bodyLength;
+	_crc.write(_crc.compute(_content, 0, checkIndex), _content, checkIndex);
+
+	// Frame the whole of it.  The content is then free for any frame built
+	// while this one is on its way.
+	int frameIndex = framing.begin(framedData);
+	frameIndex = framing.put(_content, 0, contentLength,
+				 framedData, frameIndex);
+	return framing.end(framedData, frameIndex);
+
+    } // constructFrame (byte kind, int sequence, byte[] body, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Called once the physical layer has delivered what it has received so
+     * far.  Send the acknowledgements of those frames at once, even if the
+     * physical layer would rather hold them back for more traffic, since the
+     * sender is waiting for them.
+     **/
+    void receivedBlock () {
+
+	super.receivedBlock();
+	physicalLayer.flush();
+
+    } // receivedBlock ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Handle a received frame: acknowledge and deliver data, or take in an
+     * acknowledgement.  Data is delivered to the client here, in order, so
+     * this always returns <tt>null</tt>.
+     *
+     * @return <tt>null</tt>.
+     **/
+    protected byte[] processFrame () {
+
+	// A damaged frame is simply dropped; the sender's timer will see to
+	// it.
+	if (!deframer.wellFormed() ||
+	    (deframer.dataLength() < _headerLength) ||
+	    !deframer.checkPassed()) {
+
+	    System.err.println("ArqDLL: Damaged frame dropped");
+	    damagedFrames++;
+	    return null;
+
+	}
+
+	int contentLength = deframer.copyData(_content);
+	if (_content[0] == _dataKind) {
+
+	    receiveData(_content[1] & 0xff, contentLength);
+
+	} else if (_content[0] == _ackKind) {
+
+	    receiveAcknowledgement(_content[1] & 0xff, contentLength);
+
+	}
+
+	return null;
+
+    } // processFrame
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take in a data frame: buffer it if it falls in the receive window,
+     * deliver whatever is now in order, and acknowledge.
+     *
+     * @param sequence The low byte of the frame's sequence number.
+     * @param contentLength The number of bytes of header and data.
+     **/
+    private void receiveData (int sequence, int contentLength) {
+
+	int offset = (sequence - _receiveBase) & (_sequenceSpace - 1);
+	if (offset < _windowSize) {
+
+	    int slot = (_receiveBase + offset) % _windowSize;
+	    if (!_received[slot]) {
+		_receiveLengths[slot] = contentLength - _headerLength;
+		System.arraycopy(_content, _headerLength, _receiveBuffer[slot], 0,
+				 _receiveLengths[slot]);
+		_received[slot] = true;
+	    } else {
+		duplicateFrames++;
+	    }
+
+	    // Deliver every frame now in order.
+	    while (_received[_receiveBase % _windowSize]) {
+
+		int base = _receiveBase % _windowSize;
+		byte[] data = pool.exact(_receiveLengths[base]);
+		System.arraycopy(_receiveBuffer[base], 0, data, 0, data.length);
+		_received[base] = false;
+		_receiveBase++;
+		client.receive(data);
+
+	    }
+
+	} else {
+
+	    // Already delivered: the acknowledgement must have been lost.
+	    duplicateFrames++;
+
+	}
+
+	// Acknowledge everything received so far.
+	java.util.Arrays.fill(_bitmap, (byte)0);
+	for (int i = 0; i < _windowSize - 1; i++) {
+	    if (_received[(_receiveBase + 1 + i) % _windowSize]) {
+		_bitmap[i >>> 3] |= (byte)(1 << (i & 7));
+	    }
+	}
+	byte[] frame = pool.take(framing.maxFrameLength(_headerLength +
+							_bitmapLength +
+							_crc.bytes()));
+	int frameLength = constructFrame(_ackKind, _receiveBase,
+					 _bitmap, _bitmapLength, frame);
+	physicalLayer.send(frame, 0, frameLength);
+	pool.give(frame);
+
+    } // receiveData (int sequence, int contentLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take in an acknowledgement, and slide the send window past every frame
+     * acknowledged at its start.
+     *
+     * @param expected The low byte of the next sequence number the receiver
+     *                 expects.
+     * @param contentLength The number of bytes of header and bitmap.
+     **/
+    private void receiveAcknowledgement (int expected, int contentLength) {
+
+	// Ignore an acknowledgement that lies outside what is outstanding.
+	int outstanding = _nextSequence - _sendBase;
+	int offset = (expected - _sendBase) & (_sequenceSpace - 1);
+	if ((offset > outstanding) ||
+	    (contentLength < _headerLength + _bitmapLength)) {
+	    return;
+	}
+
+	// Everything before the expected frame has arrived...
+	for (int i = 0; i < offset; i++) {
+	    acknowledge(_sendBase + i);
+	}
+
+	// ...as has every frame after it that the bitmap marks.
+	for (int i = 0; i < _windowSize - 1; i++) {
+
+	    int sequence = _sendBase + offset + 1 + i;
+	    if ((sequence < _nextSequence) &&
+		((_content[_headerLength + (i >>> 3)] & (1 << (i & 7))) != 0)) {
+		acknowledge(sequence);
+	    }
+
+	}
+
+	while ((_sendBase < _nextSequence) &&
+	       _acknowledged[_sendBase % _windowSize]) {
+
+	    _sendBase++;
+
+	}
+
+    } // receiveAcknowledgement (int expected, int contentLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Mark an outstanding frame as acknowledged, telling the frame size
+     * controller that its last transmission got through.
+     *
+     * @param sequence The frame's sequence number.
+     **/
+    private void acknowledge (int sequence) {
+
+	int slot = sequence % _windowSize;
+	if (!_acknowledged[slot]) {
+
+	    _acknowledged[slot] = true;
+	    sizer.record(_sendLengths[slot], _frameLengths[slot], true);
+
+	}
+
+    } // acknowledge (int sequence)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The number of data (not metadata) bytes in a frame, unless a frame size
+     * controller is given.
+     **/
+    static final int _defaultFrameSize = 8;
+
+    /**
+     * The most frames outstanding at once, the ticks after which an
+     * unacknowledged frame is resent, and the bytes in an acknowledgement's
+     * bitmap.
+     **/
+    final int _windowSize;
+    final int _timeout;
+    final int _bitmapLength;
+
+    /**
+     * The sender's side: the oldest unacknowledged sequence number, the next
+     * one to use, and for each slot of the window its data and the length of
+     * that data, when it was last sent, how many times it has been sent, the
+     * length of the frame last sent for it, and whether it is acknowledged.
+     **/
+    private int _sendBase = 0;
+    private int _nextSequence = 0;
+    private final byte[][] _sendBuffer;
+    private final int[] _sendLengths;
+    private final long[] _sentAt;
+    private final int[] _transmissions;
+    private final int[] _frameLengths;
+    private final boolean[] _acknowledged;
+
+    /**
+     * The receiver's side: the next sequence number to deliver, and for each
+     * slot of the window the data buffered for it, the length of that data,
+     * and whether any has arrived.
+     **/
+    private int _receiveBase = 0;
+    private final byte[][] _receiveBuffer;
+    private final int[] _receiveLengths;
+    private final boolean[] _received;
+
+    /**
+     * Reusable spaces for the header, body and CRC of the frame being sent or
+     * received, and for the bitmap of an acknowledgement.
+     **/
+    private final byte[] _content;
+    private final byte[] _bitmap;
+
+    /**
+     * The number of ticks passed.  On a scheduled medium, the timers use the
+     * scheduler's clock instead.
+     **/
+    private long _clock = 0;
+
+    /**
+     * Counts of the frames resent, received damaged, and received again.
+     **/
+    int retransmissions = 0;
+    int damagedFrames = 0;
+    int duplicateFrames = 0;
+
+    /**
+     * The CRC carried by every frame.
+     **/
+    private static final CRC _crc = CRC.CRC32C;
+
+    /**
+     * The kinds of frame, and the bytes before each frame's body.
+     **/
+    private static final byte _dataKind = 0;
+    private static final byte _ackKind = 1;
+    private static final int _headerLength = 2;
+
+    /**
+     * The number of distinct sequence numbers on the wire.
+     **/
+    private static final int _sequenceSpace = 256;
+
+    /**
+     * The default window, and the most times a frame may be resent before
+     * the link is declared failed.
+     **/
+    private static final int _defaultWindowSize = 8;
+    private static final int _maxRetransmissions = 100;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ArqDataLinkLayer
+// =============================================================================
@@ -0,0 +1,182 @@
+// =============================================================================
+// IMPORTS
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * Bulk bit operations over ranges of bytes: counting 1 bits, parity, and
+ * multiplication by a matrix over GF(2).  Each works on 64-bit words, eight
+ * bytes at a time, and finishes any last few bytes one at a time.
+ *
+ * Words are read from byte arrays in little-endian order, so that bit
+ * <i>j</i> of a word is bit <i>j</i> % 8 of byte <i>j</i> / 8 -- the least
+ * significant first order in which bits go over the wire.  Counts do not
+ * depend on the order at all.
+ *
+ * There is no XOR here: a plain loop that XORs one byte array onto another is
+ * already compiled to vector instructions by the JIT, and runs several times
+ * faster than any word-at-a-time version written by hand.
+ *
+ * The methods keep no state, and may be called from any number of threads at
+ * once.
+ **/
+public class BitKernels {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Count the bits whose value is 1.
+     *
+     * @param data A buffer of bytes.
+     * @param begin The starting index of the bytes to examine.
+     * @param end The ending index of the bytes to examine.
+     * @return The number of 1 bits in <tt>data[begin .. end)</tt>.
+     **/
+    public static int popCount (byte[] data, int begin, int end) {
+
+	int ones = 0;
+	int i = begin;
+	for (; i + _wordBytes <= end; i += _wordBytes) {
+	    ones += Long.bitCount(wordAt(data, i));
+	}
+	for (; i < end; i++) {
+	    ones += Integer.bitCount(data[i] & 0xff);
+	}
+
+	return ones;
+
+    } // popCount (byte[] data, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Compute the parity of a range of bytes.  The words are XORed together
+     * first, since the parity of the whole is the parity of that XOR, and only
+     * the result is counted.
+     *
+     * @param data A buffer of bytes.
+     * @param begin The starting index of the bytes to examine.
+     * @param end The ending index of the bytes to examine.
+     * @return 1 if <tt>data[begin .. end)</tt> holds an odd number of 1 bits,
+     *         and 0 otherwise.
+     **/
+    public static int parity (byte[] data, int begin, int end) {
+
+	long folded = 0;
+	int i = begin;
+	for (; i + _wordBytes <= end; i += _wordBytes) {
+	    folded ^= wordAt(data, i);
+	}
+	for (; i < end; i++) {
+	    folded ^= data[i] & 0xff;
+	}
+
+	return Long.bitCount(folded) & 1;
+
+    } // parity (byte[] data, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Multiply a vector of up to 64 bits by a matrix over GF(2).  Bit
+     * <i>k</i> of the product is the parity of the bits that the vector and
+     * row <i>k</i> of the matrix share.
+     *
+     * @param rows The rows of the matrix, at most 32 of them.
+     * @param vector The bits to multiply.
+     * @return The product, in the low <tt>rows.length</tt> bits.
+     **/
+    public static int multiply (long[] rows, long vector) {
+
+	int product = 0;
+	for (int k = 0; k < rows.length; k++) {
+	    product |= (Long.bitCount(rows[k] & vector) & 1) << k;
+	}
+
+	return product;
+
+    } // multiply (long[] rows, long vector)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Read up to eight bytes as one word.  Bytes beyond <tt>end</tt> read as
+     * 0.
+     *
+     * @param data A buffer of bytes.
+     * @param begin The index of the byte that becomes the low byte of the
+     *              word.
+     * @param end The ending index of the bytes to read.
+     * @return The word.
+     **/
+    public static long loadWord (byte[] data, int begin, int end) {
+
+	if (end - begin >= _wordBytes) {
+	    return wordAt(data, begin);
+	}
+
+	long word = 0;
+	for (int i = end - 1; i >= begin; i--) {
+	    word = (word << 8) | (data[i] & 0xff);
+	}
+
+	return word;
+
+    } // loadWord (byte[] data, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Read eight bytes as one word.
+     *
+     * @param data A buffer of bytes.
+     * @param index The index of the byte that becomes the low byte of the
+     *              word.
+     * @return The word.
+     **/
+    private static long wordAt (byte[] data, int index) {
+
+	return (long)_words.get(data, index);
+
+    } // wordAt (byte[] data, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * A view of a byte array as little-endian words at any byte index.
+     **/
+    private static final VarHandle _words =
+	MethodHandles.byteArrayViewVarHandle(long[].class,
+					     ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * The number of bytes in a word.
+     **/
+    private static final int _wordBytes = 8;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class BitKernels
+// =============================================================================
@@ -5,6 +5,11 @@
  * representation of the bits, or to construct a <tt>BitVector</tt> from an
  * existing, compact byte-array.
  *
+ * The bits are packed 64 to a <tt>long</tt> word, with bit 0 of the vector in
+ * the most significant position of word 0.  That ordering matches the
+ * ordering of bits within bytes used by {@link #toByteArray()}, so whole
+ * bytes and whole words can be moved in and out without visiting each bit.
+ *
  * @author Scott F. H. Kaplan -- sfkaplan@cs.amherst.edu
  * @date 2008 March 03
  * @version %I% %G%
@@ -20,7 +25,7 @@ public class BitVector {
      **/
     public BitVector () {
 
-	_array = new boolean[1];
+	_array = new long[1];
 	_length = 0;
 
     } // BitVector ()
@@ -39,21 +44,60 @@ public class BitVector {
      **/
     public BitVector (byte[] byteArray, int begin, int end) {
 
-	// Create an internal array of the necessary size.
-	_array = new boolean[byteArray.length * _bitsPerByte];
-
-	// Copy the bits from each byte, from most to least significant, into
-	// the internal array.
+	// Create an internal array large enough for only the requested range.
+	_array = new long[wordsFor((end - begin) * _bitsPerByte)];
 	_length = 0;
-	for (int byteIndex = begin; byteIndex < end; byteIndex++) {
-	    for (int mask = 0x80; mask != 0; mask >>= 1) {
 
-		_array[_length++] = ((byteArray[byteIndex] & mask) != 0);
+	copyFrom(byteArray, begin, end);
+
+    } // BitVector (byte[] byteArray, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Replace the contents of this vector with the bits of a range of bytes,
+     * taking whole groups of eight bytes into each word at once.
+     *
+     * @param byteArray The array of bytes whose bit values are copied.
+     * @param begin The starting index of <tt>byteArray</tt> to use.
+     * @param end The ending index of <tt>byteArray</tt> to use.
+     **/
+    public void copyFrom (byte[] byteArray, int begin, int end) {
+
+	if ((begin < 0) || (end < begin) || (end > byteArray.length)) {
+	    throw new RuntimeException("Bad BitVector range " + begin +
+				       " to " + end);
+	}
+
+	// Make room for the new bits and clear any old ones.
+	int length = (end - begin) * _bitsPerByte;
+	int words = wordsFor(length);
+	if (words > _array.length) {
+	    _array = new long[words];
+	} else {
+	    java.util.Arrays.fill(_array, 0L);
+	}
+
+	// Pack the bytes into words, most significant byte first.
+	int byteIndex = begin;
+	for (int wordIndex = 0; byteIndex < end; wordIndex++) {
+
+	    long word = 0;
+	    int shift = _bitsPerWord - _bitsPerByte;
+	    while ((shift >= 0) && (byteIndex < end)) {
+
+		word |= (byteArray[byteIndex++] & 0xffL) << shift;
+		shift -= _bitsPerByte;
 
 	    }
+	    _array[wordIndex] = word;
+
 	}
+	_length = length;
 
-    } // BitVector (byte[] byteArray, int begin, int end)
+    } // copyFrom (byte[] byteArray, int begin, int end)
     // =========================================================================
 
 
@@ -75,8 +119,8 @@ public class BitVector {
 
 	// If this index is beyond the current array size, then expand the array
 	// to twice the size that this index suggests is needed.
-	if (index >= _array.length) {
-	    expandArray(index * 2);
+	if (index >= _array.length * _bitsPerWord) {
+	    expandArray(wordsFor(index + 1) * 2);
 	}
 
 	// If this index is beyond the known length of the vector, then update
@@ -85,7 +129,12 @@ public class BitVector {
 	    _length = index + 1;
 	}
 
-	_array[index] = value;
+	long mask = maskFor(index);
+	if (value) {
+	    _array[index >>> _wordShift] |= mask;
+	} else {
+	    _array[index >>> _wordShift] &= ~mask;
+	}
 
     } // setBit (int index, boolean value)
     // =========================================================================
@@ -110,10 +159,11 @@ public class BitVector {
 	// If this index is beyond those stored, return an implicit 0 (the
 	// vector is conceptually infinite).  Otherwise, return its actual
 	// value.
-	if (index >= _array.length) {
+	int wordIndex = index >>> _wordShift;
+	if (wordIndex >= _array.length) {
 	    return false;
 	} else {
-	    return _array[index];
+	    return (_array[wordIndex] & maskFor(index)) != 0;
 	}
 
     } // getBit (int index)
@@ -138,6 +188,198 @@ public class BitVector {
 
 
 
+    // =========================================================================
+    /**
+     * Count the bits whose value is 1.
+     *
+     * @return The number of 1 bits in the vector.
+     **/
+    public int popCount () {
+
+	int ones = 0;
+	for (int wordIndex = 0; wordIndex < _array.length; wordIndex++) {
+	    ones += Long.bitCount(_array[wordIndex]);
+	}
+
+	return ones;
+
+    } // popCount ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Count the bits whose value is 1 below a given index.
+     *
+     * @param index The (exclusive) upper bound of the range [0, index).
+     * @return The number of 1 bits before <tt>index</tt>.
+     **/
+    public int rank (int index) {
+
+	if (index < 0) {
+	    throw new RuntimeException("Negative BitVector index " + index);
+	}
+
+	// Count the whole words first, then the partial word at the end.
+	int fullWords = Math.min(index >>> _wordShift, _array.length);
+	int ones = 0;
+	for (int wordIndex = 0; wordIndex < fullWords; wordIndex++) {
+	    ones += Long.bitCount(_array[wordIndex]);
+	}
+	int remainder = index & _wordMask;
+	if ((remainder != 0) && (fullWords < _array.length)) {
+	    ones += Long.bitCount(_array[fullWords] & (-1L << (_bitsPerWord -
+							       remainder)));
+	}
+
+	return ones;
+
+    } // rank (int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Find the position of a particular 1 bit.
+     *
+     * @param k Which 1 bit to find (0-based), counting from index 0.
+     * @return The index of the <tt>k</tt><sup>th</sup> 1 bit; -1 if the vector
+     *         holds no more than <tt>k</tt> such bits.
+     **/
+    public int select (int k) {
+
+	if (k < 0) {
+	    return -1;
+	}
+
+	// Skip whole words until the word holding the requested bit.
+	for (int wordIndex = 0; wordIndex < _array.length; wordIndex++) {
+
+	    long word = _array[wordIndex];
+	    int ones = Long.bitCount(word);
+	    if (k >= ones) {
+		k -= ones;
+		continue;
+	    }
+
+	    // Clear the leading 1 bits that come before the one we want.
+	    for (int i = 0; i < k; i++) {
+		word &= ~Long.highestOneBit(word);
+	    }
+	    return (wordIndex << _wordShift) + Long.numberOfLeadingZeros(word);
+
+	}
+
+	return -1;
+
+    } // select (int k)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Combine this vector with another, bit by bit, using AND.  Bits beyond the
+     * end of either vector are taken to be 0.
+     *
+     * @param other The vector with which to combine.
+     **/
+    public void and (BitVector other) {
+
+	int common = Math.min(_array.length, other._array.length);
+	for (int wordIndex = 0; wordIndex < common; wordIndex++) {
+	    _array[wordIndex] &= other._array[wordIndex];
+	}
+	for (int wordIndex = common; wordIndex < _array.length; wordIndex++) {
+	    _array[wordIndex] = 0;
+	}
+	_length = Math.max(_length, other._length);
+
+    } // and (BitVector other)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Combine this vector with another, bit by bit, using OR.
+     *
+     * @param other The vector with which to combine.
+     **/
+    public void or (BitVector other) {
+
+	expandArray(other._array.length);
+	for (int wordIndex = 0; wordIndex < other._array.length; wordIndex++) {
+	    _array[wordIndex] |= other._array[wordIndex];
+	}
+	_length = Math.max(_length, other._length);
+
+    } // or (BitVector other)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Combine this vector with another, bit by bit, using XOR.
+     *
+     * @param other The vector with which to combine.
+     **/
+    public void xor (BitVector other) {
+
+	expandArray(other._array.length);
+	for (int wordIndex = 0; wordIndex < other._array.length; wordIndex++) {
+	    _array[wordIndex] ^= other._array[wordIndex];
+	}
+	_length = Math.max(_length, other._length);
+
+    } // xor (BitVector other)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Move every bit of the vector by the same distance.  A positive distance
+     * moves bits towards higher indices (filling the vacated low indices with
+     * 0); a negative distance moves them towards index 0, discarding the bits
+     * that fall off the front.  The known length moves with the bits.
+     *
+     * @param distance The number of positions by which to move each bit.
+     **/
+    public void shift (int distance) {
+
+	if (distance == 0) {
+	    return;
+	}
+
+	int newLength = Math.max(_length + distance, 0);
+	int words = wordsFor(newLength);
+	long[] oldArray = _array;
+	_array = new long[Math.max(words, 1)];
+
+	int wordDistance = distance >> _wordShift;
+	int bitDistance = distance & _wordMask;
+	for (int wordIndex = 0; wordIndex < words; wordIndex++) {
+
+	    // Each new word draws from (at most) two adjacent old words.
+	    int source = wordIndex - wordDistance;
+	    long high = wordAt(oldArray, source);
+	    long word = (bitDistance == 0) ? high : (high >>> bitDistance) |
+		(wordAt(oldArray, source - 1) << (_bitsPerWord - bitDistance));
+	    _array[wordIndex] = word;
+
+	}
+	_length = newLength;
+	clearTail();
+
+    } // shift (int distance)
+    // =========================================================================
+
+
+
     // =========================================================================
     /**
      * Return the known portion of the vector (up to the highest set index) as a
@@ -154,57 +396,107 @@ public class BitVector {
 
 	// Create an array of bytes large enough to hold the entire vector.
 	// "Round up" to have a sufficient, integral number of bytes.
-	int size = (int)Math.ceil((double)_length / _bitsPerByte);
+	int size = (_length + _bitsPerByte - 1) / _bitsPerByte;
 	byte[] byteArray = new byte[size];
 
-	// Copy the bits into each byte, from most to least significant, from
-	// the internal array.
-	int vectorIndex = 0;
-	for (int byteIndex = 0; byteIndex < byteArray.length; byteIndex++) {
-
-	    byte currentByte = 0;
-	    for (int bitsInThisByte = 0;
-		 bitsInThisByte < _bitsPerByte;
-		 bitsInThisByte++) {
+	// Unpack each word into bytes, most significant byte first.
+	for (int byteIndex = 0; byteIndex < size; byteIndex++) {
 
-		// Add bits into the bottom and shift them up (left).
-		currentByte <<= 1;
-		currentByte |= (_array[vectorIndex++] ? 1 : 0);
-
-	    }
-	    byteArray[byteIndex] = currentByte;
+	    int shift = _bitsPerWord - _bitsPerByte * ((byteIndex & 7) + 1);
+	    byteArray[byteIndex] = (byte)(_array[byteIndex >>> 3] >>> shift);
 
 	}
 
 	return byteArray;
 
-    }
+    } // toByteArray ()
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Expand the internal array used to store bit values by doubling its size.
+     * Expand the internal array used to store bit values.
      *
-     * @param size The new size to which to expand.
+     * @param size The new size (in words) to which to expand.
      **/
     private void expandArray (int size) {
 
 	// Ensure that the size is an increase.
 	if (size > _array.length) {
 
-	    boolean[] oldArray = _array;
-	    _array = new boolean[size];
-	    for (int index = 0; index < oldArray.length; index++) {
+	    _array = java.util.Arrays.copyOf(_array, size);
 
-		_array[index] = oldArray[index];
+	}
+
+    } // expandArray (int size)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Zero every stored bit at or beyond the known length, so that whole-word
+     * operations never see stale values.
+     **/
+    private void clearTail () {
+
+	int wordIndex = _length >>> _wordShift;
+	if (wordIndex < _array.length) {
 
+	    int remainder = _length & _wordMask;
+	    _array[wordIndex] &= (remainder == 0) ? 0L : (-1L << (_bitsPerWord -
+								remainder));
+	    for (wordIndex++; wordIndex < _array.length; wordIndex++) {
+		_array[wordIndex] = 0;
 	    }
 
 	}
 
-    } // expandArray (int size)
+    } // clearTail ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param array The words to read.
+     * @param index The index of the word to read.
+     * @return The word at <tt>index</tt>, or 0 if that index is out of range.
+     **/
+    private static long wordAt (long[] array, int index) {
+
+	return ((index < 0) || (index >= array.length)) ? 0L : array[index];
+
+    } // wordAt (long[] array, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param bits A number of bits.
+     * @return The number of words needed to hold that many bits.
+     **/
+    private static int wordsFor (int bits) {
+
+	return (bits + _bitsPerWord - 1) >>> _wordShift;
+
+    } // wordsFor (int bits)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param index The index of a bit in the vector.
+     * @return A mask that selects that bit within its word.
+     **/
+    private static long maskFor (int index) {
+
+	return Long.MIN_VALUE >>> (index & _wordMask);
+
+    } // maskFor (int index)
     // =========================================================================
 
 
@@ -214,10 +506,11 @@ public class BitVector {
 
     /**
      * An array that stores the values of the known portion of the vector of
-     * bits.  Store the values as booleans.  The array may be larger than the
-     * known portion of the vector, but it does fully contain it at all times.
+     * bits, packed 64 bits to a word.  The array may be larger than the known
+     * portion of the vector, but it does fully contain it at all times.  Every
+     * bit beyond the known portion is kept at 0.
      **/
-    private boolean[] _array;
+    private long[] _array;
 
     /**
      * The length of the known portion of the vector, where the <i>known</i>
@@ -232,6 +525,14 @@ public class BitVector {
      * The number of bits in a byte.
      **/
     private final static int _bitsPerByte = 8;
+
+    /**
+     * The number of bits in a word, the shift that turns a bit index into a
+     * word index, and the mask that selects a bit's position within its word.
+     **/
+    private final static int _bitsPerWord = 64;
+    private final static int _wordShift = 6;
+    private final static int _wordMask = _bitsPerWord - 1;
     // =========================================================================
 
 
@@ -0,0 +1,283 @@
+// =============================================================================
+// IMPORTS
+
+import java.nio.ByteBuffer;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A <tt>BitView</tt> reads the bits of a range of bytes in place, without
+ * copying them.  The range may lie in a <tt>byte[]</tt> or in any
+ * <tt>ByteBuffer</tt> (heap, direct or mapped).  Bits are numbered just as in
+ * a {@link BitVector}: bit 0 is the most significant bit of the first byte of
+ * the range.  As with a <tt>BitVector</tt>, any index beyond the end of the
+ * range reads as 0.
+ *
+ * A view may be re-aimed at a new range with one of the <tt>wrap</tt>
+ * methods, so that a single view can be reused for every frame.  The view
+ * never writes to the bytes it reads, but it also does not protect against
+ * someone else changing them.
+ **/
+public class BitView {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Default constructor.  Make a view of no bits.
+     **/
+    public BitView () {
+
+	_bytes = null;
+	_buffer = null;
+	_begin = 0;
+	_end = 0;
+
+    } // BitView ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct a view over a range of an array of bytes.
+     *
+     * @param byteArray The array of bytes to view.
+     * @param begin The starting index of <tt>byteArray</tt> to use.
+     * @param end The ending index of <tt>byteArray</tt> to use.
+     **/
+    public BitView (byte[] byteArray, int begin, int end) {
+
+	wrap(byteArray, begin, end);
+
+    } // BitView (byte[] byteArray, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct a view over a range of a byte buffer.  The range is given in
+     * absolute indices, and the buffer's position and limit are not changed.
+     *
+     * @param buffer The buffer of bytes to view.
+     * @param begin The starting index of <tt>buffer</tt> to use.
+     * @param end The ending index of <tt>buffer</tt> to use.
+     **/
+    public BitView (ByteBuffer buffer, int begin, int end) {
+
+	wrap(buffer, begin, end);
+
+    } // BitView (ByteBuffer buffer, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Aim this view at a range of an array of bytes.
+     *
+     * @param byteArray The array of bytes to view.
+     * @param begin The starting index of <tt>byteArray</tt> to use.
+     * @param end The ending index of <tt>byteArray</tt> to use.
+     * @return This view.
+     **/
+    public BitView wrap (byte[] byteArray, int begin, int end) {
+
+	if ((begin < 0) || (end < begin) || (end > byteArray.length)) {
+	    throw new RuntimeException("Bad BitView range " + begin + " to " +
+				       end);
+	}
+
+	_bytes = byteArray;
+	_buffer = null;
+	_begin = begin;
+	_end = end;
+	return this;
+
+    } // wrap (byte[] byteArray, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Aim this view at a range of a byte buffer.
+     *
+     * @param buffer The buffer of bytes to view.
+     * @param begin The starting index of <tt>buffer</tt> to use.
+     * @param end The ending index of <tt>buffer</tt> to use.
+     * @return This view.
+     **/
+    public BitView wrap (ByteBuffer buffer, int begin, int end) {
+
+	if ((begin < 0) || (end < begin) || (end > buffer.limit())) {
+	    throw new RuntimeException("Bad BitView range " + begin + " to " +
+				       end);
+	}
+
+	// Heap buffers are read through their backing array, which avoids a
+	// bounds-checked call per byte.
+	if (buffer.hasArray()) {
+	    return wrap(buffer.array(),
+			buffer.arrayOffset() + begin,
+			buffer.arrayOffset() + end);
+	}
+
+	_bytes = null;
+	_buffer = buffer;
+	_begin = begin;
+	_end = end;
+	return this;
+
+    } // wrap (ByteBuffer buffer, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Return the value of a particular bit in the view.
+     *
+     * @param index The index into the view (0-based).
+     * @return The value of the bit at the given index: <tt>true</tt> for 1,
+     *         <tt>false</tt> for 0.
+     **/
+    public boolean getBit (int index) {
+
+	// No negative indices.
+	if (index < 0) {
+	    throw new RuntimeException("Negative BitView index " + index);
+	}
+
+	// Beyond the end of the range, every bit is an implicit 0.
+	int byteIndex = index >>> 3;
+	if (byteIndex >= _end - _begin) {
+	    return false;
+	}
+
+	return (byteAt(_begin + byteIndex) & (0x80 >>> (index & 7))) != 0;
+
+    } // getBit (int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bits in the viewed range.
+     **/
+    public int length () {
+
+	return (_end - _begin) * _bitsPerByte;
+
+    } // length ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Count the bits whose value is 1.
+     *
+     * @return The number of 1 bits in the viewed range.
+     **/
+    public int popCount () {
+
+	int ones = 0;
+	if (_bytes != null) {
+
+	    ones = BitKernels.popCount(_bytes, _begin, _end);
+
+	} else if (_buffer != null) {
+
+	    // Take whole words from the buffer where possible.  Byte order
+	    // does not matter for a count.
+	    int i = _begin;
+	    for (; i + 8 <= _end; i += 8) {
+		ones += Long.bitCount(_buffer.getLong(i));
+	    }
+	    for (; i < _end; i++) {
+		ones += Integer.bitCount(_buffer.get(i) & 0xff);
+	    }
+
+	}
+
+	return ones;
+
+    } // popCount ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy the viewed bits into a new byte array, in the same layout as
+     * {@link BitVector#toByteArray()}.
+     *
+     * @return A byte array holding a copy of the viewed range.
+     **/
+    public byte[] toByteArray () {
+
+	byte[] byteArray = new byte[_end - _begin];
+	if (_bytes != null) {
+	    System.arraycopy(_bytes, _begin, byteArray, 0, byteArray.length);
+	} else if (_buffer != null) {
+	    _buffer.duplicate().position(_begin).get(byteArray);
+	}
+
+	return byteArray;
+
+    } // toByteArray ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param index An absolute index into the viewed array or buffer.
+     * @return The byte at that index.
+     **/
+    private int byteAt (int index) {
+
+	return (_bytes != null) ? _bytes[index] : _buffer.get(index);
+
+    } // byteAt (int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The array being viewed, or <tt>null</tt> if the view is over a buffer.
+     **/
+    private byte[] _bytes;
+
+    /**
+     * The buffer being viewed, or <tt>null</tt> if the view is over an array.
+     **/
+    private ByteBuffer _buffer;
+
+    /**
+     * The absolute indices of the first byte of the range, and of the byte
+     * just past its end.
+     **/
+    private int _begin;
+    private int _end;
+
+    /**
+     * The number of bits in a byte.
+     **/
+    private final static int _bitsPerByte = 8;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class BitView
+// =============================================================================
@@ -0,0 +1,191 @@
+// ===================================================================
+// BlockInterleaver
+// ===================================================================
+
+
+
+// ===================================================================
+// A block interleaver that reorders the bits of each block of bytes
+// so that bits which are adjacent on the medium were far apart in
+// the original stream.  The bits of a block, taken in the order the
+// physical layer sends them (least significant bit of each byte
+// first), are written into a matrix one row at a time, and read out
+// one column at a time.  A burst of errors no longer than the number
+// of rows then damages at most one bit of each row; so if each row
+// is at least as long as the codewords of the data link layer's
+// code, no codeword loses more than one bit to any such burst.
+//
+// The number of rows must be a multiple of 8.  The matrix then falls
+// into tiles of 8 rows by 8 columns, each of which holds one byte
+// from each of 8 rows, and each of which is written out as one bit
+// from each of 8 output bytes -- that is, each tile is transposed.
+// Each tile is transposed as a single long, and the byte positions
+// of every tile are looked up in tables built when the interleaver
+// is made, so that no work is done one bit at a time.
+class BlockInterleaver {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Each block holds (rows * rowLength) bytes.
+    public BlockInterleaver (int rows, int rowLength) {
+
+	// Sanity check
+	if ((rows <= 0) || (rows % 8 != 0) || (rowLength <= 0)) {
+
+	    throw new RuntimeException("Bad interleaver geometry " + rows +
+				       "x" + rowLength);
+
+	}
+
+	this.rows = rows;
+	this.rowLength = rowLength;
+	this.blockLength = rows * rowLength;
+
+	// For each tile, find the 8 bytes it takes from the rows (one
+	// byte column of 8 consecutive rows) and the 8 bytes it gives
+	// to the output (8 consecutive columns of bits, each read down
+	// all of the rows, so rows/8 bytes apart).
+	int groups = rows / 8;
+	rowBytes = new int[blockLength];
+	columnBytes = new int[blockLength];
+	int tile = 0;
+	for (int group = 0; group < groups; group++) {
+
+	    for (int byteColumn = 0; byteColumn < rowLength; byteColumn++) {
+
+		for (int k = 0; k < 8; k++) {
+
+		    rowBytes[(tile * 8) + k] =
+			(((group * 8) + k) * rowLength) + byteColumn;
+		    columnBytes[(tile * 8) + k] =
+			(((byteColumn * 8) + k) * groups) + group;
+
+		}
+		tile++;
+
+	    }
+
+	}
+
+    } // BlockInterleaver
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of bytes in each block.
+    public int blockLength () {
+
+	return blockLength;
+
+    } // blockLength
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Interleave the block that begins at in[inOffset], writing it
+    // to out[outOffset].
+    public void interleave (byte[] in, int inOffset,
+			    byte[] out, int outOffset) {
+
+	permute(in, inOffset, rowBytes, out, outOffset, columnBytes);
+
+    } // interleave
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Undo interleave(): restore the block that begins at
+    // in[inOffset], writing it to out[outOffset].
+    public void deinterleave (byte[] in, int inOffset,
+			      byte[] out, int outOffset) {
+
+	permute(in, inOffset, columnBytes, out, outOffset, rowBytes);
+
+    } // deinterleave
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Gather each tile from the positions given by from[], transpose
+    // it, and scatter it to the positions given by to[].  The
+    // transpose is its own inverse, so the same routine serves both
+    // directions.
+    private void permute (byte[] in, int inOffset, int[] from,
+			  byte[] out, int outOffset, int[] to) {
+
+	for (int tile = 0; tile < blockLength; tile += 8) {
+
+	    long x = 0;
+	    for (int k = 0; k < 8; k++) {
+
+		x |= (in[inOffset + from[tile + k]] & 0xffL) << (8 * k);
+
+	    }
+	    x = transpose(x);
+	    for (int k = 0; k < 8; k++) {
+
+		out[outOffset + to[tile + k]] = (byte)(x >>> (8 * k));
+
+	    }
+
+	}
+
+    } // permute
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Transpose an 8x8 matrix of bits held one row per byte: bit j of
+    // byte k becomes bit k of byte j.  Each step swaps the two
+    // off-diagonal quarters of every 2x2, then 4x4, then 8x8 block.
+    static long transpose (long x) {
+
+	long t = (x ^ (x >>> 7)) & 0x00aa00aa00aa00aaL;
+	x = x ^ t ^ (t << 7);
+	t = (x ^ (x >>> 14)) & 0x0000cccc0000ccccL;
+	x = x ^ t ^ (t << 14);
+	t = (x ^ (x >>> 28)) & 0x00000000f0f0f0f0L;
+	x = x ^ t ^ (t << 28);
+	return x;
+
+    } // transpose
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The shape of the matrix, and the number of bytes it holds.
+    final int rows;
+    final int rowLength;
+    final int blockLength;
+
+    // For the kth byte of each tile, its index within the rows (as
+    // written), and within the columns (as read).
+    final int[] rowBytes;
+    final int[] columnBytes;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class BlockInterleaver
+// ===================================================================
@@ -0,0 +1,141 @@
+// ===================================================================
+// BufferPool
+// ===================================================================
+
+
+
+// ===================================================================
+// A pool of byte buffers that a layer reuses from frame to frame, so
+// that once the pool has grown to what the traffic needs, sending and
+// receiving frames allocates nothing.
+//
+// A pool hands out two kinds of buffer.  A buffer taken with take()
+// is the caller's until it gives it back; a layer builds each
+// outgoing frame in one.  Since a send may lead, through the upcalls
+// of the layers it reaches, to another send by the same layer before
+// the first returns, each gets a buffer of its own.  A buffer
+// obtained with exact() has exactly the length asked for, and is
+// shared by every caller that asks for that length: it is meant for
+// data handed up to a client, which must be done with it when the
+// upcall returns.
+//
+// A pool is not safe for use by more than one thread; each layer
+// holds its own.
+class BufferPool {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take a buffer at least minLength bytes long, reusing a free one
+    // if one is long enough.
+    public byte[] take (int minLength) {
+
+	// Use the most recently returned buffer that is long enough.
+	for (int i = freeCount - 1; i >= 0; i--) {
+
+	    byte[] buffer = free[i];
+	    if (buffer.length >= minLength) {
+
+		free[i] = free[--freeCount];
+		free[freeCount] = null;
+		return buffer;
+
+	    }
+
+	}
+
+	return new byte[minLength];
+
+    } // take
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Give back a buffer obtained from take().  If the pool already
+    // holds as many free buffers as it keeps, replace the shortest
+    // of them, if it is shorter than this one.
+    public void give (byte[] buffer) {
+
+	if (freeCount < free.length) {
+
+	    free[freeCount++] = buffer;
+	    return;
+
+	}
+
+	int shortest = 0;
+	for (int i = 1; i < freeCount; i++) {
+
+	    if (free[i].length < free[shortest].length) {
+
+		shortest = i;
+
+	    }
+
+	}
+	if (free[shortest].length < buffer.length) {
+
+	    free[shortest] = buffer;
+
+	}
+
+    } // give
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the shared buffer of exactly the given length, making it
+    // the first time that length is asked for.
+    public byte[] exact (int length) {
+
+	if (length >= exact.length) {
+
+	    exact = java.util.Arrays.copyOf(exact, length + 1);
+
+	}
+	if (exact[length] == null) {
+
+	    exact[length] = new byte[length];
+
+	}
+	return exact[length];
+
+    } // exact
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The buffers given back and not yet taken again, and how many
+    // there are.  The pool keeps only a few, since sends nest only
+    // as deep as the layers reply to one another.
+    final byte[][] free = new byte[maxFree][];
+    int freeCount;
+
+    // The shared buffers of exact length, indexed by that length.
+    byte[][] exact = new byte[0][];
+
+    // The number of free buffers that the pool keeps.
+    static final int maxFree = 4;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class BufferPool
+// ===================================================================
@@ -20,6 +20,52 @@ class BurstyNoiseMedium extends Medium {
 
 
 
+    // ===============================================================
+    // The constructor.  Use the default burst parameters, with an
+    // arbitrary seed.
+    public BurstyNoiseMedium () {
+
+	this(defaultBurstProbability,
+	     1.0 / defaultBurstLength,
+	     0.0,
+	     defaultErrorProbability,
+	     System.nanoTime());
+
+    } // BurstyNoiseMedium
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Model the wire as a Gilbert-Elliott channel:
+    // after each bit, a quiet wire starts a burst with probability
+    // burstProbability, and a bursting wire falls quiet again with
+    // probability endProbability (so that bursts last 1 /
+    // endProbability bits on average).  Bits flip with probability
+    // quietErrorProbability outside bursts and errorProbability
+    // within them.  The errors are drawn from a stream seeded with
+    // the given value so that a run can be repeated exactly.
+    public BurstyNoiseMedium (double burstProbability,
+			      double endProbability,
+			      double quietErrorProbability,
+			      double errorProbability,
+			      long seed) {
+
+	this.burstProbability = burstProbability;
+	this.endProbability = endProbability;
+	this.quietErrorProbability = quietErrorProbability;
+	this.errorProbability = errorProbability;
+	noise = new GilbertElliottNoise(burstProbability,
+					endProbability,
+					quietErrorProbability,
+					errorProbability,
+					seed);
+
+    } // BurstyNoiseMedium
+    // ===============================================================
+
+
+
     // ===============================================================
     // Register one of the two allowed clients as connected to an end
     // of the medium.
@@ -67,44 +113,72 @@ class BurstyNoiseMedium extends Medium {
 
 	}
 
-	// Are we currently in burst mode, or should we randomly enter
-	// it?  Note that if we just exited burst mode, we cannot
-	// re-enter it for at least one bit transmission.
-	if ((burstCount > 0) ||
-	    (Math.random() < burstProbability) && (burstCount != -1)) {
+	// Let the channel model decide whether this bit flips.  It
+	// tracks whether the wire is bursting, and how long the current
+	// quiet or bursting stretch will last.
+	if (noise.nextBitFlips()) {
 
-	    // We're in burst mode. Advance the count of bits that
-	    // could contribute to the burst and, with a given
-	    // probability, flip this bit.
-	    burstCount++;
-	    if (Math.random() < errorProbability) {
+	    bit = !bit;
 
-		bit = !bit;
+	}
 
-	    }
+	// Deliver the bit to the receiver, by an upcall to it or, on a
+	// scheduled medium, once it arrives.
+	deliver(sender, receiver, bit);
 
-	    // Have we reached the maximum length for this burst?
-	    if (burstCount >= maxBurstLength) {
+    } // send
+    // ===============================================================
 
-		// We have.  End the burst by setting the count to -1,
-		// thus marking the burst as having just ended.
-		burstCount = -1;
 
-	    }
+
+    // ===============================================================
+    // Allow a client to send a block of bytes to the other client.
+    public void send (PhysicalLayer sender,
+		      byte[] block,
+		      int offset,
+		      int length) {
+
+	// Determine who the receiver is.  Send only if the sender is
+	// a known client.
+	PhysicalLayer receiver = null;
+	if (client1 == sender) {
+
+	    receiver = client2;
+
+	} else if (client2 == sender) {
+
+	    receiver = client1;
 
 	} else {
 
-	    // We are not in burst mode.  This bit will be sent
-	    // normally.  Thus, we can make the wire eligible to burst
-	    // another error on the next bit.
-	    burstCount = 0;
+	    throw new RuntimeException();
 
 	}
 
+	// Copy the block (the sender's buffer is not ours to change),
+	// and then XOR the errors for all of its bits onto the copy.  A
+	// block sent while another is still being delivered (a reply
+	// sent from within the upcall, say) gets a buffer of its own, so
+	// that it cannot overwrite the one being read.
+	byte[] copy = scratch;
+	if (delivering || (copy == null) || (copy.length < length)) {
+
+	    copy = new byte[length];
+	    if (!delivering) {
+
+		scratch = copy;
+
+	    }
+
+	}
+	System.arraycopy(block, offset, copy, 0, length);
+	noise.flipBits(copy, 0, length);
 
-	// Deliver the bit to the receiver by performing an upcall to
-	// it.
-	receiver.receive(bit);
+	// Deliver the corrupted block to the receiver.
+	boolean wasDelivering = delivering;
+	delivering = true;
+	deliver(sender, receiver, copy, 0, length);
+	delivering = wasDelivering;
 
     } // send
     // ===============================================================
@@ -121,16 +195,29 @@ class BurstyNoiseMedium extends Medium {
     PhysicalLayer client1;
     PhysicalLayer client2;
 
-    // The probablity that a burst will occur, for what length, and
-    // with what probability of flipping the bits.  Finally, a counter
-    // to keep track of the number of bits since we entered burst
-    // error mode.  Thus, the number of bits that flip in a birst is
-    // at most maxBurstLength (if the first and last bits of the
-    // sequence do flip).
-    final double burstProbability = 0.005;
-    final int maxBurstLength = 15;
-    final double errorProbability = 0.25;
-    int burstCount;
+    // The default probablity that a burst will start, mean burst
+    // length, and probability of flipping a bit within a burst.
+    static final double defaultBurstProbability = 0.005;
+    static final int defaultBurstLength = 15;
+    static final double defaultErrorProbability = 0.25;
+
+    // The probability that a burst will start and that it will end
+    // after any given bit, and the probability of flipping each bit
+    // outside and inside a burst.
+    final double burstProbability;
+    final double endProbability;
+    final double quietErrorProbability;
+    final double errorProbability;
+
+    // The two-state channel model that produces the errors.
+    final GilbertElliottNoise noise;
+
+    // A buffer, reused from block to block, that holds the corrupted
+    // copy of each block sent.
+    byte[] scratch;
+
+    // Whether a block is currently being delivered.
+    boolean delivering;
     // ===============================================================
 
 
@@ -0,0 +1,240 @@
+// ===================================================================
+// ByteRing
+// ===================================================================
+
+
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+
+
+// ===================================================================
+// A bounded ring of bytes that carries a stream from one thread to
+// another: exactly one thread writes, and exactly one reads.  Neither
+// takes a lock.  Each side owns its own index, which only it
+// advances, and reads the other's to see how far it may go; a writer
+// that finds the ring full, or a reader that finds it empty, waits
+// for the other side to catch up.  Thus a fast producer is held back
+// to the pace of its consumer.
+//
+// The writer closes the ring once it has written its last byte.  The
+// reader then sees the end of the stream once it has read the rest.
+// A reader that gives up may close the ring too, after which the
+// writer's next write fails rather than waiting forever.
+//
+// What each side writes lies on cache lines of its own, so that the
+// writer advancing its index does not evict the reader's from the
+// reader's cache, nor the other way around.
+class ByteRing {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  The capacity must be a power of two.
+    public ByteRing (int capacity) {
+
+	// Sanity check
+	if ((capacity <= 0) || ((capacity & (capacity - 1)) != 0)) {
+
+	    throw new RuntimeException("Bad ring capacity " + capacity);
+
+	}
+
+	buffer = new byte[capacity];
+	mask = capacity - 1;
+
+    } // ByteRing
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Write the bytes data[offset .. offset + length), waiting for
+    // room as needed.  Called only by the writing thread.
+    public void write (byte[] data, int offset, int length) {
+
+	long tail = positions[tailIndex];
+	long cachedHead = positions[cachedHeadIndex];
+	while (length > 0) {
+
+	    // Wait until the reader has left some room.
+	    int spins = 0;
+	    while (tail - cachedHead == buffer.length) {
+
+		if (closed) {
+
+		    throw new RuntimeException("Ring closed by its reader");
+
+		}
+		cachedHead = (long)position.getVolatile(positions, headIndex);
+		positions[cachedHeadIndex] = cachedHead;
+		spins = pause(spins);
+
+	    }
+
+	    // Copy as much as fits, in at most two pieces, since the
+	    // room may wrap around the end of the buffer.
+	    int room = (int)(buffer.length - (tail - cachedHead));
+	    int count = Math.min(room, length);
+	    int index = (int)tail & mask;
+	    int first = Math.min(count, buffer.length - index);
+	    System.arraycopy(data, offset, buffer, index, first);
+	    System.arraycopy(data, offset + first, buffer, 0, count - first);
+
+	    // Publish the bytes to the reader.
+	    offset += count;
+	    length -= count;
+	    tail += count;
+	    position.setVolatile(positions, tailIndex, tail);
+
+	}
+
+    } // write
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Read up to length bytes into data[offset ..), waiting until at
+    // least one is available.  Return the number read, or -1 if the
+    // ring is closed and every byte written has been read.  Called
+    // only by the reading thread.
+    public int read (byte[] data, int offset, int length) {
+
+	long head = positions[headIndex];
+	long cachedTail = positions[cachedTailIndex];
+
+	// Wait until the writer has written something, or closed the
+	// ring.  The ring is checked once more after seeing it closed,
+	// since the last bytes may have been written just before.
+	int spins = 0;
+	while (cachedTail == head) {
+
+	    boolean wasClosed = closed;
+	    cachedTail = (long)position.getVolatile(positions, tailIndex);
+	    positions[cachedTailIndex] = cachedTail;
+	    if (cachedTail != head) {
+
+		break;
+
+	    }
+	    if (wasClosed) {
+
+		return -1;
+
+	    }
+	    spins = pause(spins);
+
+	}
+
+	// Copy out as much as is there, in at most two pieces.
+	int count = (int)Math.min(cachedTail - head, length);
+	int index = (int)head & mask;
+	int first = Math.min(count, buffer.length - index);
+	System.arraycopy(buffer, index, data, offset, first);
+	System.arraycopy(buffer, 0, data, offset + first, count - first);
+
+	// Hand the space back to the writer.
+	position.setVolatile(positions, headIndex, head + count);
+	return count;
+
+    } // read
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Mark the end of the stream.
+    public void close () {
+
+	closed = true;
+
+    } // close
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Wait a little for the other side, spinning at first, then
+    // giving up the processor, and then sleeping briefly, and return
+    // the number of waits so far.
+    private static int pause (int spins) {
+
+	if (spins < maxSpins) {
+
+	    Thread.onSpinWait();
+
+	} else if (spins < maxSpins + maxYields) {
+
+	    Thread.yield();
+
+	} else {
+
+	    LockSupport.parkNanos(parkNanos);
+
+	}
+	return spins + 1;
+
+    } // pause
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The bytes in transit, and the mask that maps a position in the
+    // stream to an index in the buffer.
+    final byte[] buffer;
+    final int mask;
+
+    // The number of slots between the two sides' positions: 128
+    // bytes, enough for two cache lines, since some processors fetch
+    // lines in pairs.
+    static final int padding = 16;
+
+    // The position of the next byte to read (the head), advanced only
+    // by the reader, and of the next byte to write (the tail),
+    // advanced only by the writer.  Each side keeps its last sight of
+    // the other's index, and only looks again when that is not
+    // enough.  The reader's two and the writer's two are each kept
+    // together, padded apart from each other and from the rest of the
+    // heap by a span of unused slots; in an array, unlike among
+    // fields, the layout is certain.  The indices themselves are read
+    // and written as volatiles through the handle.
+    final long[] positions = new long[3 * padding];
+    static final int headIndex = padding;
+    static final int cachedTailIndex = padding + 1;
+    static final int tailIndex = 2 * padding;
+    static final int cachedHeadIndex = 2 * padding + 1;
+    static final VarHandle position =
+	MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Whether either side has closed the ring.
+    volatile boolean closed;
+
+    // How many times to spin, and then to yield, before sleeping,
+    // and for how long.
+    static final int maxSpins = 100;
+    static final int maxYields = 100;
+    static final long parkNanos = 50000;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class ByteRing
+// ===================================================================
@@ -0,0 +1,145 @@
+// ===================================================================
+// COBSDeframer
+// ===================================================================
+
+
+
+// ===================================================================
+// A deframer for COBSFraming.  Each frame is a sequence of blocks,
+// and ends with a zero byte.  A block begins with a code byte c, and
+// holds the c - 1 (non-zero) data bytes that follow it; unless c is
+// 255, a zero data byte follows the block, except after the frame's
+// last block.  The deframer holds each such zero back until the next
+// block begins, at which point it knows the zero was not the last.
+//
+// A zero byte that arrives in the middle of a block means the frame
+// was damaged, so the frame is abandoned.  Since zero bytes appear
+// nowhere but between frames, the next byte begins a fresh frame.
+class COBSDeframer extends Deframer {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.
+    public COBSDeframer (int maxLength, FrameCheck check) {
+
+	super(maxLength, check);
+	state = between;
+
+    } // COBSDeframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public boolean push (byte data) {
+
+	// A zero byte always marks the end of a frame.
+	if (data == 0) {
+
+	    int oldState = state;
+	    state = between;
+	    if (oldState == hunting) {
+
+		discardedBytes++;
+
+	    } else if (oldState == inFrame) {
+
+		// The frame is only complete if its last block is.
+		if (blockRemaining == 0) {
+
+		    return true;
+
+		}
+		abandon();
+
+	    }
+	    return false;
+
+	}
+
+	switch (state) {
+
+	case hunting:
+	    discardedBytes++;
+	    return false;
+
+	case between:
+	    // This is the code byte of a new frame's first block.
+	    begin();
+	    state = inFrame;
+	    zeroPending = false;
+	    break;
+
+	default:
+	    // Within a block, this is a data byte.
+	    if (blockRemaining > 0) {
+
+		blockRemaining--;
+		if (!append(data)) {
+
+		    state = hunting;
+
+		}
+		return false;
+
+	    }
+
+	    // Otherwise, it is the code byte of a further block, so the
+	    // zero held back after the last block was real data.
+	    if (zeroPending && !append((byte)0)) {
+
+		state = hunting;
+		return false;
+
+	    }
+	    break;
+
+	}
+
+	// Take in the code byte.
+	int code = data & 0xff;
+	blockRemaining = code - 1;
+	zeroPending = (code != maxCode);
+	return false;
+
+    } // push
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The states of the deframer: between frames; inside one; and
+    // discarding a damaged frame while waiting for its end.
+    static final int between = 0;
+    static final int inFrame = 1;
+    static final int hunting = 2;
+    int state;
+
+    // The number of data bytes left in the current block, and whether
+    // a zero byte follows that block (unless it is the last).
+    int blockRemaining;
+    boolean zeroPending;
+
+    // The code of a full block, which is not followed by a zero.
+    static final int maxCode = 0xff;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class COBSDeframer
+// ===================================================================
@@ -0,0 +1,147 @@
+// ===================================================================
+// COBSFraming
+// ===================================================================
+
+
+
+// ===================================================================
+// Consistent Overhead Byte Stuffing.  Each frame ends with a zero
+// byte, and the zero bytes of its content are removed: the content
+// is split at each zero into blocks, and each block is preceded by a
+// code byte that gives the distance to the next zero.  A run of 254
+// non-zero bytes makes a full block (code 255) with no zero after
+// it.  The encoding thus costs one byte per 254 bytes of content (at
+// most about 0.4%), plus the leading code byte and the trailing zero,
+// whatever the content.
+//
+// A block's code byte is only known once the block ends, so the
+// framing leaves a space for it and fills it in later.
+class COBSFraming extends Framing {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int maxFrameLength (int contentLength) {
+
+	return contentLength + (contentLength / (maxCode - 1)) + 2;
+
+    } // maxFrameLength
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int begin (byte[] frame) {
+
+	// Leave space for the first block's code byte.
+	codeIndex = 0;
+	code = 1;
+	return 1;
+
+    } // begin
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int put (byte data, byte[] frame, int index) {
+
+	// A zero ends the current block, and is dropped.
+	if (data == 0) {
+
+	    return endBlock(frame, index);
+
+	}
+
+	frame[index++] = data;
+	code++;
+
+	// A full block ends without a zero.
+	if (code == maxCode) {
+
+	    index = endBlock(frame, index);
+
+	}
+	return index;
+
+    } // put
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int end (byte[] frame, int index) {
+
+	// Fill in the last block's code, and end with a zero.
+	frame[codeIndex] = (byte)code;
+	frame[index++] = 0;
+	return index;
+
+    } // end
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public Framing copy () {
+
+	return new COBSFraming();
+
+    } // copy
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public Deframer createDeframer (int maxLength, FrameCheck check) {
+
+	return new COBSDeframer(maxLength, check);
+
+    } // createDeframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Fill in the code byte of the current block, and leave space for
+    // the next one.
+    private int endBlock (byte[] frame, int index) {
+
+	frame[codeIndex] = (byte)code;
+	codeIndex = index;
+	code = 1;
+	return index + 1;
+
+    } // endBlock
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Where the current block's code byte goes, and the code so far
+    // (one more than the number of bytes in the block).
+    int codeIndex;
+    int code;
+
+    // The code of a full block.
+    static final int maxCode = 0xff;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class COBSFraming
+// ===================================================================
@@ -0,0 +1,439 @@
+// =============================================================================
+// IMPORTS
+
+import java.util.function.Supplier;
+import java.util.zip.Checksum;
+// =============================================================================
+
+
+
+// =============================================================================
+/**
+ * A <tt>CRC</tt> computes a cyclic redundancy check of some width (8, 16 or
+ * 32 bits) over a given generator polynomial.  It is table-driven, and
+ * processes eight bytes per step ("slice-by-8") wherever at least eight bytes
+ * remain.  The common codes are provided as constants.
+ *
+ * A CRC may be computed in one call with {@link #compute}, or incrementally
+ * by threading a <i>register</i> value through {@link #start},
+ * {@link #update} and {@link #finish}.  The register is an <tt>int</tt> whose
+ * meaning is private to this class.  A <tt>CRC</tt> holds no per-computation
+ * state, so one object may be shared by any number of threads.
+ *
+ * Where the JDK has an intrinsic implementation of the same code (CRC-32 and
+ * CRC-32C), a one-call {@link #compute} delegates to it.
+ **/
+public class CRC {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct a CRC from its parameters, in the usual "Rocksoft" form.
+     *
+     * @param name A name for the code.
+     * @param width The number of bits in the check value: 8, 16 or 32.
+     * @param polynomial The generator polynomial, most significant term first,
+     *                   without its implicit leading term.
+     * @param initial The value with which the register starts.
+     * @param reflected Whether bytes are processed least significant bit first
+     *                  (and the result reflected to match).
+     * @param finalXor The value XORed onto the register to give the result.
+     * @param intrinsic A source of JDK checksums that compute the same code,
+     *                  or <tt>null</tt> if there is none.
+     **/
+    public CRC (String name,
+		int width,
+		int polynomial,
+		int initial,
+		boolean reflected,
+		int finalXor,
+		Supplier<Checksum> intrinsic) {
+
+	if ((width != 8) && (width != 16) && (width != 32)) {
+	    throw new RuntimeException("Unsupported CRC width " + width);
+	}
+
+	_name = name;
+	_width = width;
+	_reflected = reflected;
+	_finalXor = finalXor;
+	_mask = (width == 32) ? -1 : ((1 << width) - 1);
+
+	// A reflected register keeps its bits at the bottom of the int,
+	// reversed.  A direct register keeps them aligned with the top, so
+	// that every width shifts the same way.
+	_shift = reflected ? 0 : (32 - width);
+	_initial = reflected ? (Integer.reverse(initial & _mask) >>> (32 -
+								    width))
+			     : (initial << _shift);
+	_tables = buildTables(reflected ?
+			      (Integer.reverse(polynomial & _mask) >>>
+			       (32 - width)) :
+			      (polynomial << _shift),
+			      reflected);
+
+	_intrinsic = (intrinsic == null) ? null :
+	    ThreadLocal.withInitial(intrinsic);
+
+    } // CRC (...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The name of this code.
+     **/
+    public String name () {
+
+	return _name;
+
+    } // name ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bits in the check value.
+     **/
+    public int width () {
+
+	return _width;
+
+    } // width ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bytes in the check value.
+     **/
+    public int bytes () {
+
+	return _width / 8;
+
+    } // bytes ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Compute the check value of a range of bytes.
+     *
+     * @param data A buffer of bytes.
+     * @param begin The starting index of the bytes to examine.
+     * @param end The ending index of the bytes to examine.
+     * @return The check value, in the low <tt>width()</tt> bits.
+     **/
+    public int compute (byte[] data, int begin, int end) {
+
+	if (_intrinsic != null) {
+
+	    Checksum checksum = _intrinsic.get();
+	    checksum.reset();
+	    checksum.update(data, begin, end - begin);
+	    return (int)checksum.getValue();
+
+	}
+
+	return finish(update(start(), data, begin, end));
+
+    } // compute (byte[] data, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The register value with which every computation begins.
+     **/
+    public int start () {
+
+	return _initial;
+
+    } // start ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take one more byte into a computation.
+     *
+     * @param register The register value so far.
+     * @param b The next byte.
+     * @return The updated register value.
+     **/
+    public int update (int register, byte b) {
+
+	int[] t0 = _tables[0];
+	if (_reflected) {
+	    return (register >>> 8) ^ t0[(register ^ b) & 0xff];
+	} else {
+	    return (register << 8) ^ t0[((register >>> 24) ^ b) & 0xff];
+	}
+
+    } // update (int register, byte b)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take a range of bytes into a computation, eight at a time where
+     * possible.
+     *
+     * @param register The register value so far.
+     * @param data A buffer of bytes.
+     * @param begin The starting index of the bytes to take.
+     * @param end The ending index of the bytes to take.
+     * @return The updated register value.
+     **/
+    public int update (int register, byte[] data, int begin, int end) {
+
+	int[] t0 = _tables[0], t1 = _tables[1], t2 = _tables[2],
+	    t3 = _tables[3], t4 = _tables[4], t5 = _tables[5],
+	    t6 = _tables[6], t7 = _tables[7];
+	int i = begin;
+
+	if (_reflected) {
+
+	    for (; i + 8 <= end; i += 8) {
+
+		int one = register ^ ((data[i] & 0xff) |
+				      ((data[i + 1] & 0xff) << 8) |
+				      ((data[i + 2] & 0xff) << 16) |
+				      ((data[i + 3] & 0xff) << 24));
+		register = t7[one & 0xff] ^
+		    t6[(one >>> 8) & 0xff] ^
+		    t5[(one >>> 16) & 0xff] ^
+		    t4[one >>> 24] ^
+		    t3[data[i + 4] & 0xff] ^
+		    t2[data[i + 5] & 0xff] ^
+		    t1[data[i + 6] & 0xff] ^
+		    t0[data[i + 7] & 0xff];
+
+	    }
+
+	} else {
+
+	    for (; i + 8 <= end; i += 8) {
+
+		int one = register ^ (((data[i] & 0xff) << 24) |
+				      ((data[i + 1] & 0xff) << 16) |
+				      ((data[i + 2] & 0xff) << 8) |
+				      (data[i + 3] & 0xff));
+		register = t7[one >>> 24] ^
+		    t6[(one >>> 16) & 0xff] ^
+		    t5[(one >>> 8) & 0xff] ^
+		    t4[one & 0xff] ^
+		    t3[data[i + 4] & 0xff] ^
+		    t2[data[i + 5] & 0xff] ^
+		    t1[data[i + 6] & 0xff] ^
+		    t0[data[i + 7] & 0xff];
+
+	    }
+
+	}
+
+	// Finish off the last few bytes one at a time.
+	for (; i < end; i++) {
+	    register = update(register, data[i]);
+	}
+
+	return register;
+
+    } // update (int register, byte[] data, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Turn a register value into the final check value.
+     *
+     * @param register The register value after the last byte.
+     * @return The check value, in the low <tt>width()</tt> bits.
+     **/
+    public int finish (int register) {
+
+	return ((register >>> _shift) ^ _finalXor) & _mask;
+
+    } // finish (int register)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Write a check value into a buffer, most significant byte first.
+     *
+     * @param value The check value.
+     * @param buffer The buffer into which to write.
+     * @param index The index at which to write the first byte.
+     * @return The index just past the last byte written.
+     **/
+    public int write (int value, byte[] buffer, int index) {
+
+	for (int shift = _width - 8; shift >= 0; shift -= 8) {
+	    buffer[index++] = (byte)(value >>> shift);
+	}
+
+	return index;
+
+    } // write (int value, byte[] buffer, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Read a check value from a buffer, most significant byte first.
+     *
+     * @param buffer The buffer from which to read.
+     * @param index The index of the first byte to read.
+     * @return The check value.
+     **/
+    public int read (byte[] buffer, int index) {
+
+	int value = 0;
+	for (int i = 0; i < bytes(); i++) {
+	    value = (value << 8) | (buffer[index + i] & 0xff);
+	}
+
+	return value;
+
+    } // read (byte[] buffer, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Build the eight lookup tables.  Table 0 gives the effect of one byte on
+     * an empty register; table <i>k</i> gives the effect of that byte followed
+     * by <i>k</i> zero bytes.
+     *
+     * @param polynomial The polynomial, positioned as the register is.
+     * @param reflected Whether the register is reflected.
+     * @return The tables.
+     **/
+    private static int[][] buildTables (int polynomial, boolean reflected) {
+
+	int[][] tables = new int[_slices][256];
+	for (int b = 0; b < 256; b++) {
+
+	    int register = reflected ? b : (b << 24);
+	    for (int bit = 0; bit < 8; bit++) {
+		if (reflected) {
+		    register = ((register & 1) != 0) ?
+			((register >>> 1) ^ polynomial) : (register >>> 1);
+		} else {
+		    register = ((register & 0x80000000) != 0) ?
+			((register << 1) ^ polynomial) : (register << 1);
+		}
+	    }
+	    tables[0][b] = register;
+
+	}
+
+	for (int k = 1; k < _slices; k++) {
+	    for (int b = 0; b < 256; b++) {
+
+		int previous = tables[k - 1][b];
+		tables[k][b] = reflected ?
+		    ((previous >>> 8) ^ tables[0][previous & 0xff]) :
+		    ((previous << 8) ^ tables[0][previous >>> 24]);
+
+	    }
+	}
+
+	return tables;
+
+    } // buildTables (int polynomial, boolean reflected)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // CONSTANTS
+
+    /**
+     * CRC-8 (as used by SMBus): polynomial 0x07.
+     **/
+    public static final CRC CRC8 =
+	new CRC("CRC-8", 8, 0x07, 0x00, false, 0x00, null);
+
+    /**
+     * CRC-16-CCITT (the "FALSE" variant, starting from 0xFFFF): polynomial
+     * 0x1021.
+     **/
+    public static final CRC CRC16_CCITT =
+	new CRC("CRC-16-CCITT", 16, 0x1021, 0xffff, false, 0x0000, null);
+
+    /**
+     * CRC-32 (as used by Ethernet and zip): polynomial 0x04C11DB7.
+     **/
+    public static final CRC CRC32 =
+	new CRC("CRC-32", 32, 0x04c11db7, 0xffffffff, true, 0xffffffff,
+		java.util.zip.CRC32::new);
+
+    /**
+     * CRC-32C (Castagnoli, as used by iSCSI): polynomial 0x1EDC6F41.
+     **/
+    public static final CRC CRC32C =
+	new CRC("CRC-32C", 32, 0x1edc6f41, 0xffffffff, true, 0xffffffff,
+		java.util.zip.CRC32C::new);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The name of the code, and the width of its check value in bits.
+     **/
+    private final String _name;
+    private final int _width;
+
+    /**
+     * Whether the register is reflected, how far a direct register is shifted
+     * up within the int, and the mask for a check value.
+     **/
+    private final boolean _reflected;
+    private final int _shift;
+    private final int _mask;
+
+    /**
+     * The starting register value, and the value XORed onto the result.
+     **/
+    private final int _initial;
+    private final int _finalXor;
+
+    /**
+     * The slice-by-8 lookup tables.
+     **/
+    private final int[][] _tables;
+
+    /**
+     * A per-thread JDK checksum for the same code, or <tt>null</tt>.
+     **/
+    private final ThreadLocal<Checksum> _intrinsic;
+
+    /**
+     * The number of bytes consumed per table-driven step.
+     **/
+    private static final int _slices = 8;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class CRC
+// =============================================================================
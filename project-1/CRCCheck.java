@@ -0,0 +1,101 @@
+// ===================================================================
+// CRCCheck
+// ===================================================================
+
+
+
+// ===================================================================
+// A cyclic redundancy check, carried most significant byte first in
+// as many bytes as the CRC is wide.
+class CRCCheck implements FrameCheck {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.
+    public CRCCheck (CRC crc) {
+
+	this.crc = crc;
+	reset();
+
+    } // CRCCheck
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int size () {
+
+	return crc.bytes();
+
+    } // size
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public void compute (byte[] data, int begin, int end,
+			 byte[] buffer, int index) {
+
+	crc.write(crc.compute(data, begin, end), buffer, index);
+
+    } // compute
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public void reset () {
+
+	register = crc.start();
+
+    } // reset
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public void update (byte data) {
+
+	register = crc.update(register, data);
+
+    } // update
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public boolean matches (byte[] buffer, int index) {
+
+	return crc.read(buffer, index) == crc.finish(register);
+
+    } // matches
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The CRC to compute, and the register of the computation in
+    // progress.
+    final CRC crc;
+    int register;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class CRCCheck
+// ===================================================================
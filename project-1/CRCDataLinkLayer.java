@@ -1,41 +1,67 @@
 class CRCDataLinkLayer extends DataLinkLayer {
 	// Data Members
-	final byte _startTag = (byte)'{';
-	final byte _stopTag = (byte)'}';
-	final byte _escapeTag = (byte)'\\';
-	final int _maxFrameSize = 8;
+	static final int _defaultFrameSize = 8;
+	final CRC _crc;
 	
 	
 	// Constructor
 	public CRCDataLinkLayer (PhysicalLayer physicalLayer) {
+		this(physicalLayer, CRC.CRC32C, new StuffedFraming());
+	}
+
+	// Constructor, choosing the framing
+	public CRCDataLinkLayer (PhysicalLayer physicalLayer, Framing framing) {
+		this(physicalLayer, CRC.CRC32C, framing);
+	}
+
+	// Constructor, choosing the CRC to append to each frame
+	public CRCDataLinkLayer (PhysicalLayer physicalLayer, CRC crc) {
+		this(physicalLayer, crc, new StuffedFraming());
+	}
+
+	// Constructor, choosing the CRC and the framing
+	public CRCDataLinkLayer (PhysicalLayer physicalLayer, CRC crc,
+				 Framing framing) {
+		this(physicalLayer, crc, framing,
+		     new FrameSizeController(_defaultFrameSize));
+	}
+
+	// Constructor, choosing the framing and what chooses the frame size
+	public CRCDataLinkLayer (PhysicalLayer physicalLayer, Framing framing,
+				 FrameSizeController sizer) {
+		this(physicalLayer, CRC.CRC32C, framing, sizer);
+	}
+
+	// Constructor, choosing the CRC, the framing, and what chooses the
+	// frame size (and is told whether each received frame's CRC matched)
+	public CRCDataLinkLayer (PhysicalLayer physicalLayer, CRC crc,
+				 Framing framing, FrameSizeController sizer) {
+		_crc = crc;
 		initialize(physicalLayer);
+
+		// Frame outgoing data, and decode incoming frames (checking
+		// their CRCs) as they arrive.
+		this.framing = framing;
+		this.sizer = sizer;
+		encoder = createEncoder(framing);
+		deframer = framing.createDeframer(sizer.maxFrameSize() +
+						  _crc.bytes(),
+						  new CRCCheck(_crc));
 	}
 
 	// =========================================================================
     /**
      * Accept a buffer of data to send.  Send it as divided into multiple frames
-     * of a fixed, maximum size.  Add a parity bit for error checking to each
-     * frame.  Call the physical layer to actually send each frame.
+     * of the size that the frame size controller chooses.  Add a CRC for
+     * error checking to each frame.  Call the physical layer to actually send
+     * each frame.  A large buffer may be encoded in parallel (see {@link
+     * #parallelize}).
      *
      * @param data An array of bytes to be framed and transmitted.
      **/
     public void send (byte[] data) {
 
-	// Calculate the number of frames needed to transmit this data.
-	int numberFrames = (int)Math.ceil((double)data.length / _maxFrameSize);
-
-	// Construct each frame and send it.
-	for (int frameNumber = 0; frameNumber < numberFrames; frameNumber++) {
-
-	    int beginIndex = _maxFrameSize * frameNumber;
-	    int endIndex = _maxFrameSize * (frameNumber + 1);
-	    if (endIndex > data.length) {
-			endIndex = data.length;
-	    }
-	    byte[] frame = constructFrame(data, beginIndex, endIndex);
-	    physicalLayer.send(frame);
-
-	}
+	sendFrames(data);
 
     } // send (byte[] data)
     // =========================================================================
@@ -43,120 +69,68 @@ class CRCDataLinkLayer extends DataLinkLayer {
     
     // =========================================================================
     /**
-     * Create a single frame to be transmitted.
+     * Create an encoder for this layer's frames.
      *
-     * @param data The original buffer of data from which to extract a frame's
-     *             worth.
-     * @param begin The starting index from the original data buffer.
-     * @param end The ending index from the original frame buffer.
-     * @return A byte array that contains an entirely constructed frame.
+     * @param framing The framing with which the encoder marks each frame.
+     * @return An encoder of frames carrying a CRC.
      **/
-    private byte[] constructFrame (byte[] data, int begin, int end) {
+    protected FrameEncoder createEncoder (Framing framing) {
 
-	// Allocate an array of bytes large enough to hold the largest possible
-	// frame (tags and parity byte included).
-	byte[] framedData = new byte[(_maxFrameSize * 2) + 3];
+	return new CRCEncoder(framing);
 
-	// Begin with the start tag.
-	int frameIndex = 0;
-	framedData[frameIndex++] = _startTag;
-
-	// Add each byte of original data.
-	for (int dataIndex = begin; dataIndex < end; dataIndex++) {
-
-	    // If the current data byte is itself a metadata tag, then preceed
-	    // it with an escape tag.
-	    byte currentByte = data[dataIndex];
-	    if ((currentByte == _startTag) ||
-		(currentByte == _stopTag) ||
-		(currentByte == _escapeTag)) {
-
-		framedData[frameIndex++] = _escapeTag;
-
-	    }
-
-	    // Add the data byte itself.
-	    framedData[frameIndex++] = currentByte;
-
-	}
-
-	// Calculate the parity bit (which is placed in its own byte).
-	framedData[frameIndex++] = calculateCRC(data, begin, end);
-
-	// End with a stop tag.
-	framedData[frameIndex++] = _stopTag;
-
-	// Copy the complete frame into a buffer of the exact desired
-	// size.
-	byte[] finalFrame = new byte[frameIndex];
-	for (int i = 0; i < frameIndex; i++) {
-	    finalFrame[i] = framedData[i];
-	}
-
-	return finalFrame;
-
-    } // constructFrame (byte[] data, int begin, int end)
-    // =========================================================================
-
-	// =========================================================================
-    /**
-     * Calculate the parity of the sequence of bytes.
-     *
-     * @param data A buffer of bytes.
-     * @param begin The starting index of the bytes to examine.
-     * @param end The ending index of the bytes to examine.
-     * @return The parity (0 or 1) for this group of bytes.
-     **/
-    private byte calculateCRC (byte[] data, int begin, int end) {
-
-	// Create a bit vector from the bytes specified.
-	BitVector bits = new BitVector(data, begin, end);
-	byte[] bytes = bits.toByteArray();
-	
-	for (int i = 0; i < 3; i++) {
-		bits.setBit(bits.length(), false);
-	}
-
-	// Iterate over the bit vector, counting the bits whose value is 1.
-	int ones = 0;
-	for (int i = 0; i < bits.length(); i++) {
-
-	    ones += (bits.getBit(i) ? 1 : 0);
-
-	}
-
-	// Return the parity.
-	return (byte)(ones % 2);
-
-    } // calculateParity (byte[] data, int begin, int end)
+    } // createEncoder (Framing framing)
     // =========================================================================
 
 
     // =========================================================================
     /**
-     * Determine whether the buffered data forms a complete frame.
-     *
-     * @return Whether a complete buffer has arrived.
+     * An encoder of frames that carry their data followed by its CRC.
      **/
-    protected boolean receivedCompleteFrame () {
+    private class CRCEncoder extends FrameEncoder {
 
-	// Any frame with less than two bytes cannot be complete, since even the
-	// empty frame contains a start and a stop tag.
-	if (bufferIndex < 2) {
-
-	    return false;
+	// A reusable space into which each frame's CRC is written
+	final byte[] _check = new byte[_crc.bytes()];
 
+	// Constructor
+	CRCEncoder (Framing framing) {
+		super(framing);
 	}
 
-	// A frame is complete iff the byte received is an non-escaped stop tag.
-	return ((incomingBuffer[bufferIndex - 1] == _stopTag) &&
-		(incomingBuffer[bufferIndex - 2] != _escapeTag));
+	public int maxFrameLength (int dataLength) {
+		// Leave room for the CRC.
+		return framing.maxFrameLength(dataLength + _crc.bytes());
+	}
 
-    } // receivedCompleteFrame
+	/**
+	 * Create a single frame to be transmitted, in the given buffer.
+	 *
+	 * @param data The original buffer of data from which to extract a
+	 *             frame's worth.
+	 * @param begin The starting index from the original data buffer.
+	 * @param end The ending index from the original frame buffer.
+	 * @param framedData A buffer large enough to hold the largest possible
+	 *                   frame (framing and CRC bytes included).
+	 * @return The length of the frame constructed at the start of
+	 *         <tt>framedData</tt>.
+	 **/
+	public int encode (byte[] data, int begin, int end, byte[] framedData) {
+
+	    // Begin the frame, and add each byte of original data.
+	    int frameIndex = framing.begin(framedData);
+	    frameIndex = framing.put(data, begin, end, framedData, frameIndex);
+
+	    // Calculate the CRC and add its bytes.
+	    _crc.write(_crc.compute(data, begin, end), _check, 0);
+	    frameIndex = framing.put(_check, 0, _check.length,
+				     framedData, frameIndex);
+
+	    // End the frame.
+	    return framing.end(framedData, frameIndex);
+
+	} // encode (byte[] data, int begin, int end, byte[] framedData)
+    }
     // =========================================================================
 
-
-
     // =========================================================================
     /**
      *  Remove the framing metadata and return the original data.
@@ -166,56 +140,31 @@ class CRCDataLinkLayer extends DataLinkLayer {
      **/
     protected byte[] processFrame () {
 
-	// Allocate sufficient space to hold the original data, which
-	// does not need space for the start/stop tags.
-	byte[] originalData = new byte[bufferIndex - 3];
-
-	// Check the start tag.
-	int frameIndex = 0;
-	if (incomingBuffer[frameIndex++] != _startTag) {
+	// The deframer has already extracted the original data and
+	// calculated its CRC as the bytes arrived.
+	if (!deframer.wellFormed()) {
 
-	    System.err.println("ParityDLL: Missing start tag!");
+	    System.err.println("CRCDLL: Malformed frame!");
+	    recordFrame(Math.max(deframer.dataLength(), 0), false);
 	    return null;
 
 	}
 
-	// Loop through the frame, extracting the bytes.  Look ahead to find the
-	// stop tag (making sure it is not escaped), because the byte before
-	// that is the parity byte.
-	int originalIndex = 0;
-	while ((incomingBuffer[frameIndex + 1] != _stopTag) ||
-	       (incomingBuffer[frameIndex] == _escapeTag)) {
-
-	    // If the next original byte is escape-tagged, then skip
-	    // the tag so that only the real data is extracted.
-	    if (incomingBuffer[frameIndex] == _escapeTag) {
-
-		frameIndex++;
-
-	    }
-
-	    // Copy the original byte.
-	    originalData[originalIndex++] = incomingBuffer[frameIndex++];
-
-	}
-
-	// Allocate a space that is only as large as the original
-	// message and then copy the original data into it.
-	byte[] finalData = new byte[originalIndex];
-	for (int i = 0; i < originalIndex; i++) {
-	    finalData[i] = originalData[i];
-	}
+	// Copy the original data into a space that is only as large as
+	// the original message.
+	byte[] finalData = pool.exact(deframer.dataLength());
+	deframer.copyData(finalData);
+	recordFrame(finalData.length, deframer.checkPassed());
 
-	// Calculate the parity of the extracted data and compare it to the
-	// received parity bit.  If there's a mismatch, return null.
-	byte parity = calculateCRC(originalData, 0, originalIndex);
-	if (parity != incomingBuffer[frameIndex]) {
+	// Compare the CRC of the extracted data to the received CRC.
+	// If there's a mismatch, return null.
+	if (!deframer.checkPassed()) {
 
-	    System.err.print("ParityDLL message: ");
+	    System.err.print("CRCDLL message: ");
 	    for (int i = 0; i < finalData.length; i++) {
 		System.err.print((char)finalData[i]);
 	    }
-	    System.err.println(" <= Parity mismatch!");
+	    System.err.println(" <= CRC mismatch!");
 	    finalData = null;
 
 	}
@@ -0,0 +1,185 @@
+// =============================================================================
+/**
+ * A rate 1/2 convolutional code.  Each data bit is shifted into a register
+ * that also holds the previous <i>K</i> - 1 bits (the code's <i>memory</i>),
+ * and two code bits are sent for it: the parities of the register under each
+ * of two generator polynomials.  The usual code, with <i>K</i> = 7 and the
+ * generators 171 and 133 (octal), is provided as a constant.
+ *
+ * Data bits are taken most significant first within each byte.  Code bits are
+ * packed least significant first within each byte -- the order in which the
+ * physical layer sends them -- two per data bit, the first generator's bit
+ * first.  So every data byte becomes two code bytes.
+ *
+ * Each encoding ends with a byte of zeros, which drives the register back to
+ * the all-zero state (<i>K</i> - 1 zero bits would be enough; a whole byte
+ * keeps the code bytes whole).  A decoder may thus end its search at that
+ * state, and finds the zero byte at the end of the data it decodes.
+ **/
+public class ConvolutionalCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct a rate 1/2 code.
+     *
+     * @param constraintLength The number of bits in the register, <i>K</i>:
+     *                         from 3 to 7.
+     * @param generator1 The first generator polynomial, the newest bit being
+     *                   its least significant bit.
+     * @param generator2 The second generator polynomial.
+     **/
+    public ConvolutionalCode (int constraintLength,
+			      int generator1,
+			      int generator2) {
+
+	if ((constraintLength < 3) || (constraintLength > 7)) {
+	    throw new RuntimeException("Unsupported constraint length " +
+				       constraintLength);
+	}
+
+	_constraintLength = constraintLength;
+	_states = 1 << (constraintLength - 1);
+
+	// The pair of code bits for every possible register value.
+	_outputs = new int[_states * 2];
+	for (int register = 0; register < _outputs.length; register++) {
+	    _outputs[register] =
+		(Integer.bitCount(register & generator1) & 1) |
+		((Integer.bitCount(register & generator2) & 1) << 1);
+	}
+
+    } // ConvolutionalCode (int constraintLength, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bits in the register, <i>K</i>.
+     **/
+    public int constraintLength () {
+
+	return _constraintLength;
+
+    } // constraintLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of states of the code's memory, 2^(<i>K</i> - 1).
+     **/
+    public int states () {
+
+	return _states;
+
+    } // states ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param register A register value: the memory shifted up by one, with
+     *                 the newest bit at the bottom.
+     * @return The two code bits sent for it, the first in the low bit.
+     **/
+    public int output (int register) {
+
+	return _outputs[register];
+
+    } // output (int register)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param dataLength A number of data bytes.
+     * @return The number of code bytes that encode them, the terminating zero
+     *         byte included.
+     **/
+    public int encodedLength (int dataLength) {
+
+	return (dataLength + 1) * 2;
+
+    } // encodedLength (int dataLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode a range of data bytes, followed by the terminating zero byte.
+     *
+     * @param data A buffer of data bytes.
+     * @param begin The starting index of the bytes to encode.
+     * @param end The ending index of the bytes to encode.
+     * @param code The buffer into which to write the code bytes.
+     * @param index The index at which to write the first code byte.
+     * @return The index just past the last code byte written.
+     **/
+    public int encode (byte[] data, int begin, int end,
+		       byte[] code, int index) {
+
+	int memory = 0;
+	for (int i = begin; i <= end; i++) {
+
+	    int value = (i < end) ? data[i] : 0;
+	    int codeBits = 0;
+	    for (int bit = 0; bit < 8; bit++) {
+
+		int register = (memory << 1) | ((value >>> (7 - bit)) & 1);
+		codeBits |= _outputs[register] << (2 * bit);
+		memory = register & (_states - 1);
+
+	    }
+	    code[index++] = (byte)codeBits;
+	    code[index++] = (byte)(codeBits >>> 8);
+
+	}
+
+	return index;
+
+    } // encode (byte[] data, int begin, int end, byte[] code, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // CONSTANTS
+
+    /**
+     * The K = 7 code with generators 171 and 133 (octal), as used by NASA and
+     * by 802.11.
+     **/
+    public static final ConvolutionalCode K7 =
+	new ConvolutionalCode(7, 0171, 0133);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The number of bits in the register, and the number of states.
+     **/
+    private final int _constraintLength;
+    private final int _states;
+
+    /**
+     * The pair of code bits for every register value.
+     **/
+    private final int[] _outputs;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ConvolutionalCode
+// =============================================================================
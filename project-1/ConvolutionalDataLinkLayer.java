@@ -0,0 +1,310 @@
+// =============================================================================
+/**
+ *  A data link layer that frames the data (by default, with start/stop tags
+ *  and byte packing), and that protects it with a rate 1/2 convolutional code.
+ *  Frames are decoded by a Viterbi decoder as their bytes arrive, rather than
+ *  once they are complete, so that decoding overlaps reception.
+ *
+ *  The code corrects scattered bit errors without any per-frame check.  The
+ *  only sign that it failed is a terminating byte that does not decode to
+ *  zero, so some miscorrected frames are delivered.
+ **/
+public class ConvolutionalDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new convolutional-coded data link layer that
+     * uses the K = 7 code, and that frames the data with start/stop tags.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     **/
+    public ConvolutionalDataLinkLayer (PhysicalLayer physicalLayer) {
+
+	this(physicalLayer, ConvolutionalCode.K7, new StuffedFraming());
+
+    } // ConvolutionalDataLinkLayer (PhysicalLayer physicalLayer)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new convolutional-coded data link layer that
+     * uses the K = 7 code.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     **/
+    public ConvolutionalDataLinkLayer (PhysicalLayer physicalLayer,
+				       Framing framing) {
+
+	this(physicalLayer, ConvolutionalCode.K7, framing);
+
+    } // ConvolutionalDataLinkLayer (PhysicalLayer physicalLayer, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new convolutional-coded data link layer.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param code The convolutional code with which to protect each frame.
+     * @param framing The framing with which to mark each frame.
+     **/
+    public ConvolutionalDataLinkLayer (PhysicalLayer physicalLayer,
+				       ConvolutionalCode code,
+				       Framing framing) {
+
+	_code = code;
+	_decoder = new ViterbiDecoder(code,
+				      _tracebackFactor * code.constraintLength(),
+				      _maxFrameSize + 1);
+
+	// Initialize the layer.
+	initialize(physicalLayer);
+
+	// Frame outgoing data, and gather incoming frames as they arrive,
+	// feeding each byte to the decoder as soon as it is unframed.
+	this.framing = framing;
+	sizer = new FrameSizeController(_maxFrameSize);
+	encoder = createEncoder(framing);
+	deframer = framing.createDeframer(_code.encodedLength(_maxFrameSize),
+					  null);
+
+    } // ConvolutionalDataLinkLayer (PhysicalLayer, ConvolutionalCode, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Accept a buffer of data to send.  Send it as divided into multiple frames
+     * of a fixed, maximum size.  Encode each frame with the convolutional code.
+     * Call the physical layer to actually send each frame.  A large buffer may
+     * be encoded in parallel (see {@link #parallelize}).
+     *
+     * @param data An array of bytes to be framed and transmitted.
+     **/
+    public void send (byte[] data) {
+
+	sendFrames(data);
+
+    } // send (byte[] data)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create an encoder for this layer's frames.
+     *
+     * @param framing The framing with which the encoder marks each frame.
+     * @return An encoder of frames protected by the convolutional code.
+     **/
+    protected FrameEncoder createEncoder (Framing framing) {
+
+	return new ConvolutionalEncoder(framing);
+
+    } // createEncoder (Framing framing)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * An encoder of frames protected by the convolutional code, with a space
+     * of its own into which to encode each frame's data.
+     **/
+    private class ConvolutionalEncoder extends FrameEncoder {
+
+
+
+	// =====================================================================
+	/**
+	 * The constructor.
+	 *
+	 * @param framing The framing with which to mark each frame.
+	 **/
+	ConvolutionalEncoder (Framing framing) {
+
+	    super(framing);
+
+	} // ConvolutionalEncoder (Framing framing)
+	// =====================================================================
+
+
+
+	// =====================================================================
+	public int maxFrameLength (int dataLength) {
+
+	    return framing.maxFrameLength(_code.encodedLength(dataLength));
+
+	} // maxFrameLength (int dataLength)
+	// =====================================================================
+
+
+
+	// =====================================================================
+	/**
+	 * Create a single frame to be transmitted, in the given buffer.
+	 *
+	 * @param data The original buffer of data from which to extract a
+	 *             frame's worth.
+	 * @param begin The starting index from the original data buffer.
+	 * @param end The ending index from the original frame buffer.
+	 * @param framedData A buffer large enough to hold the largest possible
+	 *                   frame (framing included).
+	 * @return The length of the frame constructed at the start of
+	 *         <tt>framedData</tt>.
+	 **/
+	public int encode (byte[] data, int begin, int end, byte[] framedData) {
+
+	    // Encode the data.
+	    int codeLength = _code.encodedLength(end - begin);
+	    _code.encode(data, begin, end, _encodedData, 0);
+
+	    // Begin the frame, add each byte of encoded data, and end the
+	    // frame.
+	    int frameIndex = framing.begin(framedData);
+	    frameIndex = framing.put(_encodedData, 0, codeLength,
+				     framedData, frameIndex);
+	    return framing.end(framedData, frameIndex);
+
+	} // encode (byte[] data, int begin, int end, byte[] framedData)
+	// =====================================================================
+
+
+
+	/**
+	 * A reusable space into which each frame's data is encoded.
+	 **/
+	private final byte[] _encodedData =
+	    new byte[_code.encodedLength(_maxFrameSize)];
+
+
+
+    } // class ConvolutionalEncoder
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Feed the decoder whatever code bytes the deframer has unframed since it
+     * was last fed, starting afresh whenever a new frame has begun (or the
+     * frame under way was abandoned).
+     **/
+    protected void frameProgress () {
+
+	if ((deframer.framesBegun() != _frameNumber) ||
+	    (deframer.dataLength() < _bytesDecoded)) {
+
+	    _decoder.reset();
+	    _frameNumber = deframer.framesBegun();
+	    _bytesDecoded = 0;
+
+	}
+
+	while (_bytesDecoded < deframer.dataLength()) {
+	    _decoder.push(deframer.dataByte(_bytesDecoded++));
+	}
+
+    } // frameProgress ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     *  Finish decoding the frame, and return the original data.
+     *
+     * @return The data carried in this frame; <tt>null</tt> if the data was not
+     *         successfully received.
+     **/
+    protected byte[] processFrame () {
+
+	// Every data byte, and the terminating byte, was sent as two code
+	// bytes.
+	int codeLength = deframer.dataLength();
+	if (!deframer.wellFormed() || (codeLength % 2 != 0) ||
+	    (codeLength < 4)) {
+
+	    System.err.println("ConvolutionalDLL: Malformed frame!");
+	    return null;
+
+	}
+
+	// The decoder has kept pace with the frame's arrival; release the
+	// last of its bits.
+	_decoder.finish();
+	int dataLength = (codeLength / 2) - 1;
+	byte[] finalData = pool.exact(dataLength);
+	_decoder.copyOutput(finalData, dataLength);
+
+	// If the terminating byte did not decode to zero, the decoder went
+	// astray, so return null.
+	if (_decoder.outputByte(dataLength) != 0) {
+
+	    System.err.print("ConvolutionalDLL message: ");
+	    for (int i = 0; i < finalData.length; i++) {
+		System.err.print((char)finalData[i]);
+	    }
+	    System.err.println(" <= Uncorrectable error!");
+	    return null;
+
+	}
+	correctedErrors += _decoder.errorEstimate();
+
+	return finalData;
+
+    } // processFrame
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The maximum number of data (not metadata) bytes in a frame.
+     **/
+    final int _maxFrameSize = 8;
+
+    /**
+     * The convolutional code with which each frame is protected, and the
+     * decoder for incoming frames.
+     **/
+    final ConvolutionalCode _code;
+    private final ViterbiDecoder _decoder;
+
+    /**
+     * Which of the deframer's frames the decoder is working on, and how many
+     * of its bytes it has taken in.
+     **/
+    private long _frameNumber = -1;
+    private int _bytesDecoded = 0;
+
+    /**
+     * The number of code bit errors corrected in received frames so far.
+     **/
+    int correctedErrors = 0;
+
+    /**
+     * The traceback depth, as a multiple of the constraint length.
+     **/
+    private static final int _tracebackFactor = 6;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ConvolutionalDataLinkLayer
+// =============================================================================
@@ -6,6 +6,12 @@
 
 
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+
+
 // ===================================================================
 // A data link layer accepts a string of bytes, divides it into
 // frames, adds some metadata, and sends the frame via its physical
@@ -34,10 +40,6 @@ abstract class DataLinkLayer {
 	// Keep a pointer to the physical layer.
 	this.physicalLayer = physicalLayer;
 
-	// Create incoming buffer space.
-	incomingBuffer = new byte[bufferSize];
-	bufferIndex = 0;
-
     } // DataLinkLayer
     // ===============================================================
 
@@ -70,22 +72,119 @@ abstract class DataLinkLayer {
 
 
 
+    // ===============================================================
+    // Send a string of bytes as frames built by this layer's encoder,
+    // asking the frame size controller for the size of each in turn.
+    // A message of at least the parallel threshold is encoded in
+    // parallel instead.
+    protected void sendFrames (byte[] data) {
+
+	if ((parallelThreshold > 0) && (data.length >= parallelThreshold)) {
+
+	    sendFramesInParallel(data);
+	    return;
+
+	}
+
+	// Construct each frame and send it.
+	int beginIndex = 0;
+	while (beginIndex < data.length) {
+
+	    int endIndex = Math.min(beginIndex + sizer.frameSize(),
+				    data.length);
+	    byte[] frame =
+		pool.take(encoder.maxFrameLength(endIndex - beginIndex));
+	    int frameLength = encoder.encode(data, beginIndex, endIndex,
+					     frame);
+	    physicalLayer.send(frame, 0, frameLength);
+	    pool.give(frame);
+	    beginIndex = endIndex;
+
+	}
+
+    } // sendFrames
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Send a string of bytes as frames, dividing them into batches of
+    // frames that are encoded in parallel, each by an encoder (and
+    // framing) of its own.  Each batch is sent, in order, as soon as
+    // it and those before it are encoded.  Every frame of the message
+    // has the size that the frame size controller chooses at the
+    // start, since the batches are divided before any is sent.
+    private void sendFramesInParallel (byte[] data) {
+
+	int frameSize = sizer.frameSize();
+	int batchSize = Math.max(parallelBatchBytes / frameSize, 1) * frameSize;
+	int batches = (data.length + batchSize - 1) / batchSize;
+
+	// Start encoding every batch, each into a buffer large enough
+	// for the largest frames.
+	byte[][] encoded = new byte[batches][];
+	int[] encodedLengths = new int[batches];
+	ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[batches];
+	for (int i = 0; i < batches; i++) {
+
+	    final int batch = i;
+	    tasks[i] = ForkJoinPool.commonPool().submit(() -> {
+
+		int begin = batch * batchSize;
+		int end = Math.min(begin + batchSize, data.length);
+		FrameEncoder batchEncoder = createEncoder(framing.copy());
+		byte[] frame = new byte[batchEncoder.maxFrameLength(frameSize)];
+		byte[] frames =
+		    new byte[((end - begin + frameSize - 1) / frameSize) *
+			     frame.length];
+		int length = 0;
+		for (int b = begin; b < end; b += frameSize) {
+
+		    int frameEnd = Math.min(b + frameSize, end);
+		    int frameLength = batchEncoder.encode(data, b, frameEnd,
+							  frame);
+		    System.arraycopy(frame, 0, frames, length, frameLength);
+		    length += frameLength;
+
+		}
+		encoded[batch] = frames;
+		encodedLengths[batch] = length;
+
+	    });
+
+	}
+
+	// Send the batches in order, each once it is ready.
+	for (int i = 0; i < batches; i++) {
+
+	    tasks[i].join();
+	    physicalLayer.send(encoded[i], 0, encodedLengths[i]);
+	    encoded[i] = null;
+
+	}
+
+    } // sendFramesInParallel
+    // ===============================================================
+
+
+
     // ===============================================================
     // Allow the physical layer to deliver a byte into this layer's
     // buffer.
     void receive (byte data) {
 
-	// Add the new byte to the buffer of bytes.
-	incomingBuffer[bufferIndex] = data;
-	bufferIndex++;
-
-	// If this byte completes a frame, then process the frame,
-	// obtaining the original data (stripped of metadata).
+	// Hand the new byte to the deframer, which decodes (and checks)
+	// each byte as it arrives.  If this byte completes a frame, then
+	// process the frame, obtaining the original data (stripped of
+	// metadata).
+	boolean completedFrame = deframer.push(data);
+	frameProgress();
+	bytesSinceFrame++;
 	byte[] originalData = null;
-	if (receivedCompleteFrame()) {
+	if (completedFrame) {
 
 	    originalData = processFrame();
-	    bufferIndex = 0;
+	    bytesSinceFrame = 0;
 
 	}
 
@@ -103,8 +202,26 @@ abstract class DataLinkLayer {
 
 
     // ===============================================================
-    // Determine whether the buffered data forms a complete frame.
-    abstract protected boolean receivedCompleteFrame ();
+    // Called by the physical layer once it has delivered every byte
+    // that it has received so far.  Frames held back to be decoded
+    // together are decoded now.
+    void receivedBlock () {
+
+	decodeQueuedFrames();
+
+    } // receivedBlock
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Called after the deframer takes in each byte, and before any
+    // frame that byte completed is processed.  A layer that decodes a
+    // frame while it is still arriving does so here; by default
+    // nothing is done.
+    protected void frameProgress () {
+
+    } // frameProgress
     // ===============================================================
 
 
@@ -113,12 +230,270 @@ abstract class DataLinkLayer {
     // Given a complete frame, process its contents, extracting
     // metadata and performing any error checking, then delivering (if
     // possible) the original data.  (Return a null pointer if the
-    // data cannot be recovered.)
+    // data cannot be recovered.)  The deframer has already removed
+    // the metadata and computed the check.  The data returned may be
+    // in a buffer from this layer's pool, which the client may use
+    // only until its upcall returns.
     abstract protected byte[] processFrame ();
     // ===============================================================
 
 
 
+    // ===============================================================
+    // Report the fate of the frame just completed, which carried
+    // dataLength bytes of data, to the frame size controller.  Any
+    // frames the deframer abandoned since the last report are
+    // reported as failed, sharing the bytes received since then.
+    protected void recordFrame (int dataLength, boolean passed) {
+
+	long abandoned = deframer.abandonedFrames() - abandonedFramesRecorded;
+	abandonedFramesRecorded = deframer.abandonedFrames();
+	int frameBytes = (int)(bytesSinceFrame / (abandoned + 1));
+
+	recordFrame(dataLength, frameBytes, abandoned, passed);
+
+    } // recordFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Report the fate of a frame, which carried dataLength bytes of
+    // data in frameBytes bytes, and of the given number of abandoned
+    // frames before it.
+    private void recordFrame (int dataLength, int frameBytes,
+			      long abandoned, boolean passed) {
+
+	for (long i = 0; i < abandoned; i++) {
+
+	    sizer.record(dataLength, frameBytes, false);
+
+	}
+	sizer.record(dataLength, frameBytes, passed);
+
+    } // recordFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Decode the frame just completed, whose dataLength bytes of data
+    // are protected by a code that can be decoded once the whole
+    // frame is in, and report its fate.  Return the data, if it can
+    // be recovered, as processFrame() does.  If this layer decodes in
+    // parallel, the frame is instead held back to be decoded with
+    // others, and delivered to the client then; null is returned.
+    protected byte[] decodeFrame (int dataLength) {
+
+	if (parallelThreshold > 0) {
+
+	    queueFrame(dataLength);
+	    return null;
+
+	}
+
+	// Decode the data into a space that is only as large as the
+	// original message.
+	byte[] code = pool.take(deframer.dataLength());
+	int codeLength = deframer.copyData(code);
+	byte[] finalData = pool.exact(dataLength);
+	int corrected = decodeFrame(code, 0, codeLength, finalData, 0);
+	pool.give(code);
+
+	recordFrame(dataLength, corrected >= 0);
+	return acceptFrame(finalData, corrected);
+
+    } // decodeFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Decode the code bytes code[begin .. end) of one frame into
+    // data[index ..), correcting what errors can be, and return the
+    // number corrected, or -1 if they could not be.  This may be
+    // called from several threads at once.  A layer that calls
+    // decodeFrame(int) provides it.
+    protected int decodeFrame (byte[] code, int begin, int end,
+			       byte[] data, int index) {
+
+	throw new RuntimeException("Frames not decoded by this layer");
+
+    } // decodeFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take in a frame's decoded data, with the number of errors
+    // corrected in it (or -1 if they could not be), and return the
+    // data to deliver, or null if there is none.  A layer that calls
+    // decodeFrame(int) provides it.
+    protected byte[] acceptFrame (byte[] data, int corrected) {
+
+	throw new RuntimeException("Frames not decoded by this layer");
+
+    } // acceptFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Hold back the frame just completed, to be decoded later along
+    // with others.  If the queue is full, decode what is in it now.
+    private void queueFrame (int dataLength) {
+
+	// Make room for the frame's code and data.
+	int codeLength = deframer.dataLength();
+	if (queuedFrames == queuedCodeEnds.length) {
+
+	    decodeQueuedFrames();
+
+	}
+	int codeBegin =
+	    (queuedFrames == 0) ? 0 : queuedCodeEnds[queuedFrames - 1];
+	int dataBegin =
+	    (queuedFrames == 0) ? 0 : queuedDataEnds[queuedFrames - 1];
+	if (codeBegin + codeLength > queuedCode.length) {
+
+	    queuedCode = java.util.Arrays.copyOf(queuedCode,
+						 2 * (codeBegin + codeLength));
+
+	}
+	if (dataBegin + dataLength > queuedData.length) {
+
+	    queuedData = java.util.Arrays.copyOf(queuedData,
+						 2 * (dataBegin + dataLength));
+
+	}
+
+	// Copy out the code, and note what to report of the frame.
+	deframer.copyData(queuedCode, codeBegin);
+	queuedCodeEnds[queuedFrames] = codeBegin + codeLength;
+	queuedDataEnds[queuedFrames] = dataBegin + dataLength;
+	long abandoned = deframer.abandonedFrames() - abandonedFramesRecorded;
+	abandonedFramesRecorded = deframer.abandonedFrames();
+	queuedAbandoned[queuedFrames] = abandoned;
+	queuedFrameBytes[queuedFrames] =
+	    (int)(bytesSinceFrame / (abandoned + 1));
+	queuedFrames++;
+
+    } // queueFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Decode every frame held back, in parallel, and then report
+    // each in turn and deliver its data to the client.
+    private void decodeQueuedFrames () {
+
+	if (queuedFrames == 0) {
+
+	    return;
+
+	}
+
+	IntStream.range(0, queuedFrames).parallel().forEach((i) -> {
+
+	    int codeBegin = (i == 0) ? 0 : queuedCodeEnds[i - 1];
+	    int dataBegin = (i == 0) ? 0 : queuedDataEnds[i - 1];
+	    queuedCorrected[i] = decodeFrame(queuedCode, codeBegin,
+					     queuedCodeEnds[i],
+					     queuedData, dataBegin);
+
+	});
+
+	for (int i = 0; i < queuedFrames; i++) {
+
+	    int dataBegin = (i == 0) ? 0 : queuedDataEnds[i - 1];
+	    int dataLength = queuedDataEnds[i] - dataBegin;
+	    recordFrame(dataLength, queuedFrameBytes[i], queuedAbandoned[i],
+			queuedCorrected[i] >= 0);
+
+	    byte[] finalData = pool.exact(dataLength);
+	    System.arraycopy(queuedData, dataBegin, finalData, 0, dataLength);
+	    finalData = acceptFrame(finalData, queuedCorrected[i]);
+	    if (finalData != null) {
+
+		client.receive(finalData);
+
+	    }
+
+	}
+	queuedFrames = 0;
+
+    } // decodeQueuedFrames
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create an encoder for this layer's frames that marks them with
+    // the given framing.  A layer that sends through sendFrames()
+    // provides it.
+    protected FrameEncoder createEncoder (Framing framing) {
+
+	throw new RuntimeException("Frames not encoded by this layer");
+
+    } // createEncoder
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Encode each message of at least threshold bytes with several
+    // threads, and, if this layer's frames are decoded once they are
+    // whole, decode the frames received in each block together, with
+    // several threads.  A threshold of 0 turns both off.
+    public void parallelize (int threshold) {
+
+	// Decode whatever is held back under the old setting.
+	decodeQueuedFrames();
+
+	if ((threshold > 0) && (queuedCodeEnds == null)) {
+
+	    queuedCode = new byte[0];
+	    queuedData = new byte[0];
+	    queuedCodeEnds = new int[maxQueuedFrames];
+	    queuedDataEnds = new int[maxQueuedFrames];
+	    queuedAbandoned = new long[maxQueuedFrames];
+	    queuedFrameBytes = new int[maxQueuedFrames];
+	    queuedCorrected = new int[maxQueuedFrames];
+
+	}
+	parallelThreshold = threshold;
+
+    } // parallelize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Whether this layer sends frames of its own in reply to those it
+    // receives (acknowledgements, say), and so needs a link that
+    // carries traffic both ways.  By default it does not.
+    public boolean replies () {
+
+	return false;
+
+    } // replies
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of data bytes that this layer now puts in each
+    // frame.
+    public int frameSize () {
+
+	return sizer.frameSize();
+
+    } // frameSize
+    // ===============================================================
+
+
+
     // ===============================================================
     // DATA MEMBERS
     // ===============================================================
@@ -132,15 +507,51 @@ abstract class DataLinkLayer {
     // The data link layer above this physical layer.
     NetworkLayer client;
 
-    // A buffer of bytes for data received from the physical layer.
-    // When a full frame is received, it is processed and the buffer
-    // is emptied.
-    byte[] incomingBuffer;
-
-    // The number of bytes received so far into the incoming buffer.
-    int bufferIndex;
-
-    // The incoming buffer size.
+    // The framing that marks where each frame begins and ends, and
+    // the deframer that undoes it, decoding bytes received from the
+    // physical layer as they arrive.  Each subclass provides its own.
+    Framing framing;
+    Deframer deframer;
+
+    // What chooses the number of data bytes in each frame, for those
+    // layers that let it be chosen.
+    FrameSizeController sizer;
+
+    // What builds the frames, for those layers that send through
+    // sendFrames().
+    FrameEncoder encoder;
+
+    // The smallest message encoded in parallel (0 if none is), and
+    // the number of data bytes in each batch of frames so encoded.
+    int parallelThreshold;
+    static final int parallelBatchBytes = 65536;
+
+    // The frames held back to be decoded together, when decoding in
+    // parallel: their code bytes and decoded data, each laid end to
+    // end, where each frame's code and data end, what to report of
+    // each to the frame size controller, and the errors corrected in
+    // each.  At most maxQueuedFrames are held back at once.
+    byte[] queuedCode;
+    byte[] queuedData;
+    int[] queuedCodeEnds;
+    int[] queuedDataEnds;
+    long[] queuedAbandoned;
+    int[] queuedFrameBytes;
+    int[] queuedCorrected;
+    int queuedFrames;
+    static final int maxQueuedFrames = 1024;
+
+    // The buffers in which this layer builds the frames it sends and
+    // hands received data to its client, reused from frame to frame.
+    final BufferPool pool = new BufferPool();
+
+    // The bytes received since the last completed frame, and the
+    // number of the deframer's abandoned frames already reported.
+    int bytesSinceFrame;
+    long abandonedFramesRecorded;
+
+    // The largest frame (after unstuffing) accepted by a layer that
+    // sets no smaller limit.
     final int bufferSize = 32768;
     // ===============================================================
 
@@ -0,0 +1,253 @@
+// ===================================================================
+// Deframer
+// ===================================================================
+
+
+
+// ===================================================================
+// A deframer takes in the bytes of framed data one at a time, and
+// undoes the framing as they arrive, so that each byte either changes
+// the deframer's state or is appended, decoded, to the frame being
+// received.  Each subclass undoes one kind of Framing.
+//
+// If the frames carry a check, the check is computed as the data
+// arrives too.  Since the deframer cannot know which bytes are the
+// check until the frame ends, it holds back the last few decoded
+// bytes -- as many as the check occupies -- and only takes a byte
+// into the check once enough bytes have arrived after it.  By the
+// time the frame ends, the data has been decoded and checked, and
+// the held-back bytes are the check.
+//
+// A deframer does constant work per byte and allocates nothing.  A
+// frame that would grow beyond the maximum length is abandoned, and
+// the deframer hunts for the start of the next one.
+abstract class Deframer {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Decode frames that hold at most maxLength
+    // bytes (data and check together, after decoding).  The check
+    // may be null for frames that carry none.
+    public Deframer (int maxLength, FrameCheck check) {
+
+	this.check = check;
+	checkSize = (check == null) ? 0 : check.size();
+	frame = new byte[maxLength];
+
+    } // Deframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take in the next byte.  Return whether it completed a frame,
+    // in which case the results for that frame may be examined
+    // until the next byte is taken in.
+    abstract public boolean push (byte data);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether the last frame was long enough to hold its
+    // check.
+    public boolean wellFormed () {
+
+	return (length >= checkSize);
+
+    } // wellFormed
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether the last frame's check matched its data.  Only
+    // meaningful for a well formed frame.
+    public boolean checkPassed () {
+
+	return (check == null) || check.matches(frame, dataLength());
+
+    } // checkPassed
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of data bytes (not counting the check) in the last
+    // frame.
+    public int dataLength () {
+
+	return length - checkSize;
+
+    } // dataLength
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return one decoded byte of the frame under way (or, once it is
+    // complete, of the last frame).  Together with dataLength() and
+    // framesBegun(), this lets a layer decode a frame while it is
+    // still arriving.
+    public byte dataByte (int index) {
+
+	return frame[index];
+
+    } // dataByte
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return a copy of the data bytes of the last frame.
+    public byte[] copyData () {
+
+	byte[] data = new byte[Math.max(dataLength(), 0)];
+	System.arraycopy(frame, 0, data, 0, data.length);
+	return data;
+
+    } // copyData
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Copy the data bytes of the last frame to the start of the given
+    // buffer, which must be long enough to hold them, and return how
+    // many there are.
+    public int copyData (byte[] buffer) {
+
+	return copyData(buffer, 0);
+
+    } // copyData
+
+    // Copy them to the given buffer, starting at the given index.
+    public int copyData (byte[] buffer, int index) {
+
+	int dataLength = Math.max(dataLength(), 0);
+	System.arraycopy(frame, 0, buffer, index, dataLength);
+	return dataLength;
+
+    } // copyData
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of frames abandoned part way through, and the number
+    // of bytes thrown away (in abandoned frames or while hunting for
+    // the start of a frame), since this deframer was made.
+    public long abandonedFrames () {
+
+	return abandonedFrames;
+
+    } // abandonedFrames
+
+    public long discardedBytes () {
+
+	return discardedBytes;
+
+    } // discardedBytes
+
+    // The number of frames begun, whether or not they were completed,
+    // since this deframer was made.
+    public long framesBegun () {
+
+	return framesBegun;
+
+    } // framesBegun
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Begin a new, empty frame.
+    protected void begin () {
+
+	length = 0;
+	framesBegun++;
+	if (check != null) {
+
+	    check.reset();
+
+	}
+
+    } // begin
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Give up on the frame under way.
+    protected void abandon () {
+
+	abandonedFrames++;
+	discardedBytes += length;
+	length = 0;
+
+    } // abandon
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Append a decoded byte to the frame, first taking into the check
+    // the byte that this one pushes out of the held-back window.  A
+    // frame that would grow too long is abandoned, in which case
+    // return false so that the subclass can start hunting.
+    protected boolean append (byte data) {
+
+	if (length == frame.length) {
+
+	    abandon();
+	    return false;
+
+	}
+
+	if ((check != null) && (length >= checkSize)) {
+
+	    check.update(frame[length - checkSize]);
+
+	}
+	frame[length++] = data;
+	return true;
+
+    } // append
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The check carried by each frame (null if none), and its size.
+    final FrameCheck check;
+    final int checkSize;
+
+    // The decoded bytes of the current frame, and how many there are.
+    final byte[] frame;
+    int length;
+
+    // Counts of the frames and damage seen so far.
+    long framesBegun;
+    long abandonedFrames;
+    long discardedBytes;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class Deframer
+// ===================================================================
@@ -0,0 +1,722 @@
+// ===================================================================
+// ErrorPatternAnalyzer
+// ===================================================================
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+// ===================================================================
+
+
+
+// ===================================================================
+// An exhaustive check of what a frame's code does with every error
+// pattern of a given kind: every pattern of 1, 2, 3 (or more) flipped
+// bits, and every burst of a given length, over the bits of one
+// frame's data and check.  Each pattern is counted as corrected (the
+// data comes out intact), detected (the code reports an error), or
+// undetected (wrong data comes out, unflagged).  The counts tell what
+// a code guarantees, rather than what it happens to do on a sample.
+//
+// The bits of a frame are numbered as they go over the wire: the data
+// bytes and then the check bytes, each byte least significant bit
+// first.  Only the code is examined; what an error does to the
+// framing around it is another matter.
+//
+// A check (parity or CRC) is linear: the check of a frame with errors
+// differs from the check that it carries by the XOR of what each
+// flipped bit alone would change, its syndrome, whatever the data.
+// The syndromes of every bit are computed once, and a pattern is then
+// judged by XORing them in as its bits are chosen, one XOR per bit;
+// nothing is re-encoded.  A Hamming code is linear too, so one
+// codeword (of all-zero data) stands for all: each pattern is flipped
+// into a copy of it and decoded.
+//
+// The patterns are split by their first bit (or a burst by its start)
+// into ranges that run in parallel on the common fork/join pool.
+class ErrorPatternAnalyzer {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The entry point, reached as "java Simulator patterns
+    // <options>".  Analyze the code of the parity, CRC or Hamming
+    // layer, and print a row of counts for each weight and each burst
+    // length, followed by what the code guarantees.
+    public static void main (String[] args) {
+
+	String layer = "CRC";
+	CRC crc = CRC.CRC32C;
+	HammingCode code = HammingCode.SECDED_72_64;
+	int frameSize = 8;
+	int maxWeight = 3;
+	int maxBurstLength = 16;
+
+	try {
+
+	    for (int i = 0; i + 1 < args.length; i += 2) {
+
+		String option = args[i];
+		String value = args[i + 1];
+		if (option.equals("--layer")) {
+		    layer = value;
+		} else if (option.equals("--crc")) {
+		    crc = (CRC)CRC.class.getField(value).get(null);
+		} else if (option.equals("--code")) {
+		    code = (HammingCode)HammingCode.class.getField(value)
+			.get(null);
+		} else if (option.equals("--frame-size")) {
+		    frameSize = Integer.parseInt(value);
+		} else if (option.equals("--max-weight")) {
+		    maxWeight = Integer.parseInt(value);
+		} else if (option.equals("--max-burst")) {
+		    maxBurstLength = Integer.parseInt(value);
+		} else {
+		    throw new RuntimeException("Unknown option " + option);
+		}
+
+	    }
+	    if (args.length % 2 != 0) {
+		throw new RuntimeException("No value for " +
+					   args[args.length - 1]);
+	    }
+
+	} catch (ReflectiveOperationException e) {
+
+	    throw new RuntimeException("Unknown CRC or code: " +
+				       e.getMessage());
+
+	} catch (RuntimeException e) {
+
+	    System.err.println(e.getMessage());
+	    System.err.println("Usage: java Simulator patterns " +
+			       "[--layer Parity|CRC|Hamming] " +
+			       "[--crc CRC8|CRC16_CCITT|CRC32|CRC32C] " +
+			       "[--code HAMMING_7_4|SECDED_72_64] " +
+			       "[--frame-size <bytes>] " +
+			       "[--max-weight <bits>] " +
+			       "[--max-burst <bits>]");
+	    System.exit(1);
+
+	}
+
+	ErrorPatternAnalyzer analyzer = null;
+	String name = null;
+	if (layer.equals("Parity")) {
+
+	    analyzer = new ErrorPatternAnalyzer(new ParityCheck(), frameSize);
+	    name = "parity";
+
+	} else if (layer.equals("CRC")) {
+
+	    analyzer = new ErrorPatternAnalyzer(new CRCCheck(crc), frameSize);
+	    name = crc.name();
+
+	} else if (layer.equals("Hamming")) {
+
+	    analyzer = new ErrorPatternAnalyzer(code, frameSize);
+	    name = code.name();
+
+	} else {
+
+	    throw new RuntimeException("No code to analyze in " + layer);
+
+	}
+
+	System.out.println(name + ", " + frameSize + " data bytes, " +
+			   analyzer.bits() + " bits");
+	System.out.println("pattern,patterns,corrected,detected,undetected");
+
+	// Note the largest weight, and the longest burst, up to which
+	// every pattern is caught (corrected or detected), and up to
+	// which every one is corrected.
+	int caughtWeight = 0;
+	int correctedWeight = 0;
+	for (int flips = 1; flips <= Math.min(maxWeight, analyzer.bits());
+	     flips++) {
+
+	    long[] counts = analyzer.weight(flips);
+	    printRow(flips + "-bit", counts);
+	    if ((caughtWeight == flips - 1) && (counts[UNDETECTED] == 0)) {
+		caughtWeight = flips;
+	    }
+	    if ((correctedWeight == flips - 1) &&
+		(counts[DETECTED] + counts[UNDETECTED] == 0)) {
+		correctedWeight = flips;
+	    }
+
+	}
+	int caughtBurst = 0;
+	int correctedBurst = 0;
+	for (int length = 1;
+	     length <= Math.min(maxBurstLength, analyzer.bits());
+	     length++) {
+
+	    long[] counts = analyzer.burst(length);
+	    printRow("burst-" + length, counts);
+	    if ((caughtBurst == length - 1) && (counts[UNDETECTED] == 0)) {
+		caughtBurst = length;
+	    }
+	    if ((correctedBurst == length - 1) &&
+		(counts[DETECTED] + counts[UNDETECTED] == 0)) {
+		correctedBurst = length;
+	    }
+
+	}
+
+	printSummary(caughtWeight, caughtBurst, "caught");
+	printSummary(correctedWeight, correctedBurst, "corrected");
+
+    } // main
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Print the largest weight, and the longest burst, up to which
+    // every pattern is caught (or corrected); or, if there are none,
+    // that no pattern is.
+    private static void printSummary (int weight, int burst,
+				      String outcome) {
+
+	if ((weight == 0) && (burst == 0)) {
+
+	    System.out.println("No pattern is " + outcome + ".");
+	    return;
+
+	}
+	System.out.println("Every pattern of up to " + weight +
+			   " bits, and every burst of up to " + burst +
+			   " bits, is " + outcome + ".");
+
+    } // printSummary
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Analyze frames of dataBytes bytes of data
+    // followed by the given check.  The check must be linear, as
+    // parity and CRCs are; a few random frames are tried to make
+    // sure.
+    public ErrorPatternAnalyzer (FrameCheck check, int dataBytes) {
+
+	int checkBytes = check.size();
+	if ((dataBytes <= 0) || (checkBytes > 8)) {
+
+	    throw new RuntimeException("Cannot analyze " + dataBytes +
+				       " data bytes with a " + checkBytes +
+				       "-byte check");
+
+	}
+	bits = 8 * (dataBytes + checkBytes);
+
+	// The syndrome of a data bit is the change that flipping it
+	// makes to the check; of a check bit, that bit itself, since the
+	// check's bytes are numbered here as they go over the wire.
+	byte[] data = new byte[dataBytes];
+	long zero = checkOf(check, data);
+	long[] syndromes = new long[bits];
+	for (int bit = 0; bit < 8 * dataBytes; bit++) {
+
+	    data[bit >>> 3] ^= (byte)(1 << (bit & 7));
+	    syndromes[bit] = checkOf(check, data) ^ zero;
+	    data[bit >>> 3] ^= (byte)(1 << (bit & 7));
+
+	}
+	for (int bit = 8 * dataBytes; bit < bits; bit++) {
+
+	    syndromes[bit] = 1L << (bit - (8 * dataBytes));
+
+	}
+
+	// Make sure that the syndromes add up, for a few random frames.
+	SplittableRandom random = new SplittableRandom(0);
+	for (int trial = 0; trial < linearityTrials; trial++) {
+
+	    random.nextBytes(data);
+	    long expected = checkOf(check, new byte[dataBytes]);
+	    for (int bit = 0; bit < 8 * dataBytes; bit++) {
+
+		if ((data[bit >>> 3] & (1 << (bit & 7))) != 0) {
+
+		    expected ^= syndromes[bit];
+
+		}
+
+	    }
+	    if (checkOf(check, data) != expected) {
+
+		throw new RuntimeException("Check is not linear");
+
+	    }
+
+	}
+
+	start = new SyndromePattern(syndromes);
+
+    } // ErrorPatternAnalyzer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Analyze frames of dataBytes bytes of data
+    // protected by the given Hamming code.
+    public ErrorPatternAnalyzer (HammingCode code, int dataBytes) {
+
+	if (dataBytes <= 0) {
+
+	    throw new RuntimeException("Cannot analyze " + dataBytes +
+				       " data bytes");
+
+	}
+
+	byte[] codeword = new byte[code.encodedLength(dataBytes)];
+	code.encode(new byte[dataBytes], 0, dataBytes, codeword, 0);
+	bits = 8 * codeword.length;
+	start = new DecodedPattern(code, codeword, dataBytes);
+
+    } // ErrorPatternAnalyzer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the number of bits in a frame.
+    public int bits () {
+
+	return bits;
+
+    } // bits
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Judge every pattern of exactly the given number of flipped
+    // bits, and return the counts of those corrected, detected and
+    // undetected, at the indices of those names.
+    public long[] weight (int flips) {
+
+	if ((flips <= 0) || (flips > bits)) {
+
+	    throw new RuntimeException("Bad number of flips " + flips);
+
+	}
+	return ForkJoinPool.commonPool()
+	    .invoke(new Search(start, flips, 0, bits - flips + 1));
+
+    } // weight
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Judge every burst of exactly the given length: every pattern
+    // whose first and last flipped bits lie that many bits apart
+    // (counting both), with any of the bits between flipped too.
+    // Return the counts as weight() does.
+    public long[] burst (int length) {
+
+	if ((length <= 0) || (length > bits) || (length > maxBurst)) {
+
+	    throw new RuntimeException("Bad burst length " + length);
+
+	}
+	if (length == 1) {
+
+	    return weight(1);
+
+	}
+	return ForkJoinPool.commonPool()
+	    .invoke(new Search(start, -length, 0, bits - length + 1));
+
+    } // burst
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Print one row of counts.
+    private static void printRow (String pattern, long[] counts) {
+
+	long patterns = counts[CORRECTED] + counts[DETECTED] +
+	    counts[UNDETECTED];
+	System.out.println(pattern + "," + patterns + "," +
+			   counts[CORRECTED] + "," + counts[DETECTED] + "," +
+			   counts[UNDETECTED]);
+
+    } // printRow
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the check of the given data, as a number whose byte i is
+    // the check's byte i.
+    private static long checkOf (FrameCheck check, byte[] data) {
+
+	byte[] buffer = new byte[check.size()];
+	check.compute(data, 0, data.length, buffer, 0);
+	long value = 0;
+	for (int i = 0; i < buffer.length; i++) {
+
+	    value |= (long)(buffer[i] & 0xff) << (8 * i);
+
+	}
+	return value;
+
+    } // checkOf
+    // ===============================================================
+
+
+
+    // ===================================================================
+    // A pattern of flipped bits in the making: bits are flipped in and
+    // out of it one at a time, and at any moment it can say what the
+    // code would make of it.  Each thread of the search works on a copy
+    // of its own.
+    static abstract class Pattern {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// Flip one bit of the frame, or flip it back.
+	abstract void flip (int bit);
+
+	// Return what the code makes of the bits now flipped: one of
+	// CORRECTED, DETECTED or UNDETECTED.
+	abstract int judge ();
+
+	// Return a copy of this pattern, with no bits flipped.
+	abstract Pattern copy ();
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Pattern
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A pattern judged by a linear check: the XOR of the syndromes of
+    // its bits is zero exactly when the check is fooled.
+    static class SyndromePattern extends Pattern {
+    // ===================================================================
+
+
+
+	SyndromePattern (long[] syndromes) {
+
+	    this.syndromes = syndromes;
+
+	} // SyndromePattern
+
+	void flip (int bit) {
+
+	    syndrome ^= syndromes[bit];
+
+	} // flip
+
+	int judge () {
+
+	    return (syndrome == 0) ? UNDETECTED : DETECTED;
+
+	} // judge
+
+	Pattern copy () {
+
+	    return new SyndromePattern(syndromes);
+
+	} // copy
+
+
+
+	// ===============================================================
+	// The syndrome of each bit of the frame, shared by every copy,
+	// and the XOR of those of the bits now flipped.
+	final long[] syndromes;
+	long syndrome;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class SyndromePattern
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A pattern judged by a Hamming code, by flipping its bits into a
+    // codeword of all-zero data and decoding that.
+    static class DecodedPattern extends Pattern {
+    // ===================================================================
+
+
+
+	DecodedPattern (HammingCode code, byte[] codeword, int dataBytes) {
+
+	    this.code = code;
+	    this.codeword = codeword.clone();
+	    this.data = new byte[dataBytes];
+
+	} // DecodedPattern
+
+	void flip (int bit) {
+
+	    codeword[bit >>> 3] ^= (byte)(1 << (bit & 7));
+
+	} // flip
+
+	int judge () {
+
+	    int corrected = code.decode(codeword, 0, codeword.length,
+					data, 0);
+	    if (corrected == HammingCode.UNCORRECTABLE) {
+
+		return DETECTED;
+
+	    }
+	    for (int i = 0; i < data.length; i++) {
+
+		if (data[i] != 0) {
+
+		    return UNDETECTED;
+
+		}
+
+	    }
+	    return CORRECTED;
+
+	} // judge
+
+	Pattern copy () {
+
+	    return new DecodedPattern(code, codeword, data.length);
+
+	} // copy
+
+
+
+	// ===============================================================
+	// The code, the codeword with the bits now flipped, and space
+	// for its data.
+	final HammingCode code;
+	final byte[] codeword;
+	final byte[] data;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class DecodedPattern
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // The search of the patterns whose first bit lies in a range of
+    // the frame: the patterns of a given weight, or (for a negative
+    // kind) the bursts of the length -kind.  A large range is split in
+    // two, and the halves searched at once.
+    static class Search extends RecursiveTask<long[]> {
+    // ===================================================================
+
+
+
+	Search (Pattern pattern, int kind, int begin, int end) {
+
+	    this.pattern = pattern;
+	    this.kind = kind;
+	    this.begin = begin;
+	    this.end = end;
+
+	} // Search
+
+
+
+	// ===============================================================
+	protected long[] compute () {
+
+	    if (end - begin > 1) {
+
+		int middle = (begin + end) >>> 1;
+		Search low = new Search(pattern, kind, begin, middle);
+		Search high = new Search(pattern, kind, middle, end);
+		low.fork();
+		long[] counts = high.compute();
+		long[] lowCounts = low.join();
+		for (int i = 0; i < counts.length; i++) {
+
+		    counts[i] += lowCounts[i];
+
+		}
+		return counts;
+
+	    }
+
+	    Pattern mine = pattern.copy();
+	    long[] counts = new long[3];
+	    for (int first = begin; first < end; first++) {
+
+		if (kind > 0) {
+
+		    mine.flip(first);
+		    choose(mine, first + 1, kind - 1, counts);
+		    mine.flip(first);
+
+		} else {
+
+		    burst(mine, first, -kind, counts);
+
+		}
+
+	    }
+	    return counts;
+
+	} // compute
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Count every way of flipping the given number of further bits,
+	// at or after the given bit, into the pattern.
+	private void choose (Pattern pattern, int from, int flips,
+			     long[] counts) {
+
+	    if (flips == 0) {
+
+		counts[pattern.judge()]++;
+		return;
+
+	    }
+
+	    int bits = bitsOf(pattern);
+	    for (int bit = from; bit <= bits - flips; bit++) {
+
+		pattern.flip(bit);
+		choose(pattern, bit + 1, flips - 1, counts);
+		pattern.flip(bit);
+
+	    }
+
+	} // choose
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Count every burst of the given length starting at the given
+	// bit.  Its ends are flipped, and the bits between run through
+	// every combination in Gray code order, so that each step flips
+	// just one bit.
+	private static void burst (Pattern pattern, int first, int length,
+				   long[] counts) {
+
+	    int last = first + length - 1;
+	    int inner = length - 2;
+	    pattern.flip(first);
+	    pattern.flip(last);
+	    counts[pattern.judge()]++;
+	    for (long step = 1; step < (1L << inner); step++) {
+
+		pattern.flip(first + 1 + Long.numberOfTrailingZeros(step));
+		counts[pattern.judge()]++;
+
+	    }
+
+	    // The last combination in Gray code order has only its top
+	    // bit set.
+	    if (inner > 0) {
+
+		pattern.flip(first + inner);
+
+	    }
+	    pattern.flip(last);
+	    pattern.flip(first);
+
+	} // burst
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Return the number of bits in the frame of a pattern.
+	private static int bitsOf (Pattern pattern) {
+
+	    return (pattern instanceof SyndromePattern) ?
+		((SyndromePattern)pattern).syndromes.length :
+		8 * ((DecodedPattern)pattern).codeword.length;
+
+	} // bitsOf
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The pattern to copy, the kind of pattern to search, and the
+	// range of first bits.
+	final Pattern pattern;
+	final int kind;
+	final int begin;
+	final int end;
+
+	// A task is serializable, though a search is never serialized.
+	private static final long serialVersionUID = 1L;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Search
+    // ===================================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of bits in a frame, and a pattern with none of them
+    // flipped, from which each search copies its own.
+    final int bits;
+    final Pattern start;
+
+    // The fates of a pattern, which index the counts returned.
+    static final int CORRECTED = 0;
+    static final int DETECTED = 1;
+    static final int UNDETECTED = 2;
+
+    // The random frames on which to test that a check is linear, and
+    // the longest burst searched (whose 2^(length - 2) patterns per
+    // start must be counted in a long).
+    static final int linearityTrials = 16;
+    static final int maxBurst = 62;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class ErrorPatternAnalyzer
+// ===================================================================
@@ -0,0 +1,349 @@
+// ===================================================================
+// EventScheduler
+// ===================================================================
+
+
+
+// ===================================================================
+// A virtual clock and the events waiting on it.  Each event is a
+// Runnable to be run at a given virtual time; the scheduler runs
+// them in order of time, and events due at the same time in the
+// order they were scheduled, advancing the clock to each one's time
+// as it goes.  Time passes only from event to event, so a simulation
+// that models seconds of traffic runs as fast as its events can be
+// handled.
+//
+// Times are counted in picoseconds, from 0 when the scheduler is
+// made.  A long holds a little over 106 days of them.
+//
+// The waiting events are kept in a binary heap laid out in parallel
+// arrays of primitive times and sequence numbers, so that ordering
+// them compares longs and allocates nothing.
+//
+// A scheduler is not safe for use by more than one thread.
+class EventScheduler {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the current virtual time.
+    public long now () {
+
+	return now;
+
+    } // now
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Schedule an event to run after the given delay from now.
+    public void schedule (long delay, Runnable event) {
+
+	scheduleAt(now + delay, event);
+
+    } // schedule
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Schedule an event to run at the given time, which must not be
+    // in the past.
+    public void scheduleAt (long time, Runnable event) {
+
+	// Sanity check
+	if (time < now) {
+
+	    throw new RuntimeException("Event scheduled in the past: " +
+				       time + " < " + now);
+
+	}
+
+	if (count == times.length) {
+
+	    int capacity = 2 * times.length;
+	    times = java.util.Arrays.copyOf(times, capacity);
+	    sequences = java.util.Arrays.copyOf(sequences, capacity);
+	    events = java.util.Arrays.copyOf(events, capacity);
+
+	}
+
+	// Sift the new event up from the end of the heap.
+	long sequence = nextSequence++;
+	int index = count++;
+	while (index > 0) {
+
+	    int parent = (index - 1) >>> 1;
+	    if (!before(time, sequence, parent)) {
+
+		break;
+
+	    }
+	    move(parent, index);
+	    index = parent;
+
+	}
+	place(index, time, sequence, event);
+
+    } // scheduleAt
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the time of the next event, or Long.MAX_VALUE if none is
+    // waiting.
+    public long nextTime () {
+
+	return (count == 0) ? Long.MAX_VALUE : times[0];
+
+    } // nextTime
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the number of events waiting.
+    public int pending () {
+
+	return count;
+
+    } // pending
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the number of events run so far.
+    public long eventsRun () {
+
+	return eventsRun;
+
+    } // eventsRun
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Advance the clock to the next event and run it.  Return false,
+    // without running anything, if no event is waiting.
+    public boolean step () {
+
+	if (count == 0) {
+
+	    return false;
+
+	}
+
+	// Take the earliest event off the heap, and sift the last one
+	// down into its place.
+	Runnable event = events[0];
+	now = times[0];
+	int last = --count;
+	long time = times[last];
+	long sequence = sequences[last];
+	Runnable moved = events[last];
+	events[last] = null;
+	int index = 0;
+	while (true) {
+
+	    int child = (2 * index) + 1;
+	    if (child >= count) {
+
+		break;
+
+	    }
+	    if ((child + 1 < count) &&
+		before(times[child + 1], sequences[child + 1], child)) {
+
+		child++;
+
+	    }
+	    if (!before(times[child], sequences[child], time, sequence)) {
+
+		break;
+
+	    }
+	    move(child, index);
+	    index = child;
+
+	}
+	if (index < count) {
+
+	    place(index, time, sequence, moved);
+
+	}
+
+	eventsRun++;
+	event.run();
+	return true;
+
+    } // step
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Run events until none is waiting.
+    public void run () {
+
+	while (step()) {
+	}
+
+    } // run
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Run every event due up to the given time, and then advance the
+    // clock to that time.
+    public void runUntil (long time) {
+
+	while (nextTime() <= time) {
+
+	    step();
+
+	}
+	advanceTo(time);
+
+    } // runUntil
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Advance the clock to the given time without running anything.
+    // No event may be waiting before then, and the clock never goes
+    // back.
+    public void advanceTo (long time) {
+
+	// Sanity check
+	if (nextTime() < time) {
+
+	    throw new RuntimeException("Cannot pass a waiting event");
+
+	}
+
+	now = Math.max(now, time);
+
+    } // advanceTo
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the given number of seconds as a virtual time.
+    public static long time (double seconds) {
+
+	return Math.round(seconds * picosPerSecond);
+
+    } // time
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the given virtual time in seconds.
+    public static double seconds (long time) {
+
+	return (double)time / picosPerSecond;
+
+    } // seconds
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether an event at the given time and sequence number
+    // comes before the one at the given index of the heap.
+    private boolean before (long time, long sequence, int index) {
+
+	return before(time, sequence, times[index], sequences[index]);
+
+    } // before
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether an event at time1, scheduled as sequence1, comes
+    // before one at time2, scheduled as sequence2.
+    private static boolean before (long time1, long sequence1,
+				   long time2, long sequence2) {
+
+	return (time1 < time2) ||
+	    ((time1 == time2) && (sequence1 < sequence2));
+
+    } // before
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Move the event at one index of the heap to another.
+    private void move (int from, int to) {
+
+	place(to, times[from], sequences[from], events[from]);
+
+    } // move
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Put an event at the given index of the heap.
+    private void place (int index, long time, long sequence,
+			Runnable event) {
+
+	times[index] = time;
+	sequences[index] = sequence;
+	events[index] = event;
+
+    } // place
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The current virtual time.
+    long now;
+
+    // The heap of waiting events: for each, its time, the order in
+    // which it was scheduled, and the event itself.  The first count
+    // entries are in use.
+    long[] times = new long[initialCapacity];
+    long[] sequences = new long[initialCapacity];
+    Runnable[] events = new Runnable[initialCapacity];
+    int count;
+
+    // The sequence number of the next event scheduled, and the
+    // number of events run.
+    long nextSequence;
+    long eventsRun;
+
+    // The number of picoseconds in a second, and the room for
+    // events that a new scheduler starts with.
+    static final long picosPerSecond = 1000000000000L;
+    static final int initialCapacity = 64;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class EventScheduler
+// ===================================================================
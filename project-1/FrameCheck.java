@@ -0,0 +1,59 @@
+// ===================================================================
+// FrameCheck
+// ===================================================================
+
+
+
+// ===================================================================
+// An error-detecting check carried at the end of each frame.  On the
+// sending side, the check is computed over a frame's data in one
+// call.  On the receiving side, it is computed incrementally, a byte
+// at a time as the data arrives, so that the verdict is ready as
+// soon as the frame ends.  An object of this class holds the state
+// of one incremental computation, and so belongs to a single layer.
+interface FrameCheck {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // The number of bytes the check occupies in a frame.
+    int size ();
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Compute the check for data[begin .. end) and write it into
+    // buffer, starting at index.
+    void compute (byte[] data, int begin, int end,
+		  byte[] buffer, int index);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Begin a new incremental computation.
+    void reset ();
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take the next data byte into the incremental computation.
+    void update (byte data);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether the check written at buffer[index .. index +
+    // size()) matches the data taken in since the last reset.
+    boolean matches (byte[] buffer, int index);
+    // ===============================================================
+
+
+
+// ===================================================================
+} // interface FrameCheck
+// ===================================================================
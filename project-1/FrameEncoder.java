@@ -0,0 +1,69 @@
+// ===================================================================
+// FrameEncoder
+// ===================================================================
+
+
+
+// ===================================================================
+// A frame encoder builds the frames that a data link layer sends,
+// each from a range of the data and into a buffer that it is given.
+// An encoder has a framing of its own, and whatever space its code
+// needs, so that several encoders for one layer can build frames at
+// the same time, each on its own thread.
+abstract class FrameEncoder {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Mark each frame with the given framing, which
+    // belongs to this encoder alone.
+    public FrameEncoder (Framing framing) {
+
+	this.framing = framing;
+
+    } // FrameEncoder
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The largest number of bytes that a frame carrying dataLength
+    // bytes of data can occupy on the wire.
+    abstract public int maxFrameLength (int dataLength);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Build the frame that carries data[begin .. end) at the start of
+    // the given buffer, which must hold at least maxFrameLength()
+    // bytes, and return the frame's length.
+    abstract public int encode (byte[] data, int begin, int end,
+				byte[] frame);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The framing with which each frame is marked.
+    final Framing framing;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class FrameEncoder
+// ===================================================================
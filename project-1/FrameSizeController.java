@@ -0,0 +1,143 @@
+// ===================================================================
+// FrameSizeController
+// ===================================================================
+
+
+
+// ===================================================================
+// Chooses how many data bytes a data link layer puts in each frame.
+// This base class always chooses the same size; a subclass may
+// change its choice as it learns how frames fare on the link.
+//
+// A layer reports the fate of each frame it can account for with
+// record(): on the sending side, whether it was acknowledged; on the
+// receiving side, whether its check passed.  The two ends of a link
+// may share one controller, standing in for the feedback that a real
+// link would have to carry back to the sender.
+class FrameSizeController {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Always choose the given size.
+    public FrameSizeController (int frameSize) {
+
+	this(frameSize, frameSize, frameSize);
+
+    } // FrameSizeController
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Start at the given size, and never choose
+    // one outside [minFrameSize, maxFrameSize].
+    protected FrameSizeController (int frameSize,
+				   int minFrameSize,
+				   int maxFrameSize) {
+
+	// Sanity check
+	if ((minFrameSize < 1) || (maxFrameSize < minFrameSize) ||
+	    (frameSize < minFrameSize) || (frameSize > maxFrameSize)) {
+
+	    throw new RuntimeException("Bad frame size " + frameSize +
+				       " in [" + minFrameSize + ", " +
+				       maxFrameSize + "]");
+
+	}
+
+	this.frameSize = frameSize;
+	this.minFrameSize = minFrameSize;
+	this.maxFrameSize = maxFrameSize;
+
+    } // FrameSizeController
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of data bytes to put in the next frame.
+    public int frameSize () {
+
+	return frameSize;
+
+    } // frameSize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The most data bytes that frameSize() will ever return, which
+    // sets how large a frame the receiving side must accept.
+    public int maxFrameSize () {
+
+	return maxFrameSize;
+
+    } // maxFrameSize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Report the fate of one frame that carried dataBytes bytes of
+    // data in frameBytes bytes on the medium.
+    public void record (int dataBytes, int frameBytes, boolean passed) {
+
+	framesRecorded++;
+	if (!passed) {
+
+	    framesFailed++;
+
+	}
+
+    } // record
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of frames reported, and the number that failed.
+    public long framesRecorded () {
+
+	return framesRecorded;
+
+    } // framesRecorded
+
+    public long framesFailed () {
+
+	return framesFailed;
+
+    } // framesFailed
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The current choice, and the bounds on it.
+    int frameSize;
+    final int minFrameSize;
+    final int maxFrameSize;
+
+    // Counts of the frames reported.
+    long framesRecorded;
+    long framesFailed;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class FrameSizeController
+// ===================================================================
@@ -0,0 +1,95 @@
+// ===================================================================
+// Framing
+// ===================================================================
+
+
+
+// ===================================================================
+// A framing marks where each frame begins and ends on the wire, and
+// encodes the frame's contents so that they cannot be mistaken for
+// those marks.  A data link layer builds each frame by calling
+// begin(), then put() for each byte of content (data, then check),
+// and finally end(); a framing object may keep state between those
+// calls, and so belongs to a single layer.  The matching Deframer
+// undoes the framing on the receiving side.
+abstract class Framing {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The largest number of bytes that a frame with the given number
+    // of bytes of content can occupy on the wire.
+    abstract public int maxFrameLength (int contentLength);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Begin a frame at the start of the given buffer, and return the
+    // index at which to put its first byte of content.
+    abstract public int begin (byte[] frame);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Put one byte of content into the frame at the given index, and
+    // return the index at which to put the next.
+    abstract public int put (byte data, byte[] frame, int index);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Put the bytes data[begin .. end) into the frame.
+    public int put (byte[] data, int begin, int end,
+		    byte[] frame, int index) {
+
+	for (int i = begin; i < end; i++) {
+
+	    index = put(data[i], frame, index);
+
+	}
+	return index;
+
+    } // put
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // End the frame, whose content ends at the given index, and
+    // return the frame's total length.
+    abstract public int end (byte[] frame, int index);
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Make a framing of the same kind, with state of its own, so that
+    // frames can be built with each at the same time.
+    abstract public Framing copy ();
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create a deframer for frames built by this framing, holding at
+    // most maxLength bytes of content, and carrying the given check
+    // (or none, if it is null).
+    abstract public Deframer createDeframer (int maxLength,
+					     FrameCheck check);
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class Framing
+// ===================================================================
@@ -0,0 +1,137 @@
+// =============================================================================
+/**
+ * Arithmetic in GF(256), the field of 256 elements built from the primitive
+ * polynomial x^8 + x^4 + x^3 + x^2 + 1 (0x11D).  Elements are the byte values
+ * 0 through 255; addition and subtraction are both XOR, and multiplication and
+ * division go through tables of logarithms and antilogarithms to the base
+ * alpha = 2.
+ *
+ * The antilogarithm table is twice as long as the field needs, so that the sum
+ * of two logarithms may index it without being reduced first.
+ **/
+public class GF256 {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param a An element of the field.
+     * @param b An element of the field.
+     * @return The product <tt>a * b</tt>.
+     **/
+    public static int multiply (int a, int b) {
+
+	if ((a == 0) || (b == 0)) {
+	    return 0;
+	}
+
+	return _exp[_log[a] + _log[b]];
+
+    } // multiply (int a, int b)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param a An element of the field.
+     * @param b A non-zero element of the field.
+     * @return The quotient <tt>a / b</tt>.
+     **/
+    public static int divide (int a, int b) {
+
+	if (b == 0) {
+	    throw new ArithmeticException("Division by zero in GF(256)");
+	}
+	if (a == 0) {
+	    return 0;
+	}
+
+	return _exp[_log[a] + _order - _log[b]];
+
+    } // divide (int a, int b)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param exponent Any integer, negative included.
+     * @return alpha raised to that power.
+     **/
+    public static int exp (int exponent) {
+
+	exponent %= _order;
+	if (exponent < 0) {
+	    exponent += _order;
+	}
+
+	return _exp[exponent];
+
+    } // exp (int exponent)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param a A non-zero element of the field.
+     * @return The power to which alpha must be raised to give <tt>a</tt>.
+     **/
+    public static int log (int a) {
+
+	if (a == 0) {
+	    throw new ArithmeticException("Logarithm of zero in GF(256)");
+	}
+
+	return _log[a];
+
+    } // log (int a)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The number of non-zero elements, which is the order of alpha.
+     **/
+    private static final int _order = 255;
+
+    /**
+     * The primitive polynomial from which the field is built.
+     **/
+    private static final int _primitive = 0x11d;
+
+    /**
+     * The antilogarithms (powers of alpha), twice over, and the logarithms.
+     * The logarithm of 0 is never used.
+     **/
+    private static final int[] _exp = new int[_order * 2];
+    private static final int[] _log = new int[_order + 1];
+
+    static {
+
+	int x = 1;
+	for (int i = 0; i < _order; i++) {
+
+	    _exp[i] = x;
+	    _exp[i + _order] = x;
+	    _log[x] = i;
+	    x <<= 1;
+	    if ((x & 0x100) != 0) {
+		x ^= _primitive;
+	    }
+
+	}
+
+    }
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class GF256
+// =============================================================================
@@ -0,0 +1,152 @@
+// ===================================================================
+// GeometricNoise
+// ===================================================================
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.SplittableRandom;
+// ===================================================================
+
+
+
+// ===================================================================
+// A source of independent bit errors, each bit flipping with the
+// same fixed probability.  Rather than drawing a random number per
+// bit, the source draws the length of the gap until the next flip
+// from the matching geometric distribution, and then lets that many
+// bits pass untouched.  The sequence of flips is statistically
+// identical to per-bit sampling, and is reproducible from the seed.
+class GeometricNoise {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.
+    public GeometricNoise (double errorProbability, long seed) {
+
+	// Sanity check
+	if ((errorProbability < 0.0) || (errorProbability > 1.0)) {
+
+	    throw new RuntimeException("Bad error probability " +
+				       errorProbability);
+
+	}
+
+	this.errorProbability = errorProbability;
+	this.logComplement = Math.log1p(-errorProbability);
+	this.random = new SplittableRandom(seed);
+	this.bitsUntilFlip = nextGap();
+
+    } // GeometricNoise
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Advance by one bit, and report whether that bit flips.
+    public boolean nextBitFlips () {
+
+	if (bitsUntilFlip > 0) {
+
+	    bitsUntilFlip--;
+	    return false;
+
+	}
+
+	bitsUntilFlip = nextGap();
+	return true;
+
+    } // nextBitFlips
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Advance by a run of bits, recording each flip in an XOR mask.
+    // The run's bits are numbered from firstBit, with bit k of the
+    // run held in bit (k % 8) of mask[k / 8] -- the same least
+    // significant first order in which a physical layer sends the
+    // bits of a byte.  Mask bits where no flip falls are left as
+    // they were.
+    public void flipBits (byte[] mask, long firstBit, long bitCount) {
+
+	long bit = firstBit;
+	long remaining = bitCount;
+	while (bitsUntilFlip < remaining) {
+
+	    // Jump straight over the unflipped bits to the next flip.
+	    bit += bitsUntilFlip;
+	    mask[(int)(bit >>> 3)] ^= (byte)(1 << (bit & 7));
+	    remaining -= bitsUntilFlip + 1;
+	    bit++;
+	    bitsUntilFlip = nextGap();
+
+	}
+	bitsUntilFlip -= remaining;
+
+    } // flipBits
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Draw the number of unflipped bits before the next flip.  For a
+    // uniform u in (0, 1], floor(ln(u) / ln(1 - p)) is geometrically
+    // distributed with success probability p.
+    long nextGap () {
+
+	if (errorProbability <= 0.0) {
+
+	    return Long.MAX_VALUE;
+
+	}
+	if (errorProbability >= 1.0) {
+
+	    return 0;
+
+	}
+
+	double u = 1.0 - random.nextDouble();
+	double gap = Math.floor(Math.log(u) / logComplement);
+	return (gap >= Long.MAX_VALUE) ? Long.MAX_VALUE : (long)gap;
+
+    } // nextGap
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The probability that any one bit flips, and ln(1 - p), which
+    // every gap draw divides by.
+    final double errorProbability;
+    final double logComplement;
+
+    // The stream of random numbers owned by this source.
+    final SplittableRandom random;
+
+    // The number of bits that will pass untouched before the next
+    // flip.
+    long bitsUntilFlip;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class GeometricNoise
+// ===================================================================
@@ -0,0 +1,181 @@
+// ===================================================================
+// GilbertElliottNoise
+// ===================================================================
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.SplittableRandom;
+// ===================================================================
+
+
+
+// ===================================================================
+// A source of bursty bit errors following the Gilbert-Elliott
+// model: a two-state Markov chain whose ``good'' and ``bad'' states
+// each flip bits with their own probability.  After each bit, a good
+// channel turns bad with probability goodToBad, and a bad channel
+// recovers with probability badToGood.
+//
+// Rather than stepping the chain once per bit, the source draws how
+// many bits each visit to a state lasts (a geometric length), and
+// within that run draws the gaps between flips from the state's own
+// GeometricNoise.  A whole burst can thus be turned into an XOR mask
+// with a handful of random draws.
+class GilbertElliottNoise {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  The channel starts in the good state.
+    public GilbertElliottNoise (double goodToBad,
+				double badToGood,
+				double goodErrorProbability,
+				double badErrorProbability,
+				long seed) {
+
+	// Each random stream is split from a single seeded one, so
+	// that the whole channel is reproducible from the seed.
+	SplittableRandom seeds = new SplittableRandom(seed);
+	goodLength = new GeometricNoise(goodToBad, seeds.nextLong());
+	badLength = new GeometricNoise(badToGood, seeds.nextLong());
+	goodNoise = new GeometricNoise(goodErrorProbability, seeds.nextLong());
+	badNoise = new GeometricNoise(badErrorProbability, seeds.nextLong());
+
+	// Enter the good state.
+	bad = false;
+	bitsLeftInState = runLength(goodLength);
+
+    } // GilbertElliottNoise
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Advance by one bit, and report whether that bit flips.
+    public boolean nextBitFlips () {
+
+	boolean flips = (bad ? badNoise : goodNoise).nextBitFlips();
+	consume(1);
+	return flips;
+
+    } // nextBitFlips
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Fill mask[offset .. offset + length) with the XOR error mask for
+    // the next (8 * length) bits.  Bits are laid out least
+    // significant first within each byte, as GeometricNoise.flipBits()
+    // describes.
+    public void fillMask (byte[] mask, int offset, int length) {
+
+	java.util.Arrays.fill(mask, offset, offset + length, (byte)0);
+	flipBits(mask, offset, length);
+
+    } // fillMask
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Apply the errors for the next (8 * length) bits directly to
+    // data[offset .. offset + length), one run of a single state at a
+    // time.
+    public void flipBits (byte[] data, int offset, int length) {
+
+	long bit = (long)offset << 3;
+	long remaining = (long)length << 3;
+	while (remaining > 0) {
+
+	    long run = Math.min(remaining, bitsLeftInState);
+	    (bad ? badNoise : goodNoise).flipBits(data, bit, run);
+	    bit += run;
+	    remaining -= run;
+	    consume(run);
+
+	}
+
+    } // flipBits
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether the channel is currently in its bad state.
+    public boolean inBadState () {
+
+	return bad;
+
+    } // inBadState
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Use up some of the bits of the current state's run, changing
+    // state whenever a run ends.  The count never exceeds the bits
+    // left in the current run.
+    private void consume (long bits) {
+
+	bitsLeftInState -= bits;
+	if (bitsLeftInState == 0) {
+
+	    bad = !bad;
+	    bitsLeftInState = runLength(bad ? badLength : goodLength);
+
+	}
+
+    } // consume
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Draw the number of bits for which a state lasts: at least one,
+    // plus the number of further bits before the leaving transition.
+    private static long runLength (GeometricNoise transitions) {
+
+	long gap = transitions.nextGap();
+	return (gap == Long.MAX_VALUE) ? gap : gap + 1;
+
+    } // runLength
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The draws of how long the good and the bad states last.
+    final GeometricNoise goodLength;
+    final GeometricNoise badLength;
+
+    // The bit errors within the good and the bad states.
+    final GeometricNoise goodNoise;
+    final GeometricNoise badNoise;
+
+    // The current state, and how many more bits it lasts.
+    boolean bad;
+    long bitsLeftInState;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class GilbertElliottNoise
+// ===================================================================
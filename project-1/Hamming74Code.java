@@ -0,0 +1,173 @@
+// =============================================================================
+/**
+ * Hamming(7,4), extended with an overall parity bit to make an (8,4) code.
+ * Each byte of data is split into two halves, most significant half first,
+ * and each half travels as one code byte.  Within a code byte, bits 0 through
+ * 6 hold Hamming positions 1 through 7 (check bits at positions 1, 2 and 4,
+ * data bits at 3, 5, 6 and 7), and bit 7 holds the parity of the other seven.
+ *
+ * Since every possible code byte is either a codeword, one bit away from
+ * exactly one codeword, or two bits away from several, decoding is a single
+ * lookup in a 256-entry table.
+ **/
+public class Hamming74Code extends HammingCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Default constructor.  Build the encoding and decoding tables.
+     **/
+    public Hamming74Code () {
+
+	_encodeTable = new byte[16];
+	_decodeTable = new byte[256];
+	java.util.Arrays.fill(_decodeTable, _uncorrectable);
+
+	for (int nibble = 0; nibble < 16; nibble++) {
+
+	    int codeword = encodeNibble(nibble);
+	    _encodeTable[nibble] = (byte)codeword;
+
+	    // The codeword itself decodes cleanly; each of its eight one-bit
+	    // neighbours decodes with a correction.
+	    _decodeTable[codeword] = (byte)nibble;
+	    for (int bit = 0; bit < 8; bit++) {
+		_decodeTable[codeword ^ (1 << bit)] = (byte)(nibble | _corrected);
+	    }
+
+	}
+
+    } // Hamming74Code ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public String name () {
+
+	return "Hamming(7,4)";
+
+    } // name ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encodedLength (int dataLength) {
+
+	return dataLength * 2;
+
+    } // encodedLength (int dataLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decodedLength (int codeLength) {
+
+	return (codeLength % 2 == 0) ? codeLength / 2 : -1;
+
+    } // decodedLength (int codeLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encode (byte[] data, int begin, int end,
+		       byte[] code, int index) {
+
+	for (int i = begin; i < end; i++) {
+	    code[index++] = _encodeTable[(data[i] >>> 4) & 0xf];
+	    code[index++] = _encodeTable[data[i] & 0xf];
+	}
+
+	return index;
+
+    } // encode (byte[] data, int begin, int end, byte[] code, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decode (byte[] code, int begin, int end,
+		       byte[] data, int index) {
+
+	int corrected = 0;
+	boolean uncorrectable = false;
+	for (int i = begin; i + 1 < end; i += 2) {
+
+	    int high = _decodeTable[code[i] & 0xff];
+	    int low = _decodeTable[code[i + 1] & 0xff];
+	    if ((high == _uncorrectable) || (low == _uncorrectable)) {
+		uncorrectable = true;
+	    }
+	    corrected += ((high & _corrected) != 0 ? 1 : 0) +
+		((low & _corrected) != 0 ? 1 : 0);
+	    data[index++] = (byte)(((high & 0xf) << 4) | (low & 0xf));
+
+	}
+
+	return uncorrectable ? UNCORRECTABLE : corrected;
+
+    } // decode (byte[] code, int begin, int end, byte[] data, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode one half-byte the long way, by computing each check bit.
+     *
+     * @param nibble Four bits of data.
+     * @return The code byte that carries them.
+     **/
+    private static int encodeNibble (int nibble) {
+
+	int d0 = nibble & 1;
+	int d1 = (nibble >>> 1) & 1;
+	int d2 = (nibble >>> 2) & 1;
+	int d3 = (nibble >>> 3) & 1;
+
+	// Each check bit covers the positions whose index includes it.
+	int p1 = d0 ^ d1 ^ d3;
+	int p2 = d0 ^ d2 ^ d3;
+	int p4 = d1 ^ d2 ^ d3;
+
+	int codeword = p1 | (p2 << 1) | (d0 << 2) | (p4 << 3) | (d1 << 4) |
+	    (d2 << 5) | (d3 << 6);
+	return codeword | ((Integer.bitCount(codeword) & 1) << 7);
+
+    } // encodeNibble (int nibble)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The code byte for each half-byte of data.
+     **/
+    private final byte[] _encodeTable;
+
+    /**
+     * For each possible code byte, the half-byte it decodes to, marked with
+     * <tt>_corrected</tt> if a bit had to be corrected; or
+     * <tt>_uncorrectable</tt>.
+     **/
+    private final byte[] _decodeTable;
+
+    /**
+     * The marks used in the decoding table.
+     **/
+    private static final int _corrected = 0x10;
+    private static final byte _uncorrectable = (byte)0xff;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class Hamming74Code
+// =============================================================================
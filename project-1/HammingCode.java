@@ -0,0 +1,110 @@
+// =============================================================================
+/**
+ * A <tt>HammingCode</tt> turns a range of data bytes into a longer range of
+ * code bytes from which the data can be recovered even if a few bits were
+ * flipped on the way.  Every code here corrects any single bit error within a
+ * codeword, and detects (without correcting) any double bit error within one.
+ *
+ * Both directions are driven by tables built once, when the code is made, so
+ * that encoding and decoding cost a few lookups per byte.  A code holds no
+ * per-call state, so one object may be shared by any number of layers.
+ **/
+public abstract class HammingCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The name of this code.
+     **/
+    public abstract String name ();
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param dataLength A number of data bytes.
+     * @return The number of code bytes that encode that many data bytes.
+     **/
+    public abstract int encodedLength (int dataLength);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param codeLength A number of code bytes.
+     * @return The number of data bytes they decode to; -1 if no range of data
+     *         encodes to that many bytes.
+     **/
+    public abstract int decodedLength (int codeLength);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode a range of data bytes.
+     *
+     * @param data A buffer of data bytes.
+     * @param begin The starting index of the bytes to encode.
+     * @param end The ending index of the bytes to encode.
+     * @param code The buffer into which to write the code bytes.
+     * @param index The index at which to write the first code byte.
+     * @return The index just past the last code byte written.
+     **/
+    public abstract int encode (byte[] data, int begin, int end,
+				byte[] code, int index);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decode a range of code bytes, correcting what errors can be corrected.
+     * The data is written even when an error could not be corrected, but is
+     * then not to be trusted.
+     *
+     * @param code A buffer of code bytes.
+     * @param begin The starting index of the bytes to decode.
+     * @param end The ending index of the bytes to decode.
+     * @param data The buffer into which to write the data bytes.
+     * @param index The index at which to write the first data byte.
+     * @return The number of bit errors corrected; {@link #UNCORRECTABLE} if
+     *         some codeword held more errors than could be corrected.
+     **/
+    public abstract int decode (byte[] code, int begin, int end,
+				byte[] data, int index);
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // CONSTANTS
+
+    /**
+     * The result of {@link #decode} when an error was detected but could not
+     * be corrected.
+     **/
+    public static final int UNCORRECTABLE = -1;
+
+    /**
+     * Hamming(7,4) extended with an overall parity bit: each half-byte of data
+     * travels in a byte of its own.
+     **/
+    public static final HammingCode HAMMING_7_4 = new Hamming74Code();
+
+    /**
+     * Extended Hamming(72,64): each eight bytes of data travel with one check
+     * byte.
+     **/
+    public static final HammingCode SECDED_72_64 = new SECDEDCode();
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class HammingCode
+// =============================================================================
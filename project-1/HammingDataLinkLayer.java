@@ -1,7 +1,9 @@
 // =============================================================================
 /**
- *  A data link layer that uses start/stop tags and byte packing to frame the
- *  data, and that uses a single parity bit to perform error detection.
+ *  A data link layer that frames the data (by default, with start/stop tags
+ *  and byte packing), and that protects it with a Hamming code, so that a
+ *  single flipped bit in a codeword is corrected in place and two are
+ *  detected.
  *
  * @author Scott F. H. Kaplan -- http://www.cs.amherst.edu/~sfkaplan
  * @date 2008 March 03
@@ -14,215 +16,246 @@ public class HammingDataLinkLayer extends DataLinkLayer {
 
     // =========================================================================
     /**
-     * The constructor.  Make a new parity-checking data link layer.
+     * The constructor.  Make a new Hamming-coded data link layer that uses
+     * SECDED(72,64) and frames the data with start/stop tags.
      *
      * @param physicalLayer The physical layer through which this data link
      * layer should communicate.
      **/
     public HammingDataLinkLayer (PhysicalLayer physicalLayer) {
 
-	// Initialize the layer.
-	initialize(physicalLayer);
+	this(physicalLayer, HammingCode.SECDED_72_64, new StuffedFraming());
 
-    } // ParityDataLinkLayer
+    } // HammingDataLinkLayer (PhysicalLayer physicalLayer)
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Accept a buffer of data to send.  Send it as divided into multiple frames
-     * of a fixed, maximum size.  Add a parity bit for error checking to each
-     * frame.  Call the physical layer to actually send each frame.
+     * The constructor.  Make a new Hamming-coded data link layer that uses
+     * SECDED(72,64).
      *
-     * @param data An array of bytes to be framed and transmitted.
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
      **/
-    public void send (byte[] data) {
+    public HammingDataLinkLayer (PhysicalLayer physicalLayer, Framing framing) {
 
-	// Calculate the number of frames needed to transmit this data.
-	int numberFrames = (int)Math.ceil((double)data.length / _maxFrameSize);
+	this(physicalLayer, HammingCode.SECDED_72_64, framing);
 
-	// Construct each frame and send it.
-	for (int frameNumber = 0; frameNumber < numberFrames; frameNumber++) {
+    } // HammingDataLinkLayer (PhysicalLayer physicalLayer, Framing framing)
+    // =========================================================================
 
-	    int beginIndex = _maxFrameSize * frameNumber;
-	    int endIndex = _maxFrameSize * (frameNumber + 1);
-	    if (endIndex > data.length) {
-		endIndex = data.length;
-	    }
-	    byte[] frame = constructFrame(data, beginIndex, endIndex);
-	    physicalLayer.send(frame);
 
-	}
 
-    } // send (byte[] data)
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Hamming-coded data link layer that frames
+     * the data with start/stop tags.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param code The Hamming code with which to protect each frame.
+     **/
+    public HammingDataLinkLayer (PhysicalLayer physicalLayer,
+				 HammingCode code) {
+
+	this(physicalLayer, code, new StuffedFraming());
+
+    } // HammingDataLinkLayer (PhysicalLayer physicalLayer, HammingCode code)
     // =========================================================================
 
 
 
     // =========================================================================
     /**
-     * Create a single frame to be transmitted.
+     * The constructor.  Make a new Hamming-coded data link layer.
      *
-     * @param data The original buffer of data from which to extract a frame's
-     *             worth.
-     * @param begin The starting index from the original data buffer.
-     * @param end The ending index from the original frame buffer.
-     * @return A byte array that contains an entirely constructed frame.
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param code The Hamming code with which to protect each frame.
+     * @param framing The framing with which to mark each frame.
      **/
-    private byte[] constructFrame (byte[] data, int begin, int end) {
+    public HammingDataLinkLayer (PhysicalLayer physicalLayer,
+				 HammingCode code,
+				 Framing framing) {
 
-	// Allocate an array of bytes large enough to hold the largest possible
-	// frame (tags and parity byte included).
-	byte[] framedData = new byte[(_maxFrameSize * 2) + 3];
+	this(physicalLayer, code, framing,
+	     new FrameSizeController(_defaultFrameSize));
+
+    } // HammingDataLinkLayer (PhysicalLayer, HammingCode, Framing)
+    // =========================================================================
 
-	// Begin with the start tag.
-	int frameIndex = 0;
-	framedData[frameIndex++] = _startTag;
 
-	// Add each byte of original data.
-	for (int dataIndex = begin; dataIndex < end; dataIndex++) {
 
-	    // If the current data byte is itself a metadata tag, then preceed
-	    // it with an escape tag.
-	    byte currentByte = data[dataIndex];
-	    if ((currentByte == _startTag) ||
-		(currentByte == _stopTag) ||
-		(currentByte == _escapeTag)) {
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Hamming-coded data link layer that uses
+     * SECDED(72,64), and whose frame size is chosen by the given controller.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     * @param sizer The controller that chooses the number of data bytes in
+     *              each frame.
+     **/
+    public HammingDataLinkLayer (PhysicalLayer physicalLayer,
+				 Framing framing,
+				 FrameSizeController sizer) {
 
-		framedData[frameIndex++] = _escapeTag;
+	this(physicalLayer, HammingCode.SECDED_72_64, framing, sizer);
 
-	    }
+    } // HammingDataLinkLayer (PhysicalLayer, Framing, FrameSizeController)
+    // =========================================================================
 
-	    // Add the data byte itself.
-	    framedData[frameIndex++] = currentByte;
 
-	}
 
-	// Calculate the parity bit (which is placed in its own byte).
-	framedData[frameIndex++] = calculateParity(data, begin, end);
-	
-	calculateHamming(data, begin, end);
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Hamming-coded data link layer whose frame
+     * size is chosen by the given controller.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param code The Hamming code with which to protect each frame.
+     * @param framing The framing with which to mark each frame.
+     * @param sizer The controller that chooses the number of data bytes in
+     *              each frame, and that is told whether each received frame
+     *              could be decoded.
+     **/
+    public HammingDataLinkLayer (PhysicalLayer physicalLayer,
+				 HammingCode code,
+				 Framing framing,
+				 FrameSizeController sizer) {
 
-	// End with a stop tag.
-	framedData[frameIndex++] = _stopTag;
+	_code = code;
 
-	// Copy the complete frame into a buffer of the exact desired
-	// size.
-	byte[] finalFrame = new byte[frameIndex];
-	for (int i = 0; i < frameIndex; i++) {
-	    finalFrame[i] = framedData[i];
-	}
+	// Initialize the layer.
+	initialize(physicalLayer);
 
-	return finalFrame;
+	// Frame outgoing data, and gather incoming frames as they arrive.  The
+	// code itself is checked, and corrected, once a whole frame is in.
+	this.framing = framing;
+	this.sizer = sizer;
+	encoder = createEncoder(framing);
+	deframer =
+	    framing.createDeframer(_code.encodedLength(sizer.maxFrameSize()),
+				   null);
 
-    } // constructFrame (byte[] data, int begin, int end)
+    } // HammingDataLinkLayer (PhysicalLayer, HammingCode, Framing, ...)
     // =========================================================================
-    
-    
-    private byte[] calculateHamming(byte[] data, int begin, int end) {
-    	int numPowers = 6;
-    	
-    	BitVector bits = new BitVector(data, begin, end);
-        BitVector bits2 = new BitVector(new byte[0], 0, 0);
-        
-        for (int i = 0; i < bits.length(); i++) {
-            if (bits.getBit(i) == false) {
-                System.out.print(0);
-            } else {
-                System.out.print(1);
-            }
-        }
-        System.out.print(' ');
-
-        
-    	for (int i = 1; i < bits.length(); i++) {
-    		Double logged = Math.log(i)/Math.log(2);
-    		if ((logged == Math.floor(logged)) && !Double.isInfinite(logged)) {
-                System.out.print('-');
-                bits2.setBit(bits2.length()+1, false);
-    			/*boolean[] copy = new boolean[bits.length()-i];
-    			for (int j = i; j < bits.length(); j++) {
-    				copy[j-i] = bits.getBit(j);
-    			}
-    			for (int j = i; j < bits.length()-i; j++) {
-    				bits.setBit(j+1, copy[j-i]);
-    			}
-    			bits.setBit(i, false);*/
-    		} else {
-                System.out.print(i);
-            }
-            System.out.print(' ');
-            bits2.setBit(bits2.length(), bits.getBit(i));
-    	}
-    	
-    	
-    	for (int i = 0; i < bits2.length(); i++) {
-    		if (bits2.getBit(i) == false) {
-    			System.out.print(0);
-    		} else {
-    			System.out.print(1);
-    		}
-    	}
-    	System.out.println();
-    	
-    	int[] checkPositions = new int[0];
-    	
-    	return data;
-    }
 
 
 
     // =========================================================================
     /**
-     * Calculate the parity of the sequence of bytes.
+     * Accept a buffer of data to send.  Send it as divided into multiple frames
+     * of the size that the frame size controller chooses.  Encode each frame
+     * with the Hamming code.  Call the physical layer to actually send each
+     * frame.  A large buffer may be encoded in parallel (see {@link
+     * #parallelize}).
      *
-     * @param data A buffer of bytes.
-     * @param begin The starting index of the bytes to examine.
-     * @param end The ending index of the bytes to examine.
-     * @return The parity (0 or 1) for this group of bytes.
+     * @param data An array of bytes to be framed and transmitted.
      **/
-    private byte calculateParity (byte[] data, int begin, int end) {
+    public void send (byte[] data) {
 
-	// Create a bit vector from the bytes specified.
-	BitVector bits = new BitVector(data, begin, end);
+	sendFrames(data);
 
-	// Iterate over the bit vector, counting the bits whose value is 1.
-	int ones = 0;
-	for (int i = 0; i < bits.length(); i++) {
+    } // send (byte[] data)
+    // =========================================================================
 
-	    ones += (bits.getBit(i) ? 1 : 0);
 
-	}
 
-	// Return the parity.
-	return (byte)(ones % 2);
+    // =========================================================================
+    /**
+     * Create an encoder for this layer's frames.
+     *
+     * @param framing The framing with which the encoder marks each frame.
+     * @return An encoder of frames protected by the Hamming code.
+     **/
+    protected FrameEncoder createEncoder (Framing framing) {
 
-    } // calculateParity (byte[] data, int begin, int end)
+	return new HammingEncoder(framing);
+
+    } // createEncoder (Framing framing)
     // =========================================================================
 
 
+
     // =========================================================================
     /**
-     * Determine whether the buffered data forms a complete frame.
-     *
-     * @return Whether a complete buffer has arrived.
+     * An encoder of frames protected by the Hamming code, with a space of its
+     * own into which to encode each frame's data.
      **/
-    protected boolean receivedCompleteFrame () {
+    private class HammingEncoder extends FrameEncoder {
 
-	// Any frame with less than two bytes cannot be complete, since even the
-	// empty frame contains a start and a stop tag.
-	if (bufferIndex < 2) {
 
-	    return false;
 
-	}
+	// =====================================================================
+	/**
+	 * The constructor.
+	 *
+	 * @param framing The framing with which to mark each frame.
+	 **/
+	HammingEncoder (Framing framing) {
+
+	    super(framing);
+
+	} // HammingEncoder (Framing framing)
+	// =====================================================================
+
+
+
+	// =====================================================================
+	public int maxFrameLength (int dataLength) {
+
+	    return framing.maxFrameLength(_code.encodedLength(dataLength));
+
+	} // maxFrameLength (int dataLength)
+	// =====================================================================
+
+
+
+	// =====================================================================
+	/**
+	 * Create a single frame to be transmitted, in the given buffer.
+	 *
+	 * @param data The original buffer of data from which to extract a
+	 *             frame's worth.
+	 * @param begin The starting index from the original data buffer.
+	 * @param end The ending index from the original frame buffer.
+	 * @param framedData A buffer large enough to hold the largest possible
+	 *                   frame (framing included).
+	 * @return The length of the frame constructed at the start of
+	 *         <tt>framedData</tt>.
+	 **/
+	public int encode (byte[] data, int begin, int end, byte[] framedData) {
+
+	    // Encode the data.
+	    int codeLength = _code.encode(data, begin, end, _encodedData, 0);
+
+	    // Begin the frame, add each byte of encoded data, and end the
+	    // frame.
+	    int frameIndex = framing.begin(framedData);
+	    frameIndex = framing.put(_encodedData, 0, codeLength,
+				     framedData, frameIndex);
+	    return framing.end(framedData, frameIndex);
+
+	} // encode (byte[] data, int begin, int end, byte[] framedData)
+	// =====================================================================
+
+
+
+	/**
+	 * A reusable space into which each frame's data is encoded.
+	 **/
+	private final byte[] _encodedData =
+	    new byte[_code.encodedLength(sizer.maxFrameSize())];
+
 
-	// A frame is complete iff the byte received is an non-escaped stop tag.
-	return ((incomingBuffer[bufferIndex - 1] == _stopTag) &&
-		(incomingBuffer[bufferIndex - 2] != _escapeTag));
 
-    } // receivedCompleteFrame
+    } // class HammingEncoder
     // =========================================================================
 
 
@@ -236,63 +269,77 @@ public class HammingDataLinkLayer extends DataLinkLayer {
      **/
     protected byte[] processFrame () {
 
-	// Allocate sufficient space to hold the original data, which
-	// does not need space for the start/stop tags.
-	byte[] originalData = new byte[bufferIndex - 3];
+	// The deframer has already extracted the encoded data as the bytes
+	// arrived.
+	int dataLength = _code.decodedLength(deframer.dataLength());
+	if (!deframer.wellFormed() || (dataLength < 0)) {
 
-	// Check the start tag.
-	int frameIndex = 0;
-	if (incomingBuffer[frameIndex++] != _startTag) {
-
-	    System.err.println("ParityDLL: Missing start tag!");
+	    System.err.println("HammingDLL: Malformed frame!");
+	    recordFrame(Math.max(dataLength, 0), false);
 	    return null;
 
 	}
 
-	// Loop through the frame, extracting the bytes.  Look ahead to find the
-	// stop tag (making sure it is not escaped), because the byte before
-	// that is the parity byte.
-	int originalIndex = 0;
-	while ((incomingBuffer[frameIndex + 1] != _stopTag) ||
-	       (incomingBuffer[frameIndex] == _escapeTag)) {
+	// Decode the data, correcting what errors it can (perhaps later, along
+	// with other frames).
+	return decodeFrame(dataLength);
+
+    } // processFrame
+    // =========================================================================
 
-	    // If the next original byte is escape-tagged, then skip
-	    // the tag so that only the real data is extracted.
-	    if (incomingBuffer[frameIndex] == _escapeTag) {
 
-		frameIndex++;
 
-	    }
+    // =========================================================================
+    /**
+     * Decode one frame's code bytes.  This may be called from several
+     * threads at once.
+     *
+     * @param code A buffer holding the frame's code bytes.
+     * @param begin The starting index of the code bytes.
+     * @param end The ending index of the code bytes.
+     * @param data The buffer into which to decode the data.
+     * @param index The index in <tt>data</tt> at which to begin.
+     * @return The number of bit errors corrected, or
+     *         <tt>HammingCode.UNCORRECTABLE</tt>.
+     **/
+    protected int decodeFrame (byte[] code, int begin, int end,
+			       byte[] data, int index) {
 
-	    // Copy the original byte.
-	    originalData[originalIndex++] = incomingBuffer[frameIndex++];
+	return _code.decode(code, begin, end, data, index);
 
-	}
+    } // decodeFrame (byte[] code, int begin, int end, byte[] data, ...)
+    // =========================================================================
 
-	// Allocate a space that is only as large as the original
-	// message and then copy the original data into it.
-	byte[] finalData = new byte[originalIndex];
-	for (int i = 0; i < originalIndex; i++) {
-	    finalData[i] = originalData[i];
-	}
 
-	// Calculate the parity of the extracted data and compare it to the
-	// received parity bit.  If there's a mismatch, return null.
-	byte parity = calculateParity(originalData, 0, originalIndex);
-	if (parity != incomingBuffer[frameIndex]) {
 
-	    System.err.print("ParityDLL message: ");
+    // =========================================================================
+    /**
+     * Take in a frame's decoded data.
+     *
+     * @param finalData The decoded data.
+     * @param corrected The number of bit errors corrected in it, or
+     *                  <tt>HammingCode.UNCORRECTABLE</tt>.
+     * @return The data to deliver; <tt>null</tt> if there were more errors
+     *         than could be corrected.
+     **/
+    protected byte[] acceptFrame (byte[] finalData, int corrected) {
+
+	// If there were more errors than could be corrected, return null.
+	if (corrected == HammingCode.UNCORRECTABLE) {
+
+	    System.err.print("HammingDLL message: ");
 	    for (int i = 0; i < finalData.length; i++) {
 		System.err.print((char)finalData[i]);
 	    }
-	    System.err.println(" <= Parity mismatch!");
-	    finalData = null;
+	    System.err.println(" <= Uncorrectable error!");
+	    return null;
 
 	}
+	correctedErrors += corrected;
 
 	return finalData;
 
-    } // processFrame
+    } // acceptFrame (byte[] finalData, int corrected)
     // =========================================================================
 
 
@@ -301,28 +348,24 @@ public class HammingDataLinkLayer extends DataLinkLayer {
     // DATA MEMBERS
 
     /**
-     * The tag that marks the beginning of a frame.
-     **/
-    final byte _startTag = (byte)'{';
-
-    /**
-     * The tag that marks the end of a frame.
+     * The number of data (not metadata) bytes in a frame, unless a frame size
+     * controller is given.
      **/
-    final byte _stopTag = (byte)'}';
+    static final int _defaultFrameSize = 8;
 
     /**
-     * The tag that marks the following byte as data (and not metadata).
+     * The Hamming code with which each frame is protected.
      **/
-    final byte _escapeTag = (byte)'\\';
+    final HammingCode _code;
 
     /**
-     * The maximum number of data (not metadata) bytes in a frame.
+     * The number of bit errors corrected in received frames so far.
      **/
-    final int _maxFrameSize = 8;
+    int correctedErrors = 0;
     // =========================================================================
 
 
 
 // =============================================================================
-} // class ParityDataLinkLayer
+} // class HammingDataLinkLayer
 // =============================================================================
@@ -0,0 +1,187 @@
+// ===================================================================
+// InterleavedPhysicalLayer
+// ===================================================================
+
+
+
+// ===================================================================
+// A physical layer that passes every byte through a block
+// interleaver on its way to the medium, and back through the
+// matching deinterleaver on its way up to the data link layer.
+//
+// The interleaver works on whole blocks, so the bytes sent are
+// gathered into a block across sends, frame after frame, and each
+// block goes to the medium as soon as it is full.  A block that is
+// only partly full is padded out with idle bytes and sent only when
+// the sender flushes this layer -- as a data link layer does before
+// it waits for a reply, and a simulation does once it has sent
+// everything -- or, when the traffic is carried in virtual time, as
+// soon as the sender falls idle.  Both ends count blocks from the
+// first byte, so the receiver stays in step with the sender.  The
+// idle byte is 0, which every framing discards between frames.
+//
+// Until its block is sent, a frame does not reach the medium at all;
+// a convolutional interleaver would hold frames back in much the same
+// way, but for as long as its deepest branch.
+class InterleavedPhysicalLayer extends PhysicalLayer {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.
+    public InterleavedPhysicalLayer (Medium medium,
+				     BlockInterleaver interleaver) {
+
+	super(medium);
+
+	// Sanity check
+	if (interleaver == null) {
+
+	    throw new RuntimeException("No interleaver provided");
+
+	}
+
+	this.interleaver = interleaver;
+	outgoingBlock = new byte[interleaver.blockLength()];
+	interleavedBlock = new byte[interleaver.blockLength()];
+	bytesStaged = 0;
+	incomingBlock = new byte[interleaver.blockLength()];
+	deinterleavedBlock = new byte[interleaver.blockLength()];
+	bytesReceived = 0;
+
+    } // InterleavedPhysicalLayer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Gather the bytes into the outgoing block, sending each block as
+    // it fills.  If the traffic is carried in virtual time, send any
+    // block left partly full once the sender falls idle.
+    void send (byte[] outgoingBuffer, int offset, int length) {
+
+	while (length > 0) {
+
+	    int count = Math.min(length, outgoingBlock.length - bytesStaged);
+	    System.arraycopy(outgoingBuffer, offset,
+			     outgoingBlock, bytesStaged, count);
+	    bytesStaged += count;
+	    offset += count;
+	    length -= count;
+	    if (bytesStaged == outgoingBlock.length) {
+
+		sendBlock();
+
+	    }
+
+	}
+
+	// An event due now runs only once whatever is sending now
+	// returns to the scheduler.
+	EventScheduler scheduler = medium.scheduler;
+	if ((bytesStaged > 0) && (scheduler != null) && !flushScheduled) {
+
+	    flushScheduled = true;
+	    scheduler.schedule(0, flusher);
+
+	}
+
+    } // send
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Pad out the outgoing block, if any bytes wait in it, and send
+    // it.
+    public void flush () {
+
+	flushScheduled = false;
+	if (bytesStaged > 0) {
+
+	    java.util.Arrays.fill(outgoingBlock, bytesStaged,
+				  outgoingBlock.length, (byte)0);
+	    sendBlock();
+
+	}
+
+    } // flush
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Interleave the outgoing block and send it.
+    private void sendBlock () {
+
+	interleaver.interleave(outgoingBlock, 0, interleavedBlock, 0);
+	bytesStaged = 0;
+	super.send(interleavedBlock, 0, interleavedBlock.length);
+
+    } // sendBlock
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Gather received bytes into a block, and once it is whole, hand
+    // its deinterleaved bytes up to the client.
+    void deliver (byte data) {
+
+	incomingBlock[bytesReceived++] = data;
+	if (bytesReceived == incomingBlock.length) {
+
+	    interleaver.deinterleave(incomingBlock, 0, deinterleavedBlock, 0);
+	    bytesReceived = 0;
+	    for (int i = 0; i < deinterleavedBlock.length; i++) {
+
+		super.deliver(deinterleavedBlock[i]);
+
+	    }
+
+	}
+
+    } // deliver
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The interleaver applied to every block.
+    final BlockInterleaver interleaver;
+
+    // The block being gathered to send, the number of its bytes
+    // gathered so far, and the space into which it is interleaved;
+    // whether a flush is due once the sender falls idle, and the
+    // event that does it.
+    final byte[] outgoingBlock;
+    int bytesStaged;
+    final byte[] interleavedBlock;
+    boolean flushScheduled;
+    final Runnable flusher = this::flush;
+
+    // The block being received, the number of its bytes received so
+    // far, and the space into which it is deinterleaved.
+    final byte[] incomingBlock;
+    int bytesReceived;
+    final byte[] deinterleavedBlock;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class InterleavedPhysicalLayer
+// ===================================================================
@@ -0,0 +1,123 @@
+// ===================================================================
+// LengthDeframer
+// ===================================================================
+
+
+
+// ===================================================================
+// A deframer for LengthFraming: a sync byte, a two-byte length (most
+// significant byte first), and then exactly that many bytes, which
+// need no decoding.
+//
+// Between frames the deframer hunts for the sync byte.  A length too
+// large for any frame means that the sync byte was a false one (or
+// the length was damaged), so the hunt resumes.  A length damaged to
+// a plausible value can only be caught by the frame's check.
+class LengthDeframer extends Deframer {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.
+    public LengthDeframer (byte syncByte, int maxLength, FrameCheck check) {
+
+	super(maxLength, check);
+	this.syncByte = syncByte;
+	state = hunting;
+
+    } // LengthDeframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public boolean push (byte data) {
+
+	switch (state) {
+
+	case hunting:
+	    if (data == syncByte) {
+
+		state = lengthHigh;
+
+	    } else {
+
+		discardedBytes++;
+
+	    }
+	    return false;
+
+	case lengthHigh:
+	    remaining = (data & 0xff) << 8;
+	    state = lengthLow;
+	    return false;
+
+	case lengthLow:
+	    remaining |= (data & 0xff);
+	    if (remaining > frame.length) {
+
+		discardedBytes += 3;
+		abandonedFrames++;
+		state = hunting;
+		return false;
+
+	    }
+	    begin();
+	    state = body;
+	    break;
+
+	default:
+	    append(data);
+	    remaining--;
+	    break;
+
+	}
+
+	// The frame is complete once its last byte has arrived.
+	if (remaining == 0) {
+
+	    state = hunting;
+	    return true;
+
+	}
+	return false;
+
+    } // push
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The byte that begins each frame.
+    final byte syncByte;
+
+    // The states of the deframer: hunting for a sync byte; reading
+    // the two bytes of the length; and reading the frame's body.
+    static final int hunting = 0;
+    static final int lengthHigh = 1;
+    static final int lengthLow = 2;
+    static final int body = 3;
+    int state;
+
+    // The number of bytes of the frame's body yet to arrive.
+    int remaining;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class LengthDeframer
+// ===================================================================
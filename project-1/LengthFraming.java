@@ -0,0 +1,125 @@
+// ===================================================================
+// LengthFraming
+// ===================================================================
+
+
+
+// ===================================================================
+// Framing by length: a sync byte, then the length of the content in
+// two bytes (most significant first), then the content as it is.
+// Every frame costs exactly three bytes, whatever its content, and a
+// frame may hold at most 65535 bytes.
+class LengthFraming extends Framing {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int maxFrameLength (int contentLength) {
+
+	return contentLength + headerLength;
+
+    } // maxFrameLength
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int begin (byte[] frame) {
+
+	// Begin with the sync byte, leaving space for the length.
+	frame[0] = syncByte;
+	return headerLength;
+
+    } // begin
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int put (byte data, byte[] frame, int index) {
+
+	frame[index++] = data;
+	return index;
+
+    } // put
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int put (byte[] data, int begin, int end,
+		    byte[] frame, int index) {
+
+	System.arraycopy(data, begin, frame, index, end - begin);
+	return index + (end - begin);
+
+    } // put
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int end (byte[] frame, int index) {
+
+	// Fill in the length.
+	int length = index - headerLength;
+	if (length > maxLength) {
+
+	    throw new RuntimeException("Frame too long: " + length);
+
+	}
+	frame[1] = (byte)(length >>> 8);
+	frame[2] = (byte)length;
+	return index;
+
+    } // end
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public Framing copy () {
+
+	return new LengthFraming();
+
+    } // copy
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public Deframer createDeframer (int maxLength, FrameCheck check) {
+
+	return new LengthDeframer(syncByte, maxLength, check);
+
+    } // createDeframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The byte that begins each frame, the number of bytes before the
+    // content, and the most content a frame can hold.
+    static final byte syncByte = (byte)0x7e;
+    static final int headerLength = 3;
+    static final int maxLength = 0xffff;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class LengthFraming
+// ===================================================================
@@ -20,6 +20,32 @@ class LowNoiseMedium extends Medium {
 
 
 
+    // ===============================================================
+    // The constructor.  Flip bits with the default probability, using
+    // an arbitrary seed.
+    public LowNoiseMedium () {
+
+	this(defaultErrorProbability, System.nanoTime());
+
+    } // LowNoiseMedium
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Flip bits with the given probability, drawing
+    // the errors from a stream seeded with the given value so that a
+    // run can be repeated exactly.
+    public LowNoiseMedium (double errorProbability, long seed) {
+
+	this.errorProbability = errorProbability;
+	noise = new GeometricNoise(errorProbability, seed);
+
+    } // LowNoiseMedium
+    // ===============================================================
+
+
+
     // ===============================================================
     // Register one of the two allowed clients as connected to an end
     // of the medium.
@@ -67,16 +93,72 @@ class LowNoiseMedium extends Medium {
 
 	}
 
-	// With low probability, flip this bit.
-	if (Math.random() < errorProbability) {
+	// With low probability, flip this bit.  The noise source skips
+	// ahead over whole runs of unflipped bits, so it does not draw a
+	// random number for every bit.
+	if (noise.nextBitFlips()) {
 
 	    bit = !bit;
 
 	}
 
-	// Deliver the bit to the receiver by performing an upcall to
-	// it.
-	receiver.receive(bit);
+	// Deliver the bit to the receiver, by an upcall to it or, on a
+	// scheduled medium, once it arrives.
+	deliver(sender, receiver, bit);
+
+    } // send
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Allow a client to send a block of bytes to the other client.
+    public void send (PhysicalLayer sender,
+		      byte[] block,
+		      int offset,
+		      int length) {
+
+	// Determine who the receiver is.  Send only if the sender is
+	// a known client.
+	PhysicalLayer receiver = null;
+	if (client1 == sender) {
+
+	    receiver = client2;
+
+	} else if (client2 == sender) {
+
+	    receiver = client1;
+
+	} else {
+
+	    throw new RuntimeException();
+
+	}
+
+	// Copy the block (the sender's buffer is not ours to change),
+	// and then XOR the errors for all of its bits onto the copy.  A
+	// block sent while another is still being delivered (a reply
+	// sent from within the upcall, say) gets a buffer of its own, so
+	// that it cannot overwrite the one being read.
+	byte[] copy = scratch;
+	if (delivering || (copy == null) || (copy.length < length)) {
+
+	    copy = new byte[length];
+	    if (!delivering) {
+
+		scratch = copy;
+
+	    }
+
+	}
+	System.arraycopy(block, offset, copy, 0, length);
+	noise.flipBits(copy, 0, (long)length * 8);
+
+	// Deliver the corrupted block to the receiver.
+	boolean wasDelivering = delivering;
+	delivering = true;
+	deliver(sender, receiver, copy, 0, length);
+	delivering = wasDelivering;
 
     } // send
     // ===============================================================
@@ -93,8 +175,20 @@ class LowNoiseMedium extends Medium {
     PhysicalLayer client1;
     PhysicalLayer client2;
 
-    // The probablity that a bit will flip.
-    final double errorProbability = 0.01;
+    // The probablity that a bit will flip, by default and for this
+    // medium.
+    static final double defaultErrorProbability = 0.01;
+    final double errorProbability;
+
+    // The source of the bit errors.
+    final GeometricNoise noise;
+
+    // A buffer, reused from block to block, that holds the corrupted
+    // copy of each block sent.
+    byte[] scratch;
+
+    // Whether a block is currently being delivered.
+    boolean delivering;
     // ===============================================================
 
 
@@ -33,6 +33,232 @@ abstract class Medium {
 
 
 
+    // ===============================================================
+    // Send a block of bytes from one physical layer to others.  The
+    // bits of each byte go least significant first, just as the
+    // physical layer would send them one at a time.  This default
+    // does exactly that, so that a medium that only knows how to
+    // carry single bits still works; media that can carry (and
+    // corrupt) whole blocks at once should override it.
+    public void send (PhysicalLayer sender,
+		      byte[] block,
+		      int offset,
+		      int length) {
+
+	for (int i = offset; i < offset + length; i++) {
+
+	    int currentByte = block[i];
+	    for (int j = 0; j < 8; j++) {
+
+		send(sender, ((currentByte >>> j) & 0x1) == 0x1);
+
+	    }
+
+	}
+
+    } // send
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Carry traffic in virtual time, as events of the given scheduler,
+    // rather than delivering it at once.  Each sender's transmitter
+    // puts the bits it is given on the wire one after another at the
+    // given bandwidth, and each bit then takes the given delay (in
+    // picoseconds) to reach the other end.
+    public void schedule (EventScheduler scheduler,
+			  long bitsPerSecond,
+			  long delay) {
+
+	// Sanity check
+	if ((bitsPerSecond <= 0) || (delay < 0)) {
+
+	    throw new RuntimeException("Bad bandwidth " + bitsPerSecond +
+				       " or delay " + delay);
+
+	}
+
+	this.scheduler = scheduler;
+	this.bitsPerSecond = bitsPerSecond;
+	this.delay = delay;
+
+    } // schedule
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the virtual time that a transmitter takes to put the
+    // given number of bits on the wire.
+    public long transmissionTime (long bits) {
+
+	return Math.round((double)bits * EventScheduler.picosPerSecond /
+			  bitsPerSecond);
+
+    } // transmissionTime
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Deliver a bit from a sender to a receiver: at once, or, if the
+    // medium carries traffic in virtual time, once it arrives.
+    protected void deliver (PhysicalLayer sender,
+			    PhysicalLayer receiver,
+			    boolean bit) {
+
+	bitsCarried++;
+	if (scheduler == null) {
+
+	    receiver.receive(bit);
+	    return;
+
+	}
+
+	Arrival arrival = arrival(receiver, 1);
+	arrival.bit = bit;
+	arrival.length = -1;
+	scheduler.scheduleAt(arrivalTime(sender, 1), arrival);
+
+    } // deliver
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Deliver the block block[offset .. offset + length) from a
+    // sender to a receiver: at once, or, if the medium carries
+    // traffic in virtual time, once its last bit arrives.  The block
+    // is then copied, so that the caller may reuse it.
+    protected void deliver (PhysicalLayer sender,
+			    PhysicalLayer receiver,
+			    byte[] block,
+			    int offset,
+			    int length) {
+
+	bitsCarried += (long)length * 8;
+	if (scheduler == null) {
+
+	    receiver.receive(block, offset, length);
+	    return;
+
+	}
+
+	Arrival arrival = arrival(receiver, length);
+	System.arraycopy(block, offset, arrival.block, 0, length);
+	arrival.length = length;
+	scheduler.scheduleAt(arrivalTime(sender, (long)length * 8), arrival);
+
+    } // deliver
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Queue the given number of bits on a sender's transmitter, and
+    // return the time at which the last of them reaches the far end.
+    private long arrivalTime (PhysicalLayer sender, long bits) {
+
+	long start = Math.max(scheduler.now(), sender.transmitterFreeAt);
+	sender.transmitterFreeAt = start + transmissionTime(bits);
+	return sender.transmitterFreeAt + delay;
+
+    } // arrivalTime
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take an arrival event, reusing one that has already happened if
+    // possible, with room for at least the given number of bytes.
+    private Arrival arrival (PhysicalLayer receiver, int length) {
+
+	Arrival arrival = (freeArrivals.isEmpty() ?
+			   new Arrival() :
+			   freeArrivals.pop());
+	if (arrival.block.length < length) {
+
+	    arrival.block = new byte[length];
+
+	}
+	arrival.receiver = receiver;
+	return arrival;
+
+    } // arrival
+    // ===============================================================
+
+
+
+    // ===================================================================
+    // The arrival of a bit or block at a receiver.  Once delivered, it
+    // is kept for reuse by a later arrival.
+    private class Arrival implements Runnable {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	public void run () {
+
+	    if (length < 0) {
+
+		receiver.receive(bit);
+
+	    } else {
+
+		receiver.receive(block, 0, length);
+
+	    }
+	    receiver = null;
+	    freeArrivals.push(this);
+
+	} // run
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The layer to deliver to, and the bit, or the first length
+	// bytes of block, to deliver; a length of -1 marks a bit.
+	PhysicalLayer receiver;
+	boolean bit;
+	byte[] block = new byte[0];
+	int length;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Arrival
+    // ===================================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The scheduler that carries traffic in virtual time, or null if
+    // traffic is delivered at once; the bandwidth of each direction;
+    // and the delay of the wire.
+    EventScheduler scheduler;
+    long bitsPerSecond;
+    long delay;
+
+    // The number of bits delivered so far, in either direction.
+    long bitsCarried;
+
+    // Arrivals already delivered, kept for reuse.
+    final java.util.ArrayDeque<Arrival> freeArrivals =
+	new java.util.ArrayDeque<Arrival>();
+    // ===============================================================
+
+
+
 // ===================================================================
 } // class Medium
 // ===================================================================
@@ -48,8 +48,7 @@ class NetworkLayer {
 	   for (int i = 0; i < messages.length; i++) {
 
 	       byte[] data = messages[i].getBytes();
-	       System.out.print("Network.send() message:    ");
-	       System.out.println(messages[i]);
+	       System.out.println("Network.send() message:    " + messages[i]);
 	       dataLinkLayer.send(data);
 
     	}
@@ -61,13 +60,15 @@ class NetworkLayer {
 
     // ===============================================================
     // Allow the data link layer to deliver an array of bytes to this
-    // layer.
+    // layer.  The array is the data link layer's to reuse once this
+    // returns, so anything kept must be copied out.
     void receive (byte[] data) {
 
 	   String message = new String(data);
 
-	   System.out.print("Network.receive() message: ");
-	   System.out.println(message);
+	   // Print the whole line at once, since a pipelined link may
+	   // receive while it sends.
+	   System.out.println("Network.receive() message: " + message);
 
     } // receive
     // ===============================================================
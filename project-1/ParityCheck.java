@@ -0,0 +1,87 @@
+// ===================================================================
+// ParityCheck
+// ===================================================================
+
+
+
+// ===================================================================
+// A single parity bit, carried in a byte of its own: 1 if the data
+// holds an odd number of 1 bits, and 0 otherwise.
+class ParityCheck implements FrameCheck {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int size () {
+
+	return 1;
+
+    } // size
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public void compute (byte[] data, int begin, int end,
+			 byte[] buffer, int index) {
+
+	buffer[index] = (byte)BitKernels.parity(data, begin, end);
+
+    } // compute
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public void reset () {
+
+	ones = 0;
+
+    } // reset
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public void update (byte data) {
+
+	ones += Integer.bitCount(data & 0xff);
+
+    } // update
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public boolean matches (byte[] buffer, int index) {
+
+	return buffer[index] == (byte)(ones % 2);
+
+    } // matches
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of 1 bits taken in so far.
+    int ones;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class ParityCheck
+// ===================================================================
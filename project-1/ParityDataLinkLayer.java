@@ -14,17 +14,66 @@ public class ParityDataLinkLayer extends DataLinkLayer {
 
     // =========================================================================
     /**
-     * The constructor.  Make a new parity-checking data link layer.
+     * The constructor.  Make a new parity-checking data link layer that frames
+     * the data with start/stop tags.
      *
      * @param physicalLayer The physical layer through which this data link
      * layer should communicate.
      **/
     public ParityDataLinkLayer (PhysicalLayer physicalLayer) {
 
+	this(physicalLayer, new StuffedFraming());
+
+    } // ParityDataLinkLayer (PhysicalLayer physicalLayer)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new parity-checking data link layer.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     **/
+    public ParityDataLinkLayer (PhysicalLayer physicalLayer, Framing framing) {
+
+	this(physicalLayer, framing, new FrameSizeController(_defaultFrameSize));
+
+    } // ParityDataLinkLayer (PhysicalLayer physicalLayer, Framing framing)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new parity-checking data link layer whose frame
+     * size is chosen by the given controller.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     * @param sizer The controller that chooses the number of data bytes in
+     *              each frame, and that is told whether each received frame
+     *              passed its check.
+     **/
+    public ParityDataLinkLayer (PhysicalLayer physicalLayer,
+				Framing framing,
+				FrameSizeController sizer) {
+
 	// Initialize the layer.
 	initialize(physicalLayer);
 
-    } // ParityDataLinkLayer
+	// Frame outgoing data, and decode incoming frames (checking their
+	// parity) as they arrive.
+	this.framing = framing;
+	this.sizer = sizer;
+	encoder = createEncoder(framing);
+	deframer = framing.createDeframer(sizer.maxFrameSize() + 1,
+					  new ParityCheck());
+
+    } // ParityDataLinkLayer (PhysicalLayer, Framing, FrameSizeController)
     // =========================================================================
 
 
@@ -32,28 +81,16 @@ public class ParityDataLinkLayer extends DataLinkLayer {
     // =========================================================================
     /**
      * Accept a buffer of data to send.  Send it as divided into multiple frames
-     * of a fixed, maximum size.  Add a parity bit for error checking to each
-     * frame.  Call the physical layer to actually send each frame.
+     * of the size that the frame size controller chooses.  Add a parity bit
+     * for error checking to each frame.  Call the physical layer to actually
+     * send each frame.  A large buffer may be encoded in parallel (see {@link
+     * #parallelize}).
      *
      * @param data An array of bytes to be framed and transmitted.
      **/
     public void send (byte[] data) {
 
-	// Calculate the number of frames needed to transmit this data.
-	int numberFrames = (int)Math.ceil((double)data.length / _maxFrameSize);
-
-	// Construct each frame and send it.
-	for (int frameNumber = 0; frameNumber < numberFrames; frameNumber++) {
-
-	    int beginIndex = _maxFrameSize * frameNumber;
-	    int endIndex = _maxFrameSize * (frameNumber + 1);
-	    if (endIndex > data.length) {
-		endIndex = data.length;
-	    }
-	    byte[] frame = constructFrame(data, beginIndex, endIndex);
-	    physicalLayer.send(frame);
-
-	}
+	sendFrames(data);
 
     } // send (byte[] data)
     // =========================================================================
@@ -62,117 +99,107 @@ public class ParityDataLinkLayer extends DataLinkLayer {
 
     // =========================================================================
     /**
-     * Create a single frame to be transmitted.
+     * Create an encoder for this layer's frames.
      *
-     * @param data The original buffer of data from which to extract a frame's
-     *             worth.
-     * @param begin The starting index from the original data buffer.
-     * @param end The ending index from the original frame buffer.
-     * @return A byte array that contains an entirely constructed frame.
+     * @param framing The framing with which the encoder marks each frame.
+     * @return An encoder of frames carrying a parity bit.
      **/
-    private byte[] constructFrame (byte[] data, int begin, int end) {
+    protected FrameEncoder createEncoder (Framing framing) {
 
-	// Allocate an array of bytes large enough to hold the largest possible
-	// frame (tags and parity byte included).
-	byte[] framedData = new byte[(_maxFrameSize * 2) + 3];
+	return new ParityEncoder(framing);
+
+    } // createEncoder (Framing framing)
+    // =========================================================================
 
-	// Begin with the start tag.
-	int frameIndex = 0;
-	framedData[frameIndex++] = _startTag;
 
-	// Add each byte of original data.
-	for (int dataIndex = begin; dataIndex < end; dataIndex++) {
 
-	    // If the current data byte is itself a metadata tag, then preceed
-	    // it with an escape tag.
-	    byte currentByte = data[dataIndex];
-	    if ((currentByte == _startTag) ||
-		(currentByte == _stopTag) ||
-		(currentByte == _escapeTag)) {
+    // =========================================================================
+    /**
+     * An encoder of frames that carry their data followed by its parity.
+     **/
+    private class ParityEncoder extends FrameEncoder {
 
-		framedData[frameIndex++] = _escapeTag;
 
-	    }
 
-	    // Add the data byte itself.
-	    framedData[frameIndex++] = currentByte;
+	// =====================================================================
+	/**
+	 * The constructor.
+	 *
+	 * @param framing The framing with which to mark each frame.
+	 **/
+	ParityEncoder (Framing framing) {
 
-	}
+	    super(framing);
 
-	// Calculate the parity bit (which is placed in its own byte).
-	framedData[frameIndex++] = calculateParity(data, begin, end);
+	} // ParityEncoder (Framing framing)
+	// =====================================================================
 
-	// End with a stop tag.
-	framedData[frameIndex++] = _stopTag;
 
-	// Copy the complete frame into a buffer of the exact desired
-	// size.
-	byte[] finalFrame = new byte[frameIndex];
-	for (int i = 0; i < frameIndex; i++) {
-	    finalFrame[i] = framedData[i];
-	}
 
-	return finalFrame;
+	// =====================================================================
+	public int maxFrameLength (int dataLength) {
 
-    } // constructFrame (byte[] data, int begin, int end)
-    // =========================================================================
+	    // Leave room for the parity byte.
+	    return framing.maxFrameLength(dataLength + 1);
 
+	} // maxFrameLength (int dataLength)
+	// =====================================================================
 
 
-    // =========================================================================
-    /**
-     * Calculate the parity of the sequence of bytes.
-     *
-     * @param data A buffer of bytes.
-     * @param begin The starting index of the bytes to examine.
-     * @param end The ending index of the bytes to examine.
-     * @return The parity (0 or 1) for this group of bytes.
-     **/
-    private byte calculateParity (byte[] data, int begin, int end) {
 
-	// Create a bit vector from the bytes specified.
-	BitVector bits = new BitVector(data, begin, end);
+	// =====================================================================
+	/**
+	 * Create a single frame to be transmitted, in the given buffer.
+	 *
+	 * @param data The original buffer of data from which to extract a
+	 *             frame's worth.
+	 * @param begin The starting index from the original data buffer.
+	 * @param end The ending index from the original frame buffer.
+	 * @param framedData A buffer large enough to hold the largest possible
+	 *                   frame (framing and parity byte included).
+	 * @return The length of the frame constructed at the start of
+	 *         <tt>framedData</tt>.
+	 **/
+	public int encode (byte[] data, int begin, int end, byte[] framedData) {
 
-	// Iterate over the bit vector, counting the bits whose value is 1.
-	int ones = 0;
-	for (int i = 0; i < bits.length(); i++) {
+	    // Begin the frame, and add each byte of original data.
+	    int frameIndex = framing.begin(framedData);
+	    frameIndex = framing.put(data, begin, end, framedData, frameIndex);
 
-	    ones += (bits.getBit(i) ? 1 : 0);
+	    // Calculate the parity bit (which is placed in its own byte).
+	    frameIndex = framing.put(calculateParity(data, begin, end),
+				     framedData, frameIndex);
 
-	}
+	    // End the frame.
+	    return framing.end(framedData, frameIndex);
 
-	// Return the parity.
-	return (byte)(ones % 2);
+	} // encode (byte[] data, int begin, int end, byte[] framedData)
+	// =====================================================================
 
-    } // calculateParity (byte[] data, int begin, int end)
-    // =========================================================================
 
 
-    // =========================================================================
-    /**
-     * Determine whether the buffered data forms a complete frame.
-     *
-     * @return Whether a complete buffer has arrived.
-     **/
-    protected boolean receivedCompleteFrame () {
+	// =====================================================================
+	/**
+	 * Calculate the parity of the sequence of bytes.
+	 *
+	 * @param data A buffer of bytes.
+	 * @param begin The starting index of the bytes to examine.
+	 * @param end The ending index of the bytes to examine.
+	 * @return The parity (0 or 1) for this group of bytes.
+	 **/
+	private byte calculateParity (byte[] data, int begin, int end) {
 
-	// Any frame with less than two bytes cannot be complete, since even the
-	// empty frame contains a start and a stop tag.
-	if (bufferIndex < 2) {
+	    return (byte)BitKernels.parity(data, begin, end);
 
-	    return false;
+	} // calculateParity (byte[] data, int begin, int end)
+	// =====================================================================
 
-	}
 
-	// A frame is complete iff the byte received is an non-escaped stop tag.
-	return ((incomingBuffer[bufferIndex - 1] == _stopTag) &&
-		(incomingBuffer[bufferIndex - 2] != _escapeTag));
 
-    } // receivedCompleteFrame
+    } // class ParityEncoder
     // =========================================================================
 
 
-
     // =========================================================================
     /**
      *  Remove the framing metadata and return the original data.
@@ -182,50 +209,25 @@ public class ParityDataLinkLayer extends DataLinkLayer {
      **/
     protected byte[] processFrame () {
 
-	// Allocate sufficient space to hold the original data, which
-	// does not need space for the start/stop tags.
-	byte[] originalData = new byte[bufferIndex - 3];
-
-	// Check the start tag.
-	int frameIndex = 0;
-	if (incomingBuffer[frameIndex++] != _startTag) {
+	// The deframer has already extracted the original data and
+	// calculated its parity as the bytes arrived.
+	if (!deframer.wellFormed()) {
 
-	    System.err.println("ParityDLL: Missing start tag!");
+	    System.err.println("ParityDLL: Malformed frame!");
+	    recordFrame(Math.max(deframer.dataLength(), 0), false);
 	    return null;
 
 	}
 
-	// Loop through the frame, extracting the bytes.  Look ahead to find the
-	// stop tag (making sure it is not escaped), because the byte before
-	// that is the parity byte.
-	int originalIndex = 0;
-	while ((incomingBuffer[frameIndex + 1] != _stopTag) ||
-	       (incomingBuffer[frameIndex] == _escapeTag)) {
+	// Copy the original data into a space that is only as large as
+	// the original message.
+	byte[] finalData = pool.exact(deframer.dataLength());
+	deframer.copyData(finalData);
+	recordFrame(finalData.length, deframer.checkPassed());
 
-	    // If the next original byte is escape-tagged, then skip
-	    // the tag so that only the real data is extracted.
-	    if (incomingBuffer[frameIndex] == _escapeTag) {
-
-		frameIndex++;
-
-	    }
-
-	    // Copy the original byte.
-	    originalData[originalIndex++] = incomingBuffer[frameIndex++];
-
-	}
-
-	// Allocate a space that is only as large as the original
-	// message and then copy the original data into it.
-	byte[] finalData = new byte[originalIndex];
-	for (int i = 0; i < originalIndex; i++) {
-	    finalData[i] = originalData[i];
-	}
-
-	// Calculate the parity of the extracted data and compare it to the
-	// received parity bit.  If there's a mismatch, return null.
-	byte parity = calculateParity(originalData, 0, originalIndex);
-	if (parity != incomingBuffer[frameIndex]) {
+	// Compare the parity of the extracted data to the received parity.
+	// If there's a mismatch, return null.
+	if (!deframer.checkPassed()) {
 
 	    System.err.print("ParityDLL message: ");
 	    for (int i = 0; i < finalData.length; i++) {
@@ -247,24 +249,10 @@ public class ParityDataLinkLayer extends DataLinkLayer {
     // DATA MEMBERS
 
     /**
-     * The tag that marks the beginning of a frame.
-     **/
-    final byte _startTag = (byte)'{';
-
-    /**
-     * The tag that marks the end of a frame.
-     **/
-    final byte _stopTag = (byte)'}';
-
-    /**
-     * The tag that marks the following byte as data (and not metadata).
-     **/
-    final byte _escapeTag = (byte)'\\';
-
-    /**
-     * The maximum number of data (not metadata) bytes in a frame.
+     * The number of data (not metadata) bytes in a frame, unless a frame size
+     * controller is given.
      **/
-    final int _maxFrameSize = 8;
+    static final int _defaultFrameSize = 8;
     // =========================================================================
 
 
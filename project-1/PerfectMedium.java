@@ -67,9 +67,42 @@ class PerfectMedium extends Medium {
 
 	}
 
-	// Deliver the bit to the receiver by performing an upcall to
-	// it.
-	receiver.receive(bit);
+	// Deliver the bit to the receiver, by an upcall to it or, on a
+	// scheduled medium, once it arrives.
+	deliver(sender, receiver, bit);
+
+    } // send
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Allow a client to send a block of bytes to the other client.
+    public void send (PhysicalLayer sender,
+		      byte[] block,
+		      int offset,
+		      int length) {
+
+	// Determine who the receiver is.  Send only if the sender is
+	// a known client.
+	PhysicalLayer receiver = null;
+	if (client1 == sender) {
+
+	    receiver = client2;
+
+	} else if (client2 == sender) {
+
+	    receiver = client1;
+
+	} else {
+
+	    throw new RuntimeException();
+
+	}
+
+	// Nothing can go wrong on this wire, so the block is delivered
+	// as it is.
+	deliver(sender, receiver, block, offset, length);
 
     } // send
     // ===============================================================
@@ -7,8 +7,8 @@
 
 
 // ===================================================================
-// A physical layer transmits an arbitrary string of bytes.  All
-// objects of this class share a single medium.
+// A physical layer transmits an arbitrary string of bytes over the
+// medium to which it is attached.
 class PhysicalLayer {
 // ===================================================================
 
@@ -23,23 +23,18 @@ class PhysicalLayer {
     // ===============================================================
     public PhysicalLayer (Medium medium) {
 
-	// Attempt to register with the medium as a client.
-	medium.register(this);
-
-	// Keep a pointer to the medium (if one isn't already held
-	// thanks to another PhysicalLayer object).
-	if (PhysicalLayer.medium == null) {
+	// Sanity check
+	if (medium == null) {
 
-	    PhysicalLayer.medium = medium;
+	    throw new RuntimeException("No medium provided");
 
 	}
 
-	// Sanity check
-	if (PhysicalLayer.medium != medium) {
-
-	    throw new RuntimeException();
+	// Attempt to register with the medium as a client.
+	medium.register(this);
 
-	}
+	// Keep a pointer to the medium.
+	this.medium = medium;
 
 	// Initialize the incoming buffer.
 	bitsReceived = 0;
@@ -73,27 +68,48 @@ class PhysicalLayer {
     // Allow a client to send a string of bytes on the medium.
     void send (byte[] outgoingBuffer) {
 
-	// Send each byte.
-	for (int i = 0; i < outgoingBuffer.length; i++) {
+	send(outgoingBuffer, 0, outgoingBuffer.length);
 
-	    // Send each bit from the current byte.
-	    int currentByte = outgoingBuffer[i];
+    } // send
+    // ===============================================================
 
-	    for (int j = 0; j < 8; j++) {
 
-		byte value = (byte)((currentByte >>> j) & 0x1);
-		boolean bit = (value == 0x1);
-		medium.send(this, bit);
 
-	    }
+    // ===============================================================
+    // Allow a client to send the bytes outgoingBuffer[offset ..
+    // offset + length) on the medium.  The buffer remains the
+    // client's, to reuse once this returns.
+    void send (byte[] outgoingBuffer, int offset, int length) {
+
+	// If this layer is pipelined, leave the bytes for the thread
+	// that drives the medium.
+	if (outgoing != null) {
+
+	    outgoing.write(outgoingBuffer, offset, length);
+	    return;
 
 	}
 
+	// Hand the bytes to the medium, which sends the bits of each
+	// byte in turn.
+	medium.send(this, outgoingBuffer, offset, length);
+
     } // send
     // ===============================================================
 
 
 
+    // ===============================================================
+    // Send anything that this layer has held back from the medium.
+    // A plain physical layer holds nothing back; a subclass that
+    // gathers bytes into blocks sends its last, partial one here.
+    public void flush () {
+
+    } // flush
+    // ===============================================================
+
+
+
     // ===============================================================
     // Allow the medium to deliver a bit into this layer's buffer.
     void receive (boolean bit) {
@@ -108,8 +124,9 @@ class PhysicalLayer {
 	// If the buffer is full, deliver it to the client.
 	if (bitsReceived == bufferSize) {
 
-	    client.receive((byte)incomingBuffer);
+	    deliver((byte)incomingBuffer);
 	    bitsReceived = 0;
+	    endBlock();
 
 	}
 
@@ -118,6 +135,258 @@ class PhysicalLayer {
 
 
 
+    // ===============================================================
+    // Allow the medium to deliver a block of whole bytes into this
+    // layer.
+    void receive (byte[] block, int offset, int length) {
+
+	// If part of a byte has already arrived one bit at a time, the
+	// block's bits must be appended to it, so take them singly.
+	if (bitsReceived != 0) {
+
+	    for (int i = offset; i < offset + length; i++) {
+
+		int currentByte = block[i];
+		for (int j = 0; j < 8; j++) {
+
+		    receive(((currentByte >>> j) & 0x1) == 0x1);
+
+		}
+
+	    }
+	    return;
+
+	}
+
+	// Otherwise each byte of the block is a complete byte for the
+	// client.
+	for (int i = offset; i < offset + length; i++) {
+
+	    deliver(block[i]);
+
+	}
+	endBlock();
+
+    } // receive
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Hand one complete received byte up to the client.  A subclass
+    // that transforms the byte stream on its way up does so here.
+    void deliver (byte data) {
+
+	// If this layer is pipelined, stage the byte for the thread
+	// that drives the client.
+	if (incoming != null) {
+
+	    staged[stagedLength++] = data;
+	    if (stagedLength == staged.length) {
+
+		flushStaged();
+
+	    }
+	    return;
+
+	}
+
+	client.receive(data);
+
+    } // deliver
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Run this layer as a pipeline of three stages, each on its own
+    // thread: the client's thread, which sends, leaves its bytes in a
+    // ring; a sending thread takes them from that ring and drives the
+    // medium, and with it the receiving end's physical layer; and
+    // bytes received are left in a second ring, from which a
+    // receiving thread hands them up to the client.  Each ring holds
+    // ringSize bytes (a power of two), and a stage that gets ahead of
+    // the next waits for it.
+    //
+    // The medium is driven only by the sending thread, and so must
+    // carry traffic in one direction only: neither client may send
+    // from within the other's upcalls.
+    public void pipeline (int ringSize) {
+
+	// Sanity check
+	if (outgoing != null) {
+
+	    throw new RuntimeException("Physical layer already pipelined");
+
+	}
+
+	outgoing = new ByteRing(ringSize);
+	incoming = new ByteRing(ringSize);
+	staged = new byte[stageSize];
+
+	sendingThread = new Thread(this::runSending, "PhysicalLayer send");
+	receivingThread = new Thread(this::runReceiving,
+				     "PhysicalLayer receive");
+	sendingThread.setDaemon(true);
+	receivingThread.setDaemon(true);
+	sendingThread.start();
+	receivingThread.start();
+
+    } // pipeline
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Once the client has sent its last byte, wait for the sending
+    // thread to put every byte on the medium, and then stop it.
+    public void finishSending () {
+
+	outgoing.close();
+	join(sendingThread);
+
+    } // finishSending
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Once no more bytes will arrive (every layer that sends to this
+    // one has finished sending), wait for the receiving thread to
+    // hand every byte up to the client, and then stop it.
+    public void finishReceiving () {
+
+	incoming.close();
+	join(receivingThread);
+
+    } // finishReceiving
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Mark the end of what has been received so far: if this layer
+    // is pipelined, pass the bytes staged for the client to the
+    // receiving thread, or otherwise tell the client directly.
+    private void endBlock () {
+
+	if (incoming == null) {
+
+	    client.receivedBlock();
+
+	} else {
+
+	    flushStaged();
+
+	}
+
+    } // endBlock
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Pass the bytes staged for the client to the receiving thread.
+    private void flushStaged () {
+
+	if (stagedLength > 0) {
+
+	    incoming.write(staged, 0, stagedLength);
+	    stagedLength = 0;
+
+	}
+
+    } // flushStaged
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The sending thread: put each byte that the client sends on the
+    // medium, until the client finishes.
+    private void runSending () {
+
+	byte[] chunk = new byte[stageSize];
+	try {
+
+	    int length;
+	    while ((length = outgoing.read(chunk, 0, chunk.length)) >= 0) {
+
+		medium.send(this, chunk, 0, length);
+
+	    }
+
+	} catch (RuntimeException e) {
+
+	    pipelineFailure = e;
+	    outgoing.close();
+
+	}
+
+    } // runSending
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The receiving thread: hand each byte received up to the client,
+    // until no more will arrive.
+    private void runReceiving () {
+
+	byte[] chunk = new byte[stageSize];
+	try {
+
+	    int length;
+	    while ((length = incoming.read(chunk, 0, chunk.length)) >= 0) {
+
+		for (int i = 0; i < length; i++) {
+
+		    client.receive(chunk[i]);
+
+		}
+		client.receivedBlock();
+
+	    }
+
+	} catch (RuntimeException e) {
+
+	    pipelineFailure = e;
+	    incoming.close();
+
+	}
+
+    } // runReceiving
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Wait for one of the pipeline's threads to finish, and pass on
+    // whatever made it fail.
+    private void join (Thread thread) {
+
+	try {
+
+	    thread.join();
+
+	} catch (InterruptedException e) {
+
+	    Thread.currentThread().interrupt();
+	    throw new RuntimeException("Interrupted finishing pipeline");
+
+	}
+
+	if (pipelineFailure != null) {
+
+	    throw new RuntimeException("Pipeline failed", pipelineFailure);
+
+	}
+
+    } // join
+    // ===============================================================
+
+
+
     // ===============================================================
     // DATA MEMBERS
     // ===============================================================
@@ -126,7 +395,7 @@ class PhysicalLayer {
 
     // ===============================================================
     // The medium to which this layer is connected.
-    static Medium medium;
+    Medium medium;
 
     // The data link layer above this physical layer.
     DataLinkLayer client;
@@ -142,6 +411,27 @@ class PhysicalLayer {
 
     // The size of the buffer (in bits).
     final int bufferSize = 8;
+
+    // When the layer is pipelined (and otherwise null): the rings
+    // that carry the bytes sent and received between its stages, the
+    // threads that drive the medium and the client, the received
+    // bytes not yet passed to the receiving thread, and whatever
+    // made either thread fail.
+    ByteRing outgoing;
+    ByteRing incoming;
+    Thread sendingThread;
+    Thread receivingThread;
+    byte[] staged;
+    int stagedLength;
+    volatile RuntimeException pipelineFailure;
+
+    // The most bytes that a pipeline stage passes on at once.
+    static final int stageSize = 4096;
+
+    // On a medium that carries traffic in virtual time, the time at
+    // which this layer's transmitter will have put on the wire all
+    // that it has been given so far.
+    long transmitterFreeAt;
     // ===============================================================
 
 
@@ -0,0 +1,553 @@
+// =============================================================================
+/**
+ * A Reed-Solomon code RS(<i>n</i>, <i>k</i>) over {@link GF256}.  Each block
+ * of up to <i>k</i> data bytes travels unchanged, followed by <i>n</i> -
+ * <i>k</i> parity bytes, and any <i>t</i> = (<i>n</i> - <i>k</i>) / 2 bytes of
+ * the block may then be damaged, however badly, and still be corrected.  A
+ * burst of bit errors damages only the few bytes it touches, so the code is
+ * well suited to bursty channels.  Blocks shorter than <i>k</i> bytes are sent
+ * <i>shortened</i>: as though padded with leading zeros that are never sent.
+ *
+ * Bytes are the coefficients of a polynomial, the first byte of a block being
+ * the highest-order term.  The generator polynomial has the roots alpha^0
+ * through alpha^(<i>n</i> - <i>k</i> - 1), and the parity bytes are the
+ * remainder of the data polynomial (shifted up by <i>n</i> - <i>k</i>) on
+ * division by it.
+ *
+ * Decoding computes the syndromes of the received block, finds the error
+ * locator polynomial with the Berlekamp-Massey algorithm, finds its roots (and
+ * so the damaged bytes) with a Chien search, and finds the size of each error
+ * with Forney's formula.  A code holds no per-call state, so one object may be
+ * shared by any number of layers; the working space for each call comes from
+ * a {@link Scratch}, which each thread must have its own of.
+ **/
+public class ReedSolomonCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct the code RS(<i>n</i>, <i>k</i>).
+     *
+     * @param n The number of bytes in a full block: at most 255.
+     * @param k The number of data bytes in a full block: fewer than <tt>n</tt>.
+     **/
+    public ReedSolomonCode (int n, int k) {
+
+	if ((n > 255) || (k < 1) || (k >= n)) {
+	    throw new RuntimeException("Bad Reed-Solomon code RS(" + n + ", " +
+				       k + ")");
+	}
+
+	_n = n;
+	_k = k;
+	_parity = n - k;
+
+	// Multiply out the generator, one (x - alpha^i) factor at a time.
+	_generator = new int[_parity + 1];
+	_generator[0] = 1;
+	for (int i = 0; i < _parity; i++) {
+
+	    int root = GF256.exp(i);
+	    for (int j = i + 1; j > 0; j--) {
+		_generator[j] ^= GF256.multiply(_generator[j - 1], root);
+	    }
+
+	}
+
+    } // ReedSolomonCode (int n, int k)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The name of this code.
+     **/
+    public String name () {
+
+	return "RS(" + _n + ", " + _k + ")";
+
+    } // name ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The most data bytes a block may carry.
+     **/
+    public int dataLength () {
+
+	return _k;
+
+    } // dataLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of parity bytes added to each block.
+     **/
+    public int parityLength () {
+
+	return _parity;
+
+    } // parityLength ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of damaged bytes per block that can be corrected.
+     **/
+    public int correctableErrors () {
+
+	return _parity / 2;
+
+    } // correctableErrors ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return Working space for encoding and decoding with this code, to be
+     *         used by one thread at a time.
+     **/
+    public Scratch scratch () {
+
+	return new Scratch(_n, _parity);
+
+    } // scratch ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode one block of data, in working space of its own.
+     *
+     * @param data A buffer of data bytes.
+     * @param begin The starting index of the bytes to encode.
+     * @param end The ending index of the bytes to encode: at most
+     *            <tt>dataLength()</tt> bytes on.
+     * @param code The buffer into which to write the block.
+     * @param index The index at which to write the block's first byte.
+     * @return The index just past the block's last byte.
+     **/
+    public int encode (byte[] data, int begin, int end,
+		       byte[] code, int index) {
+
+	return encode(data, begin, end, code, index, scratch());
+
+    } // encode (byte[] data, int begin, int end, byte[] code, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Encode one block of data.
+     *
+     * @param data A buffer of data bytes.
+     * @param begin The starting index of the bytes to encode.
+     * @param end The ending index of the bytes to encode: at most
+     *            <tt>dataLength()</tt> bytes on.
+     * @param code The buffer into which to write the block.
+     * @param index The index at which to write the block's first byte.
+     * @param scratch The working space to use.
+     * @return The index just past the block's last byte.
+     **/
+    public int encode (byte[] data, int begin, int end,
+		       byte[] code, int index, Scratch scratch) {
+
+	if (end - begin > _k) {
+	    throw new RuntimeException(name() + " cannot encode " +
+				       (end - begin) + " bytes in a block");
+	}
+
+	// Divide by the generator with a shift register, whose contents at the
+	// end are the remainder.
+	int[] remainder = scratch.remainder;
+	java.util.Arrays.fill(remainder, 0);
+	for (int i = begin; i < end; i++) {
+
+	    int feedback = (data[i] & 0xff) ^ remainder[0];
+	    for (int j = 0; j < _parity - 1; j++) {
+		remainder[j] = remainder[j + 1] ^
+		    GF256.multiply(feedback, _generator[j + 1]);
+	    }
+	    remainder[_parity - 1] = GF256.multiply(feedback,
+						    _generator[_parity]);
+
+	}
+
+	System.arraycopy(data, begin, code, index, end - begin);
+	index += end - begin;
+	for (int j = 0; j < _parity; j++) {
+	    code[index++] = (byte)remainder[j];
+	}
+
+	return index;
+
+    } // encode (byte[] data, int begin, int end, byte[] code, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decode one block, in working space of its own.
+     *
+     * @param code A buffer of received bytes.
+     * @param begin The starting index of the block.
+     * @param end The ending index of the block, which must hold more than
+     *            <tt>parityLength()</tt> and at most <i>n</i> bytes.
+     * @param data The buffer into which to write the data bytes.
+     * @param index The index at which to write the first data byte.
+     * @return The number of damaged bytes corrected; {@link #UNCORRECTABLE}
+     *         if there were too many to correct.
+     **/
+    public int decode (byte[] code, int begin, int end,
+		       byte[] data, int index) {
+
+	return decode(code, begin, end, data, index, scratch());
+
+    } // decode (byte[] code, int begin, int end, byte[] data, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decode one block, correcting what errors can be corrected.  The data is
+     * written even when the errors could not be corrected, but is then not to
+     * be trusted.
+     *
+     * @param code A buffer of received bytes.
+     * @param begin The starting index of the block.
+     * @param end The ending index of the block, which must hold more than
+     *            <tt>parityLength()</tt> and at most <i>n</i> bytes.
+     * @param data The buffer into which to write the data bytes.
+     * @param index The index at which to write the first data byte.
+     * @param scratch The working space to use.
+     * @return The number of damaged bytes corrected; {@link #UNCORRECTABLE}
+     *         if there were too many to correct.
+     **/
+    public int decode (byte[] code, int begin, int end,
+		       byte[] data, int index, Scratch scratch) {
+
+	int length = end - begin;
+	if ((length <= _parity) || (length > _n)) {
+	    throw new RuntimeException(name() + " cannot decode a block of " +
+				       length + " bytes");
+	}
+
+	// Work on a copy of the block, so that corrections may be checked.
+	int[] block = scratch.block;
+	for (int i = 0; i < length; i++) {
+	    block[i] = code[begin + i] & 0xff;
+	}
+
+	int[] syndromes = scratch.syndromes;
+	int corrected = 0;
+	if (computeSyndromes(block, length, syndromes)) {
+
+	    // Find, and then check, the damaged bytes.
+	    corrected = correct(block, length, syndromes, scratch);
+	    if ((corrected == UNCORRECTABLE) ||
+		computeSyndromes(block, length, syndromes)) {
+
+		corrected = UNCORRECTABLE;
+
+	    }
+
+	}
+
+	// Deliver the data, corrected if possible.
+	int dataBytes = length - _parity;
+	for (int i = 0; i < dataBytes; i++) {
+	    data[index + i] = (byte)block[i];
+	}
+
+	return corrected;
+
+    } // decode (byte[] code, int begin, int end, byte[] data, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Evaluate the received block at each root of the generator.
+     *
+     * @param block The received block.
+     * @param length The number of bytes in the block.
+     * @param syndromes The space into which to put the syndromes.
+     * @return Whether any syndrome is non-zero (that is, whether the block is
+     *         damaged).
+     **/
+    private boolean computeSyndromes (int[] block, int length,
+				      int[] syndromes) {
+
+	boolean damaged = false;
+	for (int i = 0; i < _parity; i++) {
+
+	    int root = GF256.exp(i);
+	    int value = 0;
+	    for (int j = 0; j < length; j++) {
+		value = GF256.multiply(value, root) ^ block[j];
+	    }
+	    syndromes[i] = value;
+	    damaged |= (value != 0);
+
+	}
+
+	return damaged;
+
+    } // computeSyndromes (int[] block, int length, int[] syndromes)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Locate and repair the damaged bytes of a block.
+     *
+     * @param block The received block, which is corrected in place.
+     * @param length The number of bytes in the block.
+     * @param syndromes The block's syndromes, not all zero.
+     * @param scratch The working space to use.
+     * @return The number of bytes repaired; {@link #UNCORRECTABLE} if the
+     *         errors could not be located.
+     **/
+    private int correct (int[] block, int length, int[] syndromes,
+			 Scratch scratch) {
+
+	// Berlekamp-Massey: find the shortest error locator polynomial Lambda
+	// (lowest-order coefficient first) that generates the syndromes.  The
+	// locator, the previous locator and the copy saved at each step rotate
+	// through three arrays of the scratch space.
+	int[] locator = scratch.locator;
+	int[] previous = scratch.previous;
+	int[] saved = scratch.saved;
+	java.util.Arrays.fill(locator, 0);
+	java.util.Arrays.fill(previous, 0);
+	locator[0] = 1;
+	previous[0] = 1;
+	int errors = 0;
+	int shift = 1;
+	int previousDiscrepancy = 1;
+	for (int step = 0; step < _parity; step++) {
+
+	    int discrepancy = syndromes[step];
+	    for (int i = 1; i <= errors; i++) {
+		discrepancy ^= GF256.multiply(locator[i], syndromes[step - i]);
+	    }
+
+	    if (discrepancy == 0) {
+
+		shift++;
+
+	    } else {
+
+		int scale = GF256.divide(discrepancy, previousDiscrepancy);
+		System.arraycopy(locator, 0, saved, 0, _parity + 1);
+		for (int i = 0; i + shift <= _parity; i++) {
+		    locator[i + shift] ^= GF256.multiply(scale, previous[i]);
+		}
+
+		if (2 * errors <= step) {
+
+		    errors = step + 1 - errors;
+		    int[] free = previous;
+		    previous = saved;
+		    saved = free;
+		    previousDiscrepancy = discrepancy;
+		    shift = 1;
+
+		} else {
+
+		    shift++;
+
+		}
+
+	    }
+
+	}
+	if (errors > correctableErrors()) {
+	    return UNCORRECTABLE;
+	}
+
+	// The error evaluator Omega = (S * Lambda) mod x^(n - k).
+	int[] evaluator = scratch.evaluator;
+	java.util.Arrays.fill(evaluator, 0);
+	for (int i = 0; i < _parity; i++) {
+	    for (int j = 0; j <= Math.min(i, errors); j++) {
+		evaluator[i] ^= GF256.multiply(syndromes[i - j], locator[j]);
+	    }
+	}
+
+	// Chien search: byte j holds the term of order p = length - 1 - j,
+	// and is damaged exactly when alpha^-p is a root of Lambda.
+	int found = 0;
+	for (int j = 0; j < length; j++) {
+
+	    int power = length - 1 - j;
+	    int inverse = GF256.exp(-power);
+	    if (evaluate(locator, errors, inverse) != 0) {
+		continue;
+	    }
+
+	    // Forney: the error is X * Omega(X^-1) / Lambda'(X^-1), where
+	    // X = alpha^p.  In GF(2^m), Lambda' keeps only the odd terms.
+	    int derivative = 0;
+	    int inversePower = 1;
+	    int inverseSquared = GF256.multiply(inverse, inverse);
+	    for (int i = 1; i <= errors; i += 2) {
+		derivative ^= GF256.multiply(locator[i], inversePower);
+		inversePower = GF256.multiply(inversePower, inverseSquared);
+	    }
+	    if (derivative == 0) {
+		return UNCORRECTABLE;
+	    }
+	    int magnitude =
+		GF256.multiply(GF256.exp(power),
+			       GF256.divide(evaluate(evaluator, _parity - 1,
+						     inverse),
+					    derivative));
+	    block[j] ^= magnitude;
+	    found++;
+
+	}
+
+	// Every root must lie within the block.
+	if (found != errors) {
+	    return UNCORRECTABLE;
+	}
+
+	return found;
+
+    } // correct (int[] block, int length, int[] syndromes, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Evaluate a polynomial, lowest-order coefficient first, by Horner's rule.
+     *
+     * @param polynomial The coefficients.
+     * @param degree The index of the highest coefficient to use.
+     * @param x The point at which to evaluate it.
+     * @return The value.
+     **/
+    private static int evaluate (int[] polynomial, int degree, int x) {
+
+	int value = 0;
+	for (int i = degree; i >= 0; i--) {
+	    value = GF256.multiply(value, x) ^ polynomial[i];
+	}
+
+	return value;
+
+    } // evaluate (int[] polynomial, int degree, int x)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The working space for encoding and decoding blocks of one code, so
+     * that no call need allocate any.  A scratch space may be reused for any
+     * number of calls, but by only one thread at a time.
+     **/
+    public static class Scratch {
+
+
+
+	// =====================================================================
+	/**
+	 * The constructor.
+	 *
+	 * @param n The number of bytes in a full block.
+	 * @param parity The number of parity bytes in a block.
+	 **/
+	private Scratch (int n, int parity) {
+
+	    remainder = new int[parity];
+	    block = new int[n];
+	    syndromes = new int[parity];
+	    locator = new int[parity + 1];
+	    previous = new int[parity + 1];
+	    saved = new int[parity + 1];
+	    evaluator = new int[parity];
+
+	} // Scratch (int n, int parity)
+	// =====================================================================
+
+
+
+	/**
+	 * The encoder's shift register.
+	 **/
+	private final int[] remainder;
+
+	/**
+	 * The decoder's copy of the block, and its syndromes.
+	 **/
+	private final int[] block;
+	private final int[] syndromes;
+
+	/**
+	 * The polynomials of Berlekamp-Massey, and the error evaluator.
+	 **/
+	private final int[] locator;
+	private final int[] previous;
+	private final int[] saved;
+	private final int[] evaluator;
+
+
+
+    } // class Scratch
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // CONSTANTS
+
+    /**
+     * The result of {@link #decode} when the errors could not be corrected.
+     **/
+    public static final int UNCORRECTABLE = -1;
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The number of bytes in a full block, the number of them that are data,
+     * and the number that are parity.
+     **/
+    private final int _n;
+    private final int _k;
+    private final int _parity;
+
+    /**
+     * The generator polynomial, highest-order coefficient (always 1) first.
+     **/
+    private final int[] _generator;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ReedSolomonCode
+// =============================================================================
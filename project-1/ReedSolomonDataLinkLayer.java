@@ -0,0 +1,339 @@
+// =============================================================================
+/**
+ *  A data link layer that frames the data (by default, with start/stop tags
+ *  and byte packing), and that protects each frame with a Reed-Solomon code,
+ *  so that several damaged bytes -- such as a burst of bit errors leaves --
+ *  are corrected on receipt rather than costing the frame.
+ **/
+public class ReedSolomonDataLinkLayer extends DataLinkLayer {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Reed-Solomon data link layer that uses
+     * RS(255, 247), correcting up to four damaged bytes per frame, and that
+     * frames the data with start/stop tags.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     **/
+    public ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer) {
+
+	this(physicalLayer, new ReedSolomonCode(255, 247),
+	     new StuffedFraming());
+
+    } // ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Reed-Solomon data link layer that uses
+     * RS(255, 247).
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param framing The framing with which to mark each frame.
+     **/
+    public ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer,
+				     Framing framing) {
+
+	this(physicalLayer, new ReedSolomonCode(255, 247), framing);
+
+    } // ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Reed-Solomon data link layer that frames
+     * the data with start/stop tags.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param code The Reed-Solomon code with which to protect each frame.
+     **/
+    public ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer,
+				     ReedSolomonCode code) {
+
+	this(physicalLayer, code, new StuffedFraming());
+
+    } // ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * The constructor.  Make a new Reed-Solomon data link layer.
+     *
+     * @param physicalLayer The physical layer through which this data link
+     * layer should communicate.
+     * @param code The Reed-Solomon code with which to protect each frame.
+     * @param framing The framing with which to mark each frame.
+     **/
+    public ReedSolomonDataLinkLayer (PhysicalLayer physicalLayer,
+				     ReedSolomonCode code,
+				     Framing framing) {
+
+	_code = code;
+	_decodingScratch = ThreadLocal.withInitial(code::scratch);
+	_maxFrameSize = Math.min(_defaultMaxFrameSize, code.dataLength());
+
+	// Initialize the layer.
+	initialize(physicalLayer);
+
+	// Frame outgoing data, and gather incoming frames as they arrive.  The
+	// code itself is checked, and corrected, once a whole frame is in.
+	this.framing = framing;
+	sizer = new FrameSizeController(_maxFrameSize);
+	encoder = createEncoder(framing);
+	deframer = framing.createDeframer(_maxFrameSize + _code.parityLength(),
+					  null);
+
+    } // ReedSolomonDataLinkLayer (PhysicalLayer, ReedSolomonCode, Framing)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Accept a buffer of data to send.  Send it as divided into multiple frames
+     * of a fixed, maximum size.  Encode each frame with the Reed-Solomon code.
+     * Call the physical layer to actually send each frame.  A large buffer
+     * may be encoded in parallel (see {@link #parallelize}).
+     *
+     * @param data An array of bytes to be framed and transmitted.
+     **/
+    public void send (byte[] data) {
+
+	sendFrames(data);
+
+    } // send (byte[] data)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Create an encoder for this layer's frames.
+     *
+     * @param framing The framing with which the encoder marks each frame.
+     * @return An encoder of frames protected by the Reed-Solomon code.
+     **/
+    protected FrameEncoder createEncoder (Framing framing) {
+
+	return new ReedSolomonEncoder(framing);
+
+    } // createEncoder (Framing framing)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * An encoder of frames protected by the Reed-Solomon code, with a space of
+     * its own into which to encode each frame's data, and working space of
+     * its own for the code.
+     **/
+    private class ReedSolomonEncoder extends FrameEncoder {
+
+
+
+	// =====================================================================
+	/**
+	 * The constructor.
+	 *
+	 * @param framing The framing with which to mark each frame.
+	 **/
+	ReedSolomonEncoder (Framing framing) {
+
+	    super(framing);
+
+	} // ReedSolomonEncoder (Framing framing)
+	// =====================================================================
+
+
+
+	// =====================================================================
+	public int maxFrameLength (int dataLength) {
+
+	    return framing.maxFrameLength(dataLength + _code.parityLength());
+
+	} // maxFrameLength (int dataLength)
+	// =====================================================================
+
+
+
+	// =====================================================================
+	/**
+	 * Create a single frame to be transmitted, in the given buffer.
+	 *
+	 * @param data The original buffer of data from which to extract a
+	 *             frame's worth.
+	 * @param begin The starting index from the original data buffer.
+	 * @param end The ending index from the original frame buffer.
+	 * @param framedData A buffer large enough to hold the largest possible
+	 *                   frame (framing included).
+	 * @return The length of the frame constructed at the start of
+	 *         <tt>framedData</tt>.
+	 **/
+	public int encode (byte[] data, int begin, int end, byte[] framedData) {
+
+	    // Encode the data.
+	    int codeLength = (end - begin) + _code.parityLength();
+	    _code.encode(data, begin, end, _encodedData, 0, _scratch);
+
+	    // Begin the frame, add each byte of encoded data, and end the
+	    // frame.
+	    int frameIndex = framing.begin(framedData);
+	    frameIndex = framing.put(_encodedData, 0, codeLength,
+				     framedData, frameIndex);
+	    return framing.end(framedData, frameIndex);
+
+	} // encode (byte[] data, int begin, int end, byte[] framedData)
+	// =====================================================================
+
+
+
+	/**
+	 * A reusable space into which each frame's data is encoded.
+	 **/
+	private final byte[] _encodedData =
+	    new byte[_maxFrameSize + _code.parityLength()];
+
+	/**
+	 * The working space for encoding.
+	 **/
+	private final ReedSolomonCode.Scratch _scratch = _code.scratch();
+
+
+
+    } // class ReedSolomonEncoder
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     *  Remove the framing metadata, correct the data, and return it.
+     *
+     * @return The data carried in this frame; <tt>null</tt> if the data was not
+     *         successfully received.
+     **/
+    protected byte[] processFrame () {
+
+	// The deframer has already extracted the encoded data as the bytes
+	// arrived.  There must be at least one data byte besides the parity.
+	if (!deframer.wellFormed() ||
+	    (deframer.dataLength() <= _code.parityLength())) {
+
+	    System.err.println("ReedSolomonDLL: Malformed frame!");
+	    recordFrame(0, false);
+	    return null;
+
+	}
+
+	// Decode the data, correcting what errors it can (perhaps later, along
+	// with other frames).
+	return decodeFrame(deframer.dataLength() - _code.parityLength());
+
+    } // processFrame
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Decode one frame's code bytes.  This may be called from several
+     * threads at once, so each thread decodes in working space of its own.
+     *
+     * @param code A buffer holding the frame's code bytes.
+     * @param begin The starting index of the code bytes.
+     * @param end The ending index of the code bytes.
+     * @param data The buffer into which to decode the data.
+     * @param index The index in <tt>data</tt> at which to begin.
+     * @return The number of damaged bytes corrected, or
+     *         <tt>ReedSolomonCode.UNCORRECTABLE</tt>.
+     **/
+    protected int decodeFrame (byte[] code, int begin, int end,
+			       byte[] data, int index) {
+
+	return _code.decode(code, begin, end, data, index,
+			    _decodingScratch.get());
+
+    } // decodeFrame (byte[] code, int begin, int end, byte[] data, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take in a frame's decoded data.
+     *
+     * @param finalData The decoded data.
+     * @param corrected The number of damaged bytes corrected in it, or
+     *                  <tt>ReedSolomonCode.UNCORRECTABLE</tt>.
+     * @return The data to deliver; <tt>null</tt> if there were more errors
+     *         than could be corrected.
+     **/
+    protected byte[] acceptFrame (byte[] finalData, int corrected) {
+
+	// If there were more errors than could be corrected, return null.
+	if (corrected == ReedSolomonCode.UNCORRECTABLE) {
+
+	    System.err.print("ReedSolomonDLL message: ");
+	    for (int i = 0; i < finalData.length; i++) {
+		System.err.print((char)finalData[i]);
+	    }
+	    System.err.println(" <= Uncorrectable error!");
+	    return null;
+
+	}
+	correctedErrors += corrected;
+
+	return finalData;
+
+    } // acceptFrame (byte[] finalData, int corrected)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The maximum number of data (not metadata) bytes in a frame.
+     **/
+    final int _maxFrameSize;
+
+    /**
+     * The Reed-Solomon code with which each frame is protected.
+     **/
+    final ReedSolomonCode _code;
+
+    /**
+     * The working space for decoding, one per decoding thread.
+     **/
+    private final ThreadLocal<ReedSolomonCode.Scratch> _decodingScratch;
+
+    /**
+     * The number of damaged bytes corrected in received frames so far.
+     **/
+    int correctedErrors = 0;
+
+    /**
+     * The maximum frame size, unless the code's blocks are smaller.
+     **/
+    private static final int _defaultMaxFrameSize = 8;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ReedSolomonDataLinkLayer
+// =============================================================================
@@ -0,0 +1,438 @@
+// ===================================================================
+// ResidualErrorEstimator
+// ===================================================================
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+// ===================================================================
+
+
+
+// ===================================================================
+// A Monte-Carlo estimate of a data link layer's residual error rate:
+// the probability that a frame sent over a given medium is delivered
+// with an error that the layer did not notice.  Random frames are
+// sent in batches, each batch over a link of its own (see
+// Sweep.Point), many batches at once on a pool of threads.  After
+// each batch the estimate and its confidence interval are brought up
+// to date, and the run stops once the interval is as narrow as asked
+// for, or once a limit of frames has been sent.
+//
+// The interval is the Wilson score interval, which stays sound for
+// the rare events that residual errors should be, and gives a useful
+// upper bound even when no error has been seen at all.  The precision
+// asked for is its half-width relative to the estimate; a layer whose
+// residual errors are very rare thus runs to the limit, and reports
+// an upper bound.
+//
+// As in a sweep, each batch's seed is drawn in order from the seed of
+// the whole run, and batches are taken into the estimate in that
+// order, so the result depends only on the seed and not on the
+// number of threads.
+class ResidualErrorEstimator {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The entry point, reached as "java Simulator residual <options>".
+    public static void main (String[] args) {
+
+	ResidualErrorEstimator estimator = new ResidualErrorEstimator();
+	boolean verbose = false;
+
+	try {
+
+	    for (int i = 0; i < args.length; i++) {
+
+		String option = args[i];
+		if (option.equals("--verbose")) {
+		    verbose = true;
+		    continue;
+		}
+		if (i + 1 == args.length) {
+		    throw new RuntimeException("No value for " + option);
+		}
+		String value = args[++i];
+
+		if (option.equals("--medium")) {
+		    estimator.medium = value;
+		} else if (option.equals("--layer")) {
+		    estimator.layer = value;
+		} else if (option.equals("--rate")) {
+		    estimator.rate = Double.parseDouble(value);
+		} else if (option.equals("--frame-size")) {
+		    estimator.frameSize = value;
+		} else if (option.equals("--framing")) {
+		    estimator.framing = value;
+		} else if (option.equals("--confidence")) {
+		    estimator.confidence = Double.parseDouble(value);
+		} else if (option.equals("--precision")) {
+		    estimator.precision = Double.parseDouble(value);
+		} else if (option.equals("--batch")) {
+		    estimator.batchSize = Integer.parseInt(value);
+		} else if (option.equals("--max-frames")) {
+		    estimator.maxFrames = Long.parseLong(value);
+		} else if (option.equals("--seed")) {
+		    estimator.seed = Long.parseLong(value);
+		} else if (option.equals("--threads")) {
+		    estimator.threads = Integer.parseInt(value);
+		} else {
+		    throw new RuntimeException("Unknown option " + option);
+		}
+
+	    }
+	    estimator.check();
+
+	} catch (RuntimeException e) {
+
+	    System.err.println(e.getMessage());
+	    System.err.println("Usage: java Simulator residual " +
+			       "[--medium <medium>] " +
+			       "[--layer <data link layer>] " +
+			       "[--rate <error rate>] " +
+			       "[--frame-size <bytes>] " +
+			       "[--framing <framing>] " +
+			       "[--confidence <level>] " +
+			       "[--precision <relative half-width>] " +
+			       "[--batch <frames>] " +
+			       "[--max-frames <frames>] " +
+			       "[--seed <seed>] " +
+			       "[--threads <count>] " +
+			       "[--verbose]");
+	    System.exit(1);
+
+	}
+
+	// As in a sweep, the layers' reports of every damaged frame
+	// would only slow the run down, but a failure of the estimate
+	// itself is still reported, on the real error stream.
+	java.io.PrintStream err = System.err;
+	if (!verbose) {
+
+	    System.setErr(new java.io.PrintStream(
+		java.io.OutputStream.nullOutputStream()));
+
+	}
+
+	try {
+
+	    estimator.run();
+
+	} catch (RuntimeException e) {
+
+	    err.println(e.getMessage());
+	    System.exit(1);
+
+	}
+	System.out.println(estimator.report());
+
+    } // main
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Check the parameters of the estimate without running it: the
+    // confidence, precision, batch size, limit of frames and number of
+    // threads must make sense, the medium must take the error rate,
+    // and the layer must exist and take the frame size and framing.
+    public void check () {
+
+	// Sanity check
+	if (!((confidence > 0.0) && (confidence < 1.0)) ||
+	    !(precision > 0.0) || (batchSize <= 0)) {
+
+	    throw new RuntimeException("Bad confidence " + confidence +
+				       ", precision " + precision +
+				       " or batch size " + batchSize);
+
+	}
+	if ((maxFrames <= 0) || (threads <= 0)) {
+
+	    throw new RuntimeException("Bad limit of frames " + maxFrames +
+				       " or number of threads " + threads);
+
+	}
+
+	Sweep.createMedium(medium, rate, seed);
+	if (framing != null) {
+
+	    Simulator.createFraming(framing);
+
+	}
+	Sweep.checkFrameSize(layer, frameSize, framing);
+
+    } // check
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Send batches of frames until the estimate is precise enough or
+    // the limit of frames is reached.
+    public void run () {
+
+	check();
+	z = inverseNormal(0.5 + (confidence / 2.0));
+
+	SplittableRandom seeds = new SplittableRandom(seed);
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	ArrayDeque<Future<Sweep.Point>> running =
+	    new ArrayDeque<Future<Sweep.Point>>();
+	long submitted = 0;
+	try {
+
+	    while (!done()) {
+
+		// Keep every thread busy, with a batch more for each
+		// waiting to be taken in, but never start one that the
+		// limit has no room for.
+		while ((running.size() < 2 * threads) &&
+		       (submitted < maxFrames)) {
+
+		    int count = (int)Math.min(batchSize,
+					      maxFrames - submitted);
+		    Sweep.Point batch =
+			new Sweep.Point(medium, layer, rate, frameSize,
+					framing, count, seeds.nextLong());
+		    running.add(executor.submit(batch::run));
+		    submitted += count;
+
+		}
+
+		Sweep.Point batch = null;
+		try {
+		    batch = running.remove().get();
+		} catch (InterruptedException e) {
+		    throw new RuntimeException("Estimate interrupted");
+		} catch (ExecutionException e) {
+		    throw new RuntimeException("Estimate failed: " +
+					       e.getCause(), e.getCause());
+		}
+		frames += batch.sent;
+		delivered += batch.delivered;
+		corrupted += batch.corrupted;
+		batches++;
+
+	    }
+
+	} finally {
+
+	    executor.shutdownNow();
+
+	}
+
+    } // run
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether the estimate is precise enough, or the limit of
+    // frames has been sent.
+    public boolean done () {
+
+	if (frames >= maxFrames) {
+
+	    return true;
+
+	}
+	return (corrupted > 0) && (halfWidth() <= precision * estimate());
+
+    } // done
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the estimated residual error rate: the share of frames
+    // sent that were delivered with an undetected error.
+    public double estimate () {
+
+	return (frames == 0) ? 0.0 : (double)corrupted / frames;
+
+    } // estimate
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the bounds of the Wilson score interval about the
+    // estimate.
+    public double lowerBound () {
+
+	return Math.max(0.0, center() - halfWidth());
+
+    } // lowerBound
+
+    public double upperBound () {
+
+	return Math.min(1.0, center() + halfWidth());
+
+    } // upperBound
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return a summary of the estimate, one "name: value" per line.
+    public String report () {
+
+	return "medium: " + medium + "\n" +
+	    "layer: " + layer + "\n" +
+	    "rate: " + rate + "\n" +
+	    "frameSize: " + frameSize + "\n" +
+	    "batches: " + batches + "\n" +
+	    "frames: " + frames + "\n" +
+	    "delivered: " + delivered + "\n" +
+	    "corrupted: " + corrupted + "\n" +
+	    "residualErrorRate: " + estimate() + "\n" +
+	    "confidence: " + confidence + "\n" +
+	    "lowerBound: " + lowerBound() + "\n" +
+	    "upperBound: " + upperBound() + "\n" +
+	    "precisionReached: " +
+	    ((corrupted > 0) && (halfWidth() <= precision * estimate()));
+
+    } // report
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the center and the half-width of the Wilson score
+    // interval for corrupted errors in frames trials.
+    private double center () {
+
+	if (frames == 0) {
+
+	    return 0.5;
+
+	}
+	double n = frames;
+	double zz = z * z;
+	return (estimate() + (zz / (2.0 * n))) / (1.0 + (zz / n));
+
+    } // center
+
+    private double halfWidth () {
+
+	if (frames == 0) {
+
+	    return 0.5;
+
+	}
+	double n = frames;
+	double p = estimate();
+	double zz = z * z;
+	return (z / (1.0 + (zz / n))) *
+	    Math.sqrt(((p * (1.0 - p)) / n) + (zz / (4.0 * n * n)));
+
+    } // halfWidth
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return the quantile of the standard normal distribution for
+    // probability p, by Acklam's rational approximation (relative
+    // error below 1.2e-9).
+    static double inverseNormal (double p) {
+
+	final double[] a = { -3.969683028665376e+01, 2.209460984245205e+02,
+			     -2.759285104469687e+02, 1.383577518672690e+02,
+			     -3.066479806614716e+01, 2.506628277459239e+00 };
+	final double[] b = { -5.447609879822406e+01, 1.615858368580409e+02,
+			     -1.556989798598866e+02, 6.680131188771972e+01,
+			     -1.328068155288572e+01 };
+	final double[] c = { -7.784894002430293e-03, -3.223964580411365e-01,
+			     -2.400758277161838e+00, -2.549732539343734e+00,
+			     4.374664141464968e+00, 2.938163982698783e+00 };
+	final double[] d = { 7.784695709041462e-03, 3.224671290700398e-01,
+			     2.445134137142996e+00, 3.754408661907416e+00 };
+	final double low = 0.02425;
+
+	if (p < low) {
+
+	    double q = Math.sqrt(-2.0 * Math.log(p));
+	    return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q +
+		     c[4]) * q + c[5]) /
+		((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1.0);
+
+	}
+	if (p > 1.0 - low) {
+
+	    return -inverseNormal(1.0 - p);
+
+	}
+
+	double q = p - 0.5;
+	double r = q * q;
+	return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r +
+		 a[4]) * r + a[5]) * q /
+	    (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r +
+	      b[4]) * r + 1.0);
+
+    } // inverseNormal
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The link to measure: its medium, error rate, data link layer,
+    // frame size (bytes, or "adaptive") and framing (or null for the
+    // layer's default).
+    String medium = "LowNoise";
+    String layer = "Parity";
+    double rate = 0.01;
+    String frameSize = "8";
+    String framing;
+
+    // The confidence level of the interval, the half-width to reach
+    // relative to the estimate, the frames in each batch, the most
+    // frames to send, the seed of the whole run, and the number of
+    // threads that run it.
+    double confidence = 0.95;
+    double precision = 0.1;
+    int batchSize = 10000;
+    long maxFrames = 100000000L;
+    long seed = 0;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    // The normal quantile for the confidence level.
+    double z;
+
+    // The batches taken in so far, the frames they sent, and those
+    // delivered, intact or not, and delivered corrupted.
+    long batches;
+    long frames;
+    long delivered;
+    long corrupted;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class ResidualErrorEstimator
+// ===================================================================
@@ -0,0 +1,230 @@
+// =============================================================================
+/**
+ * Extended Hamming(72,64): single error correction, double error detection.
+ * Data is taken eight bytes at a time, and each block travels as its eight
+ * data bytes unchanged, followed by one check byte.  A final block of fewer
+ * than eight bytes is encoded as though padded with zeros, but the padding is
+ * not sent.
+ *
+ * Data bit <i>j</i> (bit <i>j</i> % 8 of byte <i>j</i> / 8 of the block) is
+ * covered by the check bits named by its <i>column</i>: the <i>j</i>th number
+ * from 3 upward that is not a power of two, with an eighth bit added where
+ * needed to give every column an odd number of 1 bits.  Check bit <i>k</i>
+ * covers only itself.  The check byte is then the XOR of the columns of the
+ * data bits that are 1: the product, over GF(2), of the matrix whose row
+ * <i>k</i> marks the data bits check bit <i>k</i> covers and the block's 64
+ * data bits, taken as one word.
+ *
+ * On receipt, the <i>syndrome</i> is the XOR of the check byte received and
+ * the one recomputed from the data received.  A single flipped bit leaves its
+ * own column as the syndrome, which has an odd number of 1 bits; two flipped
+ * bits leave the XOR of two columns, which has an even number.  A table from
+ * each syndrome to the bit with that column then does the correction.
+ **/
+public class SECDEDCode extends HammingCode {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Default constructor.  Build the check matrix and the syndrome table.
+     **/
+    public SECDEDCode () {
+
+	// Assign each data bit its column.
+	int[] columns = new int[_dataBits];
+	int candidate = 3;
+	for (int bit = 0; bit < _dataBits; bit++) {
+
+	    while (Integer.bitCount(candidate) == 1) {
+		candidate++;
+	    }
+	    int column = candidate++;
+	    if (Integer.bitCount(column) % 2 == 0) {
+		column |= 0x80;
+	    }
+	    columns[bit] = column;
+
+	}
+
+	// The data bits that each check bit covers.
+	_checkRows = new long[8];
+	for (int bit = 0; bit < _dataBits; bit++) {
+	    for (int check = 0; check < 8; check++) {
+		if ((columns[bit] & (1 << check)) != 0) {
+		    _checkRows[check] |= 1L << bit;
+		}
+	    }
+	}
+
+	// The bit to correct for each syndrome that a single error leaves.
+	_syndromeTable = new byte[256];
+	java.util.Arrays.fill(_syndromeTable, _noBit);
+	for (int bit = 0; bit < _dataBits; bit++) {
+	    _syndromeTable[columns[bit]] = (byte)bit;
+	}
+	for (int bit = 0; bit < 8; bit++) {
+	    _syndromeTable[1 << bit] = (byte)(_dataBits + bit);
+	}
+
+    } // SECDEDCode ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public String name () {
+
+	return "SECDED(72,64)";
+
+    } // name ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encodedLength (int dataLength) {
+
+	return dataLength + ((dataLength + _blockBytes - 1) / _blockBytes);
+
+    } // encodedLength (int dataLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decodedLength (int codeLength) {
+
+	// Every block, the last included, needs at least one data byte as
+	// well as its check byte.
+	int blocks = (codeLength + _blockBytes) / (_blockBytes + 1);
+	int lastBlock = codeLength - ((blocks - 1) * (_blockBytes + 1));
+	if ((codeLength > 0) && (lastBlock < 2)) {
+	    return -1;
+	}
+
+	return codeLength - blocks;
+
+    } // decodedLength (int codeLength)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int encode (byte[] data, int begin, int end,
+		       byte[] code, int index) {
+
+	for (int block = begin; block < end; block += _blockBytes) {
+
+	    int blockEnd = Math.min(block + _blockBytes, end);
+	    System.arraycopy(data, block, code, index, blockEnd - block);
+	    index += blockEnd - block;
+	    code[index++] = check(data, block, blockEnd);
+
+	}
+
+	return index;
+
+    } // encode (byte[] data, int begin, int end, byte[] code, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    public int decode (byte[] code, int begin, int end,
+		       byte[] data, int index) {
+
+	int corrected = 0;
+	boolean uncorrectable = false;
+	for (int block = begin; block < end; block += _blockBytes + 1) {
+
+	    // Copy out the data bytes, and compare their check byte with the
+	    // one received.
+	    int blockEnd = Math.min(block + _blockBytes + 1, end) - 1;
+	    int length = blockEnd - block;
+	    System.arraycopy(code, block, data, index, length);
+	    int syndrome = (check(code, block, blockEnd) ^ code[blockEnd]) &
+		0xff;
+
+	    if (syndrome != 0) {
+
+		// Find the flipped bit.  Any syndrome that no single error
+		// leaves, or that names a padding bit never sent, means more
+		// than one bit flipped.
+		int bit = _syndromeTable[syndrome];
+		if ((bit == _noBit) ||
+		    ((bit < _dataBits) && ((bit >>> 3) >= length))) {
+
+		    uncorrectable = true;
+
+		} else {
+
+		    // A flipped check bit needs no repair to the data.
+		    if (bit < _dataBits) {
+			data[index + (bit >>> 3)] ^= (byte)(1 << (bit & 7));
+		    }
+		    corrected++;
+
+		}
+
+	    }
+	    index += length;
+
+	}
+
+	return uncorrectable ? UNCORRECTABLE : corrected;
+
+    } // decode (byte[] code, int begin, int end, byte[] data, int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Compute the check byte of one block.
+     *
+     * @param data A buffer of bytes.
+     * @param begin The starting index of the block.
+     * @param end The ending index of the block, at most eight bytes on.
+     * @return The check byte.
+     **/
+    private byte check (byte[] data, int begin, int end) {
+
+	return (byte)BitKernels.multiply(_checkRows,
+					 BitKernels.loadWord(data, begin, end));
+
+    } // check (byte[] data, int begin, int end)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * For each check bit, the data bits it covers, as a mask over the block
+     * read as a little-endian word.
+     **/
+    private final long[] _checkRows;
+
+    /**
+     * For each syndrome, the bit a single error there would have flipped:
+     * data bits first, then check bits; or <tt>_noBit</tt>.
+     **/
+    private final byte[] _syndromeTable;
+
+    /**
+     * The size of a block, in bytes and in bits, and the mark of a syndrome
+     * that no single error leaves.
+     **/
+    private static final int _blockBytes = 8;
+    private static final int _dataBits = 64;
+    private static final byte _noBit = -1;
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class SECDEDCode
+// =============================================================================
@@ -0,0 +1,321 @@
+// ===================================================================
+// Simulation
+// ===================================================================
+
+
+
+// ===================================================================
+// A single, self-contained link between two hosts: one medium, and
+// for each host a physical layer, a data link layer and a network
+// layer.  A simulation shares no state with any other, so many of
+// them may be built and run at once, each on its own thread.
+class Simulation implements Runnable {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack, looking up the medium and
+    // data link layer types by name.
+    public Simulation (String mediumType, String dataLinkLayerType) {
+
+	this(mediumType, dataLinkLayerType, null);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack, looking up the medium, data
+    // link layer and framing types by name.  A null framing type
+    // leaves the data link layers with their default framing.
+    public Simulation (String mediumType,
+		       String dataLinkLayerType,
+		       String framingType) {
+
+	this(mediumType, dataLinkLayerType, framingType, null);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack, looking up the medium, data
+    // link layer and framing types by name, and interleaving the
+    // bytes sent on the medium if an interleaver geometry (such as
+    // "16x9") is given.
+    public Simulation (String mediumType,
+		       String dataLinkLayerType,
+		       String framingType,
+		       String interleaving) {
+
+	this(Simulator.createMedium(mediumType), dataLinkLayerType,
+	     framingType, interleaving);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack over the given medium, which
+    // must not belong to any other simulation.
+    public Simulation (Medium medium, String dataLinkLayerType) {
+
+	this(medium, dataLinkLayerType, null);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack over the given medium, giving
+    // each data link layer its own framing of the given type.
+    public Simulation (Medium medium,
+		       String dataLinkLayerType,
+		       String framingType) {
+
+	this(medium, dataLinkLayerType, framingType, null);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack over the given medium, giving
+    // each data link layer its own framing of the given type, and
+    // each physical layer an interleaver of the given geometry.
+    public Simulation (Medium medium,
+		       String dataLinkLayerType,
+		       String framingType,
+		       String interleaving) {
+
+	this(medium, dataLinkLayerType, framingType, interleaving, null);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Build the stack as above, with both data link
+    // layers sharing the given frame size controller, so that what
+    // the receiver learns of the link reaches the sender at once.  A
+    // null controller leaves each layer to choose its own frame size.
+    public Simulation (Medium medium,
+		       String dataLinkLayerType,
+		       String framingType,
+		       String interleaving,
+		       FrameSizeController sizer) {
+
+	this.medium = medium;
+	this.sizer = sizer;
+
+	// Create the physical layers.
+	physicalLayers = Simulator.createPhysicalLayers(medium, interleaving);
+
+	// Create the requested data link layers, connecting each one
+	// to its physical layer.
+	dataLinkLayers =
+	    Simulator.createDataLinkLayers(dataLinkLayerType,
+					   physicalLayers,
+					   framingType,
+					   sizer);
+
+	// Create the network layers, connecting each one to its data
+	// link layer.
+	networkLayers = Simulator.createNetworkLayers(dataLinkLayers);
+
+    } // Simulation
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Pipeline the simulation, so that the sender's encoding, the
+    // medium and the receiver's decoding each run on a thread of
+    // their own, passing bytes on through rings of ringSize bytes.
+    // Only data link layers that do not reply can be pipelined, since
+    // a pipelined link carries traffic one way.
+    public void pipeline (int ringSize) {
+
+	if (scheduler != null) {
+
+	    throw new RuntimeException("Cannot pipeline a scheduled " +
+				       "simulation");
+
+	}
+	for (int i = 0; i < dataLinkLayers.length; i++) {
+
+	    if (dataLinkLayers[i].replies()) {
+
+		throw new RuntimeException("Cannot pipeline a data link " +
+					   "layer that replies");
+
+	    }
+
+	}
+
+	for (int i = 0; i < physicalLayers.length; i++) {
+
+	    physicalLayers[i].pipeline(ringSize);
+
+	}
+	pipelined = true;
+
+    } // pipeline
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Carry the simulation's traffic in virtual time, on a link of
+    // the given bandwidth and delay (in picoseconds), rather than
+    // delivering each frame at once.  Running the simulation then
+    // reports how long the traffic took in simulated time.  A
+    // scheduled simulation cannot also be pipelined, since its
+    // events all run on one thread.
+    public void schedule (long bitsPerSecond, long delay) {
+
+	if (pipelined) {
+
+	    throw new RuntimeException("Cannot schedule a pipelined " +
+				       "simulation");
+
+	}
+
+	scheduler = new EventScheduler();
+	medium.schedule(scheduler, bitsPerSecond, delay);
+
+    } // schedule
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Have both data link layers encode each message of at least
+    // threshold bytes, and decode what frames they can, with several
+    // threads (see DataLinkLayer.parallelize()).
+    public void parallelize (int threshold) {
+
+	for (int i = 0; i < dataLinkLayers.length; i++) {
+
+	    dataLinkLayers[i].parallelize(threshold);
+
+	}
+
+    } // parallelize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Perform the simulation.  If it is pipelined, wait for every
+    // byte sent to be received, and then stop the pipeline.  If it is
+    // scheduled, run events until every byte sent has arrived, and
+    // report the simulated time taken.
+    public void run () {
+
+	Simulator.simulate(networkLayers);
+
+	// Send whatever the physical layers still hold back.
+	for (int i = 0; i < physicalLayers.length; i++) {
+
+	    physicalLayers[i].flush();
+
+	}
+
+	if (scheduler != null) {
+
+	    scheduler.run();
+	    System.out.println("Simulated time: " +
+			       EventScheduler.seconds(scheduler.now()) +
+			       " s, " + scheduler.eventsRun() + " events");
+
+	}
+
+	if (pipelined) {
+
+	    for (int i = 0; i < physicalLayers.length; i++) {
+
+		physicalLayers[i].finishSending();
+
+	    }
+	    for (int i = 0; i < physicalLayers.length; i++) {
+
+		physicalLayers[i].finishReceiving();
+
+	    }
+	    pipelined = false;
+
+	}
+
+	// Report the frame size that the layers settled on, and, if they
+	// adapted it, the bit error rate that led them there.
+	if (sizer != null) {
+
+	    System.out.println("Frame size: " + sizer.frameSize() +
+			       " bytes");
+	    if (sizer instanceof AdaptiveFrameSizeController) {
+
+		System.out.println(
+		    "Estimated bit error rate: " +
+		    ((AdaptiveFrameSizeController)sizer).bitErrorRate());
+
+	    }
+
+	}
+
+    } // run
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The medium that connects the two hosts.
+    final Medium medium;
+
+    // The layers of each host, with the 0th host as the sender and
+    // the 1st as the receiver.
+    final PhysicalLayer[] physicalLayers;
+    final DataLinkLayer[] dataLinkLayers;
+    final NetworkLayer[] networkLayers;
+
+    // The frame size controller that both data link layers share, or
+    // null if each chooses its own frame size.
+    final FrameSizeController sizer;
+
+    // Whether the physical layers run as pipelines.
+    boolean pipelined;
+
+    // The scheduler of the simulation's events, if its traffic is
+    // carried in virtual time, or null.
+    EventScheduler scheduler;
+
+    // The bandwidth and delay of a scheduled link, when only one of
+    // them is given: a megabit a second, and a millisecond.
+    static final long defaultBitsPerSecond = 1000000;
+    static final double defaultDelay = 0.001;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class Simulation
+// ===================================================================
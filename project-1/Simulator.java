@@ -26,40 +26,199 @@ class Simulator {
     // The entry point.  Set up the layers and start the simulation.
     public static void main (String[] args) {
 
-	// Check the number of arguments passed.
-	if (args.length != 2) {
+	// A sweep, an estimate and an analysis take options of their
+	// own.
+	if ((args.length > 0) && args[0].equals("sweep")) {
 
+	    Sweep.main(java.util.Arrays.copyOfRange(args, 1, args.length));
+	    return;
+
+	}
+	if ((args.length > 0) && args[0].equals("patterns")) {
+
+	    ErrorPatternAnalyzer.main(
+		java.util.Arrays.copyOfRange(args, 1, args.length));
+	    return;
+
+	}
+	if ((args.length > 0) && args[0].equals("residual")) {
+
+	    ResidualErrorEstimator.main(
+		java.util.Arrays.copyOfRange(args, 1, args.length));
+	    return;
+
+	}
+
+	// Separate the options from the arguments that name the layers.
+	java.util.List<String> names = new java.util.ArrayList<String>();
+	String frameSize = null;
+	FrameSizeController sizer = null;
+	Simulation simulation = null;
+	int ringSize = 0;
+	int parallelThreshold = 0;
+	double bitsPerSecond = -1;
+	double delay = -1;
+	try {
+
+	    for (int i = 0; i < args.length; i++) {
+
+		String option = args[i];
+		if (!option.startsWith("--")) {
+		    names.add(option);
+		    continue;
+		}
+		if (i + 1 == args.length) {
+		    throw new RuntimeException("No value for " + option);
+		}
+		String value = args[++i];
+
+		if (option.equals("--frame-size")) {
+		    frameSize = value;
+		} else if (option.equals("--pipeline")) {
+		    ringSize = parseCount(option, value);
+		} else if (option.equals("--parallel")) {
+		    parallelThreshold = parseCount(option, value);
+		} else if (option.equals("--bandwidth")) {
+		    bitsPerSecond = parseAmount(option, value);
+		    if (bitsPerSecond == 0) {
+			throw new RuntimeException("Bad value for " + option +
+						   ": " + value);
+		    }
+		} else if (option.equals("--delay")) {
+		    delay = parseAmount(option, value);
+		} else {
+		    throw new RuntimeException("Unknown option " + option);
+		}
+
+	    }
+
+	    // Check the number of arguments passed.
+	    if ((names.size() < 2) || (names.size() > 4)) {
+		throw new RuntimeException("Wrong number of arguments");
+	    }
+
+	    // Only a layer that takes a frame size controller can be
+	    // given a frame size.
+	    if (frameSize != null) {
+		sizer = createFrameSizeController(frameSize);
+		if (!Sweep.takesFrameSize(names.get(1))) {
+		    throw new RuntimeException(names.get(1) + " layers " +
+					       "cannot take a frame size");
+		}
+	    }
+
+	    // A pipeline runs on threads of its own, and a schedule on
+	    // one thread, in simulated time; a link cannot do both.
+	    if ((ringSize > 0) && ((bitsPerSecond >= 0) || (delay >= 0))) {
+		throw new RuntimeException("Cannot both pipeline and " +
+					   "schedule a simulation");
+	    }
+
+	    // Create the medium and the layers of both hosts, sharing a
+	    // frame size controller if a frame size was asked for.
+	    // Whether the layers can be run as asked is checked here
+	    // too: a layer that replies cannot be pipelined.
+	    String framingType = (names.size() >= 3) ? names.get(2) : null;
+	    String interleaving = (names.size() == 4) ? names.get(3) : null;
+	    simulation = new Simulation(createMedium(names.get(0)),
+					names.get(1), framingType,
+					interleaving, sizer);
+
+	    // Run the layers as a pipeline of threads, if asked.
+	    if (ringSize > 0) {
+		simulation.pipeline(ringSize);
+	    }
+
+	    // Carry the traffic in simulated time, if a bandwidth or a
+	    // delay is given, taking the default for the other.
+	    if ((bitsPerSecond >= 0) || (delay >= 0)) {
+		simulation.schedule(
+		    Math.round((bitsPerSecond > 0) ?
+			       bitsPerSecond :
+			       Simulation.defaultBitsPerSecond),
+		    EventScheduler.time((delay >= 0) ?
+					delay :
+					Simulation.defaultDelay));
+	    }
+
+	    // Encode and decode large messages with several threads, if
+	    // asked.
+	    if (parallelThreshold > 0) {
+		simulation.parallelize(parallelThreshold);
+	    }
+
+	} catch (RuntimeException e) {
+
+	    System.err.println(e.getMessage());
 	    System.err.println("Usage: java Simulator " +
 			       "<medium type> " +
-			       "<data link layer type> ");
+			       "<data link layer type> " +
+			       "[<framing type> " +
+			       "[<interleaver rows>x<row length>]] " +
+			       "[--frame-size <bytes>|adaptive] " +
+			       "[--pipeline <ring bytes>] " +
+			       "[--parallel <message bytes>] " +
+			       "[--bandwidth <bits/s>] [--delay <seconds>]");
+	    System.err.println("       java Simulator sweep [<options>]");
+	    System.err.println("       java Simulator residual [<options>]");
+	    System.err.println("       java Simulator patterns [<options>]");
 	    System.exit(1);
 
 	}
 
-	// Assign names to the arguments.
-	String mediumType = args[0];
-	String dataLinkLayerType = args[1];
+	// Perform the simulation!
+	simulation.run();
 
-	// Create the medium (there is only one).
-	Medium medium = createMedium(mediumType);
+    } // main
+    // ===============================================================
 
-	// Create the physical layers.
-	PhysicalLayer[] physicalLayers = createPhysicalLayers(medium);
 
-	// Create the requested data link layers, connecting each one
-	// to its physical layer.
-	DataLinkLayer[] dataLinkLayers =
-	    createDataLinkLayers(dataLinkLayerType, physicalLayers);
 
-	// Create the requested network layers, connecting each one to
-	// its data link layer.
-	NetworkLayer[] networkLayers =
-	    createNetworkLayers(dataLinkLayers);
+    // ===============================================================
+    // Parse the value of an option that counts something, and so must
+    // be positive.
+    protected static int parseCount (String option, String value) {
 
-	// Perform the simulation!
-	simulate(networkLayers);
+	int count = 0;
+	try {
+	    count = Integer.parseInt(value);
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Bad value for " + option + ": " +
+				       value);
+	}
+	if (count <= 0) {
+	    throw new RuntimeException("Bad value for " + option + ": " +
+				       value);
+	}
 
-    } // main
+	return count;
+
+    } // parseCount
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Parse the value of an option that measures something, such as a
+    // bandwidth or a delay, and so must be a finite number, and not
+    // negative.
+    protected static double parseAmount (String option, String value) {
+
+	double amount = 0;
+	try {
+	    amount = Double.parseDouble(value);
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Bad value for " + option + ": " +
+				       value);
+	}
+	if (!(amount >= 0) || Double.isInfinite(amount)) {
+	    throw new RuntimeException("Bad value for " + option + ": " +
+				       value);
+	}
+
+	return amount;
+
+    } // parseAmount
     // ===============================================================
 
 
@@ -105,17 +264,87 @@ class Simulator {
 
 
 
+    // ===============================================================
+    // Create the requested framing type and return it.  Each data
+    // link layer needs its own, since a framing may keep state while
+    // it builds a frame.
+    protected static Framing createFraming (String framingType) {
+
+	// Look up the class by name.
+	String className = framingType + "Framing";
+	Class<?> framingClass = null;
+	try {
+	    framingClass = Class.forName(className);
+	} catch (ClassNotFoundException e) {
+	    throw new RuntimeException("Unknown framing subclass " +
+				       className);
+	}
+
+	// Make a className object, and then see if it really is a
+	// Framing subclass.
+	Object o = null;
+	try {
+	    o = framingClass.getDeclaredConstructor().newInstance();
+	} catch (NoSuchMethodException e) {
+	    throw new RuntimeException("No () constructor in " +
+				       className);
+	} catch (InstantiationException e) {
+	    throw new RuntimeException("Could not instantiate " +
+				       className);
+	} catch (IllegalAccessException e) {
+	    throw new RuntimeException("Could not access " +
+				       className);
+	} catch (InvocationTargetException e) {
+	    throw new RuntimeException("Cannot invoke constructor for " +
+				       className);
+	}
+	if (!(o instanceof Framing)) {
+	    throw new RuntimeException(className +
+				       " is not a subclass of Framing");
+	}
+
+	return (Framing)o;
+
+    } // createFraming
+    // ===============================================================
+
+
+
     // ===============================================================
     // Create the requested physical layer type for each of the two
     // hosts.
     protected static PhysicalLayer[]
 	createPhysicalLayers (Medium medium) {
 
+	return createPhysicalLayers(medium, null);
+
+    } // createPhysicalLayers
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create a physical layer for each of the two hosts, each with
+    // its own interleaver if a geometry of the form
+    // "<rows>x<row length>" is given, or plain if it is null.
+    protected static PhysicalLayer[]
+	createPhysicalLayers (Medium medium, String interleaving) {
+
 	PhysicalLayer[] physicalLayers = new PhysicalLayer[2];
 
 	for (int i = 0; i < physicalLayers.length; i++) {
 
-	    physicalLayers[i] = new PhysicalLayer(medium);
+	    if (interleaving == null) {
+
+		physicalLayers[i] = new PhysicalLayer(medium);
+
+	    } else {
+
+		physicalLayers[i] =
+		    new InterleavedPhysicalLayer(medium,
+						 createInterleaver(interleaving));
+
+	    }
 
 	}
 
@@ -126,13 +355,100 @@ class Simulator {
 
 
 
+    // ===============================================================
+    // Create an interleaver from a geometry of the form
+    // "<rows>x<row length>".
+    protected static BlockInterleaver createInterleaver (String geometry) {
+
+	String[] parts = geometry.split("x");
+	if (parts.length != 2) {
+	    throw new RuntimeException("Bad interleaver geometry " +
+				       geometry);
+	}
+
+	try {
+	    return new BlockInterleaver(Integer.parseInt(parts[0]),
+					Integer.parseInt(parts[1]));
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Bad interleaver geometry " +
+				       geometry);
+	}
+
+    } // createInterleaver
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create a frame size controller: one that always chooses the
+    // given number of bytes, or one that adapts to the link if the
+    // size is "adaptive".
+    protected static FrameSizeController
+	createFrameSizeController (String frameSize) {
+
+	if (frameSize.equals("adaptive")) {
+
+	    return new AdaptiveFrameSizeController(
+		AdaptiveFrameSizeController.defaultFrameSize,
+		AdaptiveFrameSizeController.defaultMinFrameSize,
+		AdaptiveFrameSizeController.defaultMaxFrameSize);
+
+	}
+
+	try {
+	    return new FrameSizeController(Integer.parseInt(frameSize));
+	} catch (NumberFormatException e) {
+	    throw new RuntimeException("Bad frame size " + frameSize);
+	}
+
+    } // createFrameSizeController
+    // ===============================================================
+
+
+
     // ===============================================================
     // Create the requested data link layer type for each of the two
-    // hosts.
+    // hosts, each with its default framing.
     protected static DataLinkLayer[]
 	createDataLinkLayers (String dataLinkType,
 			      PhysicalLayer[] physicalLayers) {
 
+	return createDataLinkLayers(dataLinkType, physicalLayers, null);
+
+    } // createDataLinkLayers
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create the requested data link layer type for each of the two
+    // hosts, each with its own framing of the requested type.  A null
+    // framing type leaves each layer with its default framing.
+    protected static DataLinkLayer[]
+	createDataLinkLayers (String dataLinkType,
+			      PhysicalLayer[] physicalLayers,
+			      String framingType) {
+
+	return createDataLinkLayers(dataLinkType, physicalLayers,
+				    framingType, null);
+
+    } // createDataLinkLayers
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create the requested data link layer type for each of the two
+    // hosts, each with its own framing of the requested type (or
+    // with start/stop tags, if none is requested), and both sharing
+    // the given frame size controller.  A null controller leaves
+    // each layer to choose its frame size by itself.
+    protected static DataLinkLayer[]
+	createDataLinkLayers (String dataLinkType,
+			      PhysicalLayer[] physicalLayers,
+			      String framingType,
+			      FrameSizeController sizer) {
+
 	// Look up the class by name.
 	String className = dataLinkType + "DataLinkLayer";
 	Class<?> dataLinkClass = null;
@@ -150,22 +466,47 @@ class Simulator {
 	for (int i = 0; i < dataLinkLayers.length; i++) {
 
 	    // Lookup the constructor needed to make a new data link
-	    // layer.
-	    Class<?>[] parameters = { PhysicalLayer.class };
+	    // layer, and gather its arguments.
+	    Class<?>[] parameters = null;
+	    Object[] arguments = null;
+	    if (sizer != null) {
+		parameters = new Class<?>[] { PhysicalLayer.class,
+					      Framing.class,
+					      FrameSizeController.class };
+		arguments = new Object[] { physicalLayers[i],
+					   createFraming((framingType == null) ?
+							 "Stuffed" :
+							 framingType),
+					   sizer };
+	    } else if (framingType == null) {
+		parameters = new Class<?>[] { PhysicalLayer.class };
+		arguments = new Object[] { physicalLayers[i] };
+	    } else {
+		parameters = new Class<?>[] { PhysicalLayer.class,
+					      Framing.class };
+		arguments = new Object[] { physicalLayers[i],
+					   createFraming(framingType) };
+	    }
 	    Constructor dataLinkConstructor = null;
 	    try {
 		dataLinkConstructor =
 		    dataLinkClass.getConstructor(parameters);
 	    } catch (Exception e) {
-		throw new RuntimeException("No (PhysicalLayer) constructor in " +
-					   className);
+		throw new RuntimeException("No " +
+					   ((sizer != null) ?
+					    "(PhysicalLayer, Framing, " +
+					    "FrameSizeController)" :
+					    (framingType == null) ?
+					    "(PhysicalLayer)" :
+					    "(PhysicalLayer, Framing)") +
+					   " constructor in " + className);
 	    }
 
 	    // Make the requested kind of data link layer.
 	    DataLinkLayer dataLinkLayer = null;
 	    try {
 		dataLinkLayers[i] =
-		    (DataLinkLayer)dataLinkConstructor.newInstance(physicalLayers[i]);
+		    (DataLinkLayer)dataLinkConstructor.newInstance(arguments);
 	    } catch (ClassCastException e) {
 		throw new RuntimeException(className +
 					   " is not a subclass of DataLinkLayer");
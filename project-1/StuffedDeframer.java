@@ -0,0 +1,129 @@
+// ===================================================================
+// StuffedDeframer
+// ===================================================================
+
+
+
+// ===================================================================
+// A deframer for StuffedFraming: frames bounded by start and stop
+// tags, with any data byte that looks like a tag preceded by an
+// escape tag.
+//
+// Between frames the deframer hunts for a start tag, ignoring
+// anything else.  Within a frame, an unescaped start tag means that
+// the frame's stop tag was lost, so the partial frame is abandoned
+// and a new one begun.  Noise that corrupts a tag thus costs at most
+// the frames it touches.
+class StuffedDeframer extends Deframer {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Decode frames that use the given tags.
+    public StuffedDeframer (byte startTag,
+			    byte stopTag,
+			    byte escapeTag,
+			    int maxLength,
+			    FrameCheck check) {
+
+	super(maxLength, check);
+	this.startTag = startTag;
+	this.stopTag = stopTag;
+	this.escapeTag = escapeTag;
+	started = false;
+
+    } // StuffedDeframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public boolean push (byte data) {
+
+	// Between frames, discard everything up to the next start tag.
+	if (!started) {
+
+	    if (data == startTag) {
+
+		started = true;
+		escaped = false;
+		begin();
+
+	    } else {
+
+		discardedBytes++;
+
+	    }
+	    return false;
+
+	}
+
+	// An escaped byte is always data.
+	if (escaped) {
+
+	    escaped = false;
+	    started = append(data);
+	    return false;
+
+	}
+
+	if (data == escapeTag) {
+
+	    escaped = true;
+
+	} else if (data == stopTag) {
+
+	    // An unescaped stop tag ends the frame.
+	    started = false;
+	    return true;
+
+	} else if (data == startTag) {
+
+	    // An unescaped start tag cannot appear inside a frame, so
+	    // this frame's stop tag must have been lost.  Resynchronise
+	    // on the new frame.
+	    abandon();
+	    begin();
+
+	} else {
+
+	    started = append(data);
+
+	}
+	return false;
+
+    } // push
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The start tag, stop tag, and the escape tag.
+    final byte startTag;
+    final byte stopTag;
+    final byte escapeTag;
+
+    // Whether a frame is under way (rather than hunting for a start
+    // tag), and whether the last byte was an escape tag.
+    boolean started;
+    boolean escaped;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class StuffedDeframer
+// ===================================================================
@@ -0,0 +1,140 @@
+// ===================================================================
+// StuffedFraming
+// ===================================================================
+
+
+
+// ===================================================================
+// Framing by start and stop tags, with byte stuffing: any byte of
+// content that looks like a tag is preceded by an escape tag.  A
+// frame can thus grow to twice its content plus its tags.
+class StuffedFraming extends Framing {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Use the usual tags.
+    public StuffedFraming () {
+
+	this((byte)'{', (byte)'}', (byte)'\\');
+
+    } // StuffedFraming
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The constructor.  Use the given tags.
+    public StuffedFraming (byte startTag, byte stopTag, byte escapeTag) {
+
+	this.startTag = startTag;
+	this.stopTag = stopTag;
+	this.escapeTag = escapeTag;
+
+    } // StuffedFraming
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int maxFrameLength (int contentLength) {
+
+	return (contentLength * 2) + 2;
+
+    } // maxFrameLength
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int begin (byte[] frame) {
+
+	// Begin with the start tag.
+	frame[0] = startTag;
+	return 1;
+
+    } // begin
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int put (byte data, byte[] frame, int index) {
+
+	// If the current data byte is itself a metadata tag, then
+	// preceed it with an escape tag.
+	if ((data == startTag) ||
+	    (data == stopTag) ||
+	    (data == escapeTag)) {
+
+	    frame[index++] = escapeTag;
+
+	}
+
+	// Add the data byte itself.
+	frame[index++] = data;
+	return index;
+
+    } // put
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public int end (byte[] frame, int index) {
+
+	// End with a stop tag.
+	frame[index++] = stopTag;
+	return index;
+
+    } // end
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public Framing copy () {
+
+	return new StuffedFraming(startTag, stopTag, escapeTag);
+
+    } // copy
+    // ===============================================================
+
+
+
+    // ===============================================================
+    public Deframer createDeframer (int maxLength, FrameCheck check) {
+
+	return new StuffedDeframer(startTag, stopTag, escapeTag,
+				   maxLength, check);
+
+    } // createDeframer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The start tag, stop tag, and the escape tag.
+    final byte startTag;
+    final byte stopTag;
+    final byte escapeTag;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class StuffedFraming
+// ===================================================================
@@ -0,0 +1,816 @@
+// ===================================================================
+// Sweep
+// ===================================================================
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+// ===================================================================
+
+
+
+// ===================================================================
+// A sweep over a grid of link parameters: every combination of the
+// media, data link layers, error rates and frame sizes given is
+// simulated, each as a link of its own, many at once on a pool of
+// threads.  One row of results is written for each combination, in
+// the order of the grid, as soon as it and every row before it are
+// done.  A frame size may be given as "adaptive", in which case the
+// layers share an AdaptiveFrameSizeController that chooses it.  A
+// layer with a fixed frame size of its own (Reed-Solomon, or the
+// convolutional code) takes only that size.  The grid is checked
+// before any of it is run.
+//
+// Each combination sends a number of random messages of one frame
+// each (of the size chosen at the time), and the receiving end
+// compares every message delivered with those sent and not yet
+// delivered.  Since messages arrive in the order sent, a delivery
+// that matches one of them is that message, intact, and any sent
+// before it are lost; any other delivery is data that the layer
+// failed to notice was corrupted.
+//
+// Given a bandwidth or a delay, each combination carries its traffic
+// in simulated time (see Simulation.schedule()), and reports how long
+// it took.  Otherwise the media deliver each frame at once.  A row
+// reports:
+//
+//   sizing        "fixed", or "adaptive"
+//   frameSize     the frame size, at the end of the run
+//   delivered     the messages delivered, intact or not
+//   corrupted     those delivered with an undetected error
+//   lost          the messages never delivered intact
+//   framesDropped the frames that the layers' frame size controller
+//                 saw fail (for ARQ, those whose timers expired too)
+//   bitsCarried   the bits that the medium carried, both ways
+//   goodput       the intact data bits delivered per bit carried,
+//                 i.e. the share of the link's capacity put to use
+//   residualErrorRate  corrupted / delivered
+//   bitErrorRate  the bit error rate that an adaptive controller
+//                 estimated (empty for a fixed size)
+//   simulatedTime the seconds of simulated time that the traffic
+//                 took (empty unless it was scheduled)
+//
+// Every random choice of a combination -- its messages, and its
+// medium's noise -- comes from a seed of its own, drawn in the order
+// of the grid from one seed for the whole sweep.  A sweep is thus
+// reproducible from its seed however many threads run it, and no two
+// combinations share a random stream.
+class Sweep {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The entry point, reached as "java Simulator sweep <options>".
+    public static void main (String[] args) {
+
+	Sweep sweep = new Sweep();
+	String format = "csv";
+	String output = null;
+	boolean verbose = false;
+	double bitsPerSecond = -1;
+	double delay = -1;
+
+	try {
+
+	    for (int i = 0; i < args.length; i++) {
+
+		String option = args[i];
+		if (option.equals("--verbose")) {
+		    verbose = true;
+		    continue;
+		}
+		if (i + 1 == args.length) {
+		    throw new RuntimeException("No value for " + option);
+		}
+		String value = args[++i];
+
+		if (option.equals("--media")) {
+		    sweep.media = value.split(",");
+		} else if (option.equals("--layers")) {
+		    sweep.layers = value.split(",");
+		} else if (option.equals("--rates")) {
+		    sweep.rates = parseDoubles(value);
+		} else if (option.equals("--frame-sizes")) {
+		    sweep.frameSizes = value.split(",");
+		} else if (option.equals("--framing")) {
+		    sweep.framing = value;
+		} else if (option.equals("--messages")) {
+		    sweep.messages = Integer.parseInt(value);
+		} else if (option.equals("--seed")) {
+		    sweep.seed = Long.parseLong(value);
+		} else if (option.equals("--threads")) {
+		    sweep.threads = Integer.parseInt(value);
+		} else if (option.equals("--bandwidth")) {
+		    bitsPerSecond = Simulator.parseAmount(option, value);
+		    if (bitsPerSecond == 0) {
+			throw new RuntimeException("Bad value for " +
+						   option + ": " + value);
+		    }
+		} else if (option.equals("--delay")) {
+		    delay = Simulator.parseAmount(option, value);
+		} else if (option.equals("--format")) {
+		    format = value;
+		} else if (option.equals("--output")) {
+		    output = value;
+		} else {
+		    throw new RuntimeException("Unknown option " + option);
+		}
+
+	    }
+
+	    if (!format.equals("csv") && !format.equals("json")) {
+		throw new RuntimeException("Unknown format " + format);
+	    }
+	    sweep.check();
+
+	} catch (RuntimeException e) {
+
+	    System.err.println(e.getMessage());
+	    System.err.println("Usage: java Simulator sweep " +
+			       "[--media <medium>,...] " +
+			       "[--layers <data link layer>,...] " +
+			       "[--rates <error rate>,...] " +
+			       "[--frame-sizes <bytes>|adaptive,...] " +
+			       "[--framing <framing>] " +
+			       "[--messages <count>] " +
+			       "[--seed <seed>] " +
+			       "[--threads <count>] " +
+			       "[--bandwidth <bits/s>] " +
+			       "[--delay <seconds>] " +
+			       "[--format csv|json] " +
+			       "[--output <file>] " +
+			       "[--verbose]");
+	    System.exit(1);
+
+	}
+
+	// Carry the traffic in simulated time, if a bandwidth or a delay
+	// is given, taking the default for the other.
+	if ((bitsPerSecond >= 0) || (delay >= 0)) {
+
+	    sweep.bitsPerSecond =
+		Math.round((bitsPerSecond >= 0) ?
+			   bitsPerSecond :
+			   Simulation.defaultBitsPerSecond);
+	    sweep.delay = EventScheduler.time((delay >= 0) ?
+					      delay :
+					      Simulation.defaultDelay);
+
+	}
+
+	// The layers report every damaged frame, which at thousands of
+	// frames a second only slows the sweep down.  A failure of the
+	// sweep itself is still reported, on the real error stream.
+	PrintStream err = System.err;
+	if (!verbose) {
+
+	    System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+
+	}
+
+	PrintStream out = System.out;
+	try {
+
+	    if (output != null) {
+
+		try {
+		    out = new PrintStream(output);
+		} catch (FileNotFoundException e) {
+		    throw new RuntimeException("Cannot write " + output);
+		}
+
+	    }
+	    sweep.run(out, format);
+	    out.flush();
+
+	} catch (RuntimeException e) {
+
+	    out.flush();
+	    err.println(e.getMessage());
+	    System.exit(1);
+
+	}
+
+    } // main
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Simulate every combination of the grid, writing a row for each
+    // to the given stream as "csv" or as "json" (one object per
+    // line).
+    public void run (PrintStream out, String format) {
+
+	boolean json = format.equals("json");
+	if (!json && !format.equals("csv")) {
+
+	    throw new RuntimeException("Unknown format " + format);
+
+	}
+
+	// Lay out the grid, drawing each point's seed in order.
+	SplittableRandom seeds = new SplittableRandom(seed);
+	List<Point> points = new ArrayList<Point>();
+	for (String medium : media) {
+	    for (String layer : layers) {
+		for (double rate : rates) {
+		    for (String frameSize : frameSizes) {
+
+			points.add(new Point(medium, layer, rate, frameSize,
+					     framing, messages,
+					     seeds.nextLong(),
+					     bitsPerSecond, delay));
+
+		    }
+		}
+	    }
+	}
+
+	// Run them all, and write each row once those before it are.
+	ExecutorService executor = Executors.newFixedThreadPool(threads);
+	try {
+
+	    List<Future<Point>> results = new ArrayList<Future<Point>>();
+	    for (Point point : points) {
+
+		results.add(executor.submit(point::run));
+
+	    }
+
+	    if (!json) {
+
+		out.println(csvHeader);
+
+	    }
+	    for (Future<Point> result : results) {
+
+		Point point = null;
+		try {
+		    point = result.get();
+		} catch (InterruptedException e) {
+		    throw new RuntimeException("Sweep interrupted");
+		} catch (ExecutionException e) {
+		    throw new RuntimeException("Sweep failed: " +
+					       e.getCause(), e.getCause());
+		}
+		out.println(json ? point.json() : point.csv());
+
+	    }
+
+	} finally {
+
+	    executor.shutdownNow();
+
+	}
+
+    } // run
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Check every point of the grid without running it: each medium
+    // must exist and take each error rate, the framing must exist,
+    // and each data link layer must exist and take each frame size.
+    public void check () {
+
+	if (framing != null) {
+
+	    Simulator.createFraming(framing);
+
+	}
+	for (String medium : media) {
+	    for (double rate : rates) {
+
+		createMedium(medium, rate, seed);
+
+	    }
+	}
+	for (String layer : layers) {
+	    for (String frameSize : frameSizes) {
+
+		checkFrameSize(layer, frameSize, framing);
+
+	    }
+	}
+
+    } // check
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create the medium of the given type, with the given error rate
+    // where the medium has one, and the given seed for its noise.
+    static Medium createMedium (String mediumType, double rate, long seed) {
+
+	if (mediumType.equals("LowNoise")) {
+
+	    return new LowNoiseMedium(rate, seed);
+
+	}
+	if (mediumType.equals("BurstyNoise")) {
+
+	    return new BurstyNoiseMedium(
+		BurstyNoiseMedium.defaultBurstProbability,
+		1.0 / BurstyNoiseMedium.defaultBurstLength,
+		0.0,
+		rate,
+		seed);
+
+	}
+
+	return Simulator.createMedium(mediumType);
+
+    } // createMedium
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return whether a data link layer type lets its frame size be
+    // chosen by a controller.
+    static boolean takesFrameSize (String dataLinkLayerType) {
+
+	try {
+	    Class.forName(dataLinkLayerType + "DataLinkLayer")
+		.getConstructor(PhysicalLayer.class,
+				Framing.class,
+				FrameSizeController.class);
+	    return true;
+	} catch (ClassNotFoundException e) {
+	    throw new RuntimeException("Unknown data link subclass " +
+				       dataLinkLayerType + "DataLinkLayer");
+	} catch (NoSuchMethodException e) {
+	    return false;
+	}
+
+    } // takesFrameSize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Check that a data link layer type exists, and that it can carry
+    // frames of the given size: any size, or "adaptive", if it takes a
+    // frame size controller; any size if it has no frame size of its
+    // own, and so sends each message as one frame; and otherwise only
+    // the size it chooses for itself.
+    static void checkFrameSize (String dataLinkLayerType,
+				String frameSize,
+				String framing) {
+
+	if (takesFrameSize(dataLinkLayerType)) {
+
+	    Simulator.createFrameSizeController(frameSize);
+	    return;
+
+	}
+	if (frameSize.equals("adaptive")) {
+
+	    throw new RuntimeException(dataLinkLayerType + " layers cannot " +
+				       "adapt their frame size");
+
+	}
+
+	// Make a layer of the type, to see what size it chooses.
+	int size = Simulator.createFrameSizeController(frameSize).frameSize();
+	FrameSizeController own =
+	    Simulator.createDataLinkLayers(
+		dataLinkLayerType,
+		Simulator.createPhysicalLayers(new PerfectMedium()),
+		framing)[0].sizer;
+	if ((own != null) && (own.frameSize() != size)) {
+
+	    throw new RuntimeException(dataLinkLayerType + " layers send " +
+				       own.frameSize() + "-byte frames, " +
+				       "not " + size);
+
+	}
+
+    } // checkFrameSize
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Parse a list of numbers separated by commas.
+    private static double[] parseDoubles (String list) {
+
+	return Arrays.stream(list.split(","))
+	    .mapToDouble(Double::parseDouble).toArray();
+
+    } // parseDoubles
+    // ===============================================================
+
+
+
+    // ===================================================================
+    // One point of the grid: its parameters, and once it has been run,
+    // its results.
+    static class Point {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// The constructor.  The point's traffic is delivered at once.
+	Point (String medium,
+	       String layer,
+	       double rate,
+	       String frameSize,
+	       String framing,
+	       int messages,
+	       long seed) {
+
+	    this(medium, layer, rate, frameSize, framing, messages, seed,
+		 0, 0);
+
+	} // Point
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The constructor.  The point's traffic is carried in simulated
+	// time at the given bandwidth and delay (in picoseconds), unless
+	// the bandwidth is 0.
+	Point (String medium,
+	       String layer,
+	       double rate,
+	       String frameSize,
+	       String framing,
+	       int messages,
+	       long seed,
+	       long bitsPerSecond,
+	       long delay) {
+
+	    this.medium = medium;
+	    this.layer = layer;
+	    this.rate = rate;
+	    this.frameSize = frameSize;
+	    this.framing = framing;
+	    this.messages = messages;
+	    this.seed = seed;
+	    this.bitsPerSecond = bitsPerSecond;
+	    this.delay = delay;
+
+	} // Point
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Build a link with this point's parameters, send the messages
+	// across it, and record what arrives.  Return this point.
+	Point run () {
+
+	    SplittableRandom random = new SplittableRandom(seed);
+	    Medium link = createMedium(medium, rate, random.nextLong());
+	    EventScheduler scheduler = null;
+	    if (bitsPerSecond > 0) {
+
+		scheduler = new EventScheduler();
+		link.schedule(scheduler, bitsPerSecond, delay);
+
+	    }
+	    PhysicalLayer[] physicalLayers =
+		Simulator.createPhysicalLayers(link);
+
+	    // Give the layers the frame size if they take one; otherwise
+	    // send messages of whatever size they choose.
+	    checkFrameSize(layer, frameSize, framing);
+	    FrameSizeController sizer = takesFrameSize(layer) ?
+		Simulator.createFrameSizeController(frameSize) :
+		null;
+	    DataLinkLayer[] dataLinkLayers =
+		Simulator.createDataLinkLayers(layer, physicalLayers,
+					       framing, sizer);
+	    Probe sender = new Probe(dataLinkLayers[0]);
+	    Probe receiver = new Probe(dataLinkLayers[1]);
+	    FrameSizeController controller = dataLinkLayers[1].sizer;
+
+	    // Make each message one frame of the size chosen just then,
+	    // which changes only if the layers adapt it.  In simulated
+	    // time, each is sent once the one before has gone out on the
+	    // wire, so that what has arrived by then may be taken into
+	    // account.
+	    byte[] message = new byte[0];
+	    for (int i = 0; i < messages; i++) {
+
+		if (scheduler != null) {
+
+		    scheduler.runUntil(physicalLayers[0].transmitterFreeAt);
+
+		}
+		int messageLength = (controller != null) ?
+		    controller.frameSize() :
+		    Integer.parseInt(frameSize);
+		if (message.length != messageLength) {
+
+		    message = new byte[messageLength];
+
+		}
+		random.nextBytes(message);
+		receiver.expect(message);
+		dataLinkLayers[0].send(message);
+
+	    }
+
+	    // Deliver whatever is still on its way.
+	    if (scheduler != null) {
+
+		scheduler.run();
+
+	    }
+
+	    sent = messages;
+	    actualFrameSize = (controller != null) ?
+		controller.frameSize() :
+		Integer.parseInt(frameSize);
+	    bitErrorRate = (controller instanceof AdaptiveFrameSizeController) ?
+		((AdaptiveFrameSizeController)controller).bitErrorRate() :
+		Double.NaN;
+	    simulatedTime = (scheduler == null) ? Double.NaN :
+		EventScheduler.seconds(scheduler.now());
+	    delivered = receiver.delivered;
+	    corrupted = receiver.corrupted;
+	    intact = receiver.intact;
+	    intactBytes = receiver.intactBytes;
+	    framesDropped = (controller == null) ? 0 :
+		controller.framesFailed();
+	    bitsCarried = link.bitsCarried;
+	    return this;
+
+	} // run
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Return the share of the bits carried that were intact data.
+	double goodput () {
+
+	    return (bitsCarried == 0) ? 0.0 :
+		(8.0 * intactBytes) / bitsCarried;
+
+	} // goodput
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Return how the frame size was chosen: "adaptive", or "fixed".
+	String sizing () {
+
+	    return frameSize.equals("adaptive") ? "adaptive" : "fixed";
+
+	} // sizing
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Return the share of deliveries that were corrupted.
+	double residualErrorRate () {
+
+	    return (delivered == 0) ? 0.0 : (double)corrupted / delivered;
+
+	} // residualErrorRate
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Format the results as a row of comma-separated values, or as
+	// a JSON object, with the fields of csvHeader.
+	String csv () {
+
+	    return medium + "," + layer + "," + rate + "," + sizing() + "," +
+		actualFrameSize + "," + seed + "," + sent + "," +
+		delivered + "," + corrupted + "," + (sent - intact) + "," +
+		framesDropped + "," + bitsCarried + "," + goodput() + "," +
+		residualErrorRate() + "," +
+		(Double.isNaN(bitErrorRate) ? "" : bitErrorRate) + "," +
+		(Double.isNaN(simulatedTime) ? "" : simulatedTime);
+
+	} // csv
+
+	String json () {
+
+	    return "{\"medium\":\"" + medium + "\"," +
+		"\"layer\":\"" + layer + "\"," +
+		"\"rate\":" + rate + "," +
+		"\"sizing\":\"" + sizing() + "\"," +
+		"\"frameSize\":" + actualFrameSize + "," +
+		"\"seed\":" + seed + "," +
+		"\"messages\":" + sent + "," +
+		"\"delivered\":" + delivered + "," +
+		"\"corrupted\":" + corrupted + "," +
+		"\"lost\":" + (sent - intact) + "," +
+		"\"framesDropped\":" + framesDropped + "," +
+		"\"bitsCarried\":" + bitsCarried + "," +
+		"\"goodput\":" + goodput() + "," +
+		"\"residualErrorRate\":" + residualErrorRate() + "," +
+		"\"bitErrorRate\":" +
+		(Double.isNaN(bitErrorRate) ? "null" : bitErrorRate) + "," +
+		"\"simulatedTime\":" +
+		(Double.isNaN(simulatedTime) ? "null" : simulatedTime) + "}";
+
+	} // json
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The parameters of the point, the framing (or null), the
+	// messages to send, the seed of its randomness, and the
+	// bandwidth (or 0, if its traffic is delivered at once) and
+	// delay of its link.
+	final String medium;
+	final String layer;
+	final double rate;
+	final String frameSize;
+	final String framing;
+	final int messages;
+	final long seed;
+	final long bitsPerSecond;
+	final long delay;
+
+	// The results: the messages sent, and the frame size at the end;
+	// the bit error rate that an adaptive frame size controller
+	// estimated (or NaN); the simulated time that the traffic took
+	// (or NaN); the deliveries, those corrupted, and the
+	// messages delivered intact and the bytes in them; the frames
+	// that failed; and the bits on the medium.
+	int sent;
+	int actualFrameSize;
+	double bitErrorRate;
+	double simulatedTime;
+	long delivered;
+	long corrupted;
+	long intact;
+	long intactBytes;
+	long framesDropped;
+	long bitsCarried;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Point
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A network layer that checks what it receives against the messages
+    // sent to it that have yet to arrive.
+    static class Probe extends NetworkLayer {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// The constructor.
+	Probe (DataLinkLayer dataLinkLayer) {
+
+	    super(dataLinkLayer);
+
+	} // Probe
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Note the message about to be sent to this layer, which may be
+	// reused once it has been sent.
+	void expect (byte[] message) {
+
+	    expected.add(message.clone());
+
+	} // expect
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Count a delivery as intact if it is one of the messages still
+	// expected, and forget that message and those sent before it,
+	// which can no longer arrive; otherwise, count it as corrupted.
+	void receive (byte[] data) {
+
+	    delivered++;
+	    int position = 0;
+	    for (byte[] message : expected) {
+
+		if (Arrays.equals(data, message)) {
+
+		    break;
+
+		}
+		position++;
+
+	    }
+
+	    if (position < expected.size()) {
+
+		for (int i = 0; i <= position; i++) {
+
+		    expected.remove();
+
+		}
+		intact++;
+		intactBytes += data.length;
+
+	    } else {
+
+		corrupted++;
+
+	    }
+
+	} // receive
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The messages sent that have yet to arrive, oldest first; and
+	// the counts of deliveries, intact (and the bytes in them) and
+	// corrupted.
+	final ArrayDeque<byte[]> expected = new ArrayDeque<byte[]>();
+	long delivered;
+	long intact;
+	long intactBytes;
+	long corrupted;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Probe
+    // ===================================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The grid: the media, data link layers, error rates and frame
+    // sizes to combine, and the framing for every layer (or null for
+    // each layer's default).
+    String[] media = { "Perfect", "LowNoise", "BurstyNoise" };
+    String[] layers = { "Parity", "CRC", "Hamming" };
+    double[] rates = { 0.001, 0.01 };
+    String[] frameSizes = { "8" };
+    String framing;
+
+    // The messages sent at each point, the seed of the whole sweep,
+    // and the number of threads that run it.
+    int messages = 10000;
+    long seed = 0;
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    // The bandwidth and delay (in picoseconds) of every link, if its
+    // traffic is carried in simulated time; otherwise, 0.
+    long bitsPerSecond = 0;
+    long delay = 0;
+
+    // The fields of each row.
+    static final String csvHeader =
+	"medium,layer,rate,sizing,frameSize,seed,messages,delivered," +
+	"corrupted,lost,framesDropped,bitsCarried,goodput," +
+	"residualErrorRate,bitErrorRate,simulatedTime";
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class Sweep
+// ===================================================================
@@ -0,0 +1,406 @@
+// =============================================================================
+/**
+ * A streaming Viterbi decoder for a {@link ConvolutionalCode}.  Code bytes are
+ * pushed in as they arrive, and the decoder keeps, for every state of the
+ * code's memory, the number of bit errors on the best path into it (its path
+ * metric).  Each data bit costs one add-compare-select step: for every state,
+ * the two paths into it are extended by the new pair of code bits, and the
+ * better one survives.  The states are taken in butterflies, each pair of
+ * previous states feeding the same pair of new ones.  Which one survived is
+ * recorded as one bit per state, so a whole step's decisions fit in a single
+ * <tt>long</tt>.
+ *
+ * The decisions are kept in a ring, a <i>traceback window</i> long.  Whenever
+ * the window fills, the decoder traces back from the best state of the newest
+ * step, and releases the oldest few bits along that path as decoded: paths
+ * that far back have almost always merged, so those bits are settled.  Thus
+ * decoding keeps pace with reception, and needs memory only for the window.
+ * At the end of a frame, {@link #finish} traces back from the zero state (to
+ * which the code's terminating byte returns the encoder) and releases the
+ * rest.
+ *
+ * A decoder holds the state of one decoding, and so belongs to a single layer.
+ **/
+public class ViterbiDecoder {
+// =============================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Construct a decoder.
+     *
+     * @param code The code to decode.
+     * @param tracebackDepth How many steps back the decoder traces before it
+     *                       settles a bit: five or six times the constraint
+     *                       length is usual.
+     * @param maxLength The most bytes a single decoding may produce.
+     **/
+    public ViterbiDecoder (ConvolutionalCode code,
+			   int tracebackDepth,
+			   int maxLength) {
+
+	_code = code;
+	_states = code.states();
+	_window = tracebackDepth + _release;
+	_decisions = new long[_window];
+	_path = new int[_window];
+	_metrics = new int[_states];
+	_nextMetrics = new int[_states];
+	_output = new byte[maxLength];
+
+	// A step has only four branch metrics, one for each pair of code bits
+	// that a branch may carry, and which pair each branch carries never
+	// changes.  So work out, once and for each pair that may be received,
+	// the metric of each of the four branches of every butterfly: from its
+	// lower and its upper previous state, on a 0 input and on a 1.
+	int half = _states >>> 1;
+	_lowerZero = new int[4][half];
+	_upperZero = new int[4][half];
+	_lowerOne = new int[4][half];
+	_upperOne = new int[4][half];
+	for (int received = 0; received < 4; received++) {
+	    for (int j = 0; j < half; j++) {
+		_lowerZero[received][j] = branchMetric(j << 1, received);
+		_upperZero[received][j] =
+		    branchMetric((j | half) << 1, received);
+		_lowerOne[received][j] = branchMetric((j << 1) | 1, received);
+		_upperOne[received][j] =
+		    branchMetric(((j | half) << 1) | 1, received);
+	    }
+	}
+
+	reset();
+
+    } // ViterbiDecoder (ConvolutionalCode code, ...)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Begin a new decoding, with the encoder known to start in the zero
+     * state.
+     **/
+    public void reset () {
+
+	java.util.Arrays.fill(_metrics, _unreachable);
+	_metrics[0] = 0;
+	_newest = _window - 1;
+	_pending = 0;
+	_decodedBits = 0;
+	java.util.Arrays.fill(_output, (byte)0);
+
+    } // reset ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Take in the next code byte: four steps of the trellis.
+     *
+     * @param codeByte The code byte, as received.
+     **/
+    public void push (byte codeByte) {
+
+	for (int shift = 0; shift < 8; shift += 2) {
+	    step((codeByte >>> shift) & 3);
+	}
+
+    } // push (byte codeByte)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * End the decoding: trace back from the zero state, and release every bit
+     * still pending.
+     **/
+    public void finish () {
+
+	traceback(0, _pending, _pending);
+	_pending = 0;
+
+    } // finish ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The number of bits decoded so far.
+     **/
+    public int decodedBits () {
+
+	return _decodedBits;
+
+    } // decodedBits ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy out the bytes decoded so far.
+     *
+     * @param length The number of bytes to copy.
+     * @return A new array holding them.
+     **/
+    public byte[] copyOutput (int length) {
+
+	byte[] copy = new byte[length];
+	System.arraycopy(_output, 0, copy, 0, length);
+	return copy;
+
+    } // copyOutput (int length)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Copy out the bytes decoded so far into the given buffer.
+     *
+     * @param buffer The buffer into whose start to copy them.
+     * @param length The number of bytes to copy.
+     **/
+    public void copyOutput (byte[] buffer, int length) {
+
+	System.arraycopy(_output, 0, buffer, 0, length);
+
+    } // copyOutput (byte[] buffer, int length)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param index The index of a byte decoded so far.
+     * @return That byte.
+     **/
+    public byte outputByte (int index) {
+
+	return _output[index];
+
+    } // outputByte (int index)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @return The path metric of the zero state: after {@link #finish}, the
+     *         number of code bits the decoder believes were flipped.
+     **/
+    public int errorEstimate () {
+
+	return _metrics[0];
+
+    } // errorEstimate ()
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * One add-compare-select step over every state.
+     *
+     * @param received The pair of code bits received, the first in the low
+     *                 bit.
+     **/
+    private void step (int received) {
+
+	// Each butterfly j joins the two previous states j and j + half,
+	// which differ only in their oldest bit, to the two new states 2j and
+	// 2j + 1, which shift in a 0 and a 1.  Each previous metric is thus
+	// read once, and serves both new states.
+	int half = _states >>> 1;
+	int[] metrics = _metrics;
+	int[] nextMetrics = _nextMetrics;
+	int[] lowerZero = _lowerZero[received];
+	int[] upperZero = _upperZero[received];
+	int[] lowerOne = _lowerOne[received];
+	int[] upperOne = _upperOne[received];
+	long decisions = 0;
+	for (int j = 0; j < half; j++) {
+
+	    int metric0 = metrics[j];
+	    int metric1 = metrics[j + half];
+	    int zero0 = metric0 + lowerZero[j];
+	    int zero1 = metric1 + upperZero[j];
+	    int one0 = metric0 + lowerOne[j];
+	    int one1 = metric1 + upperOne[j];
+
+	    // Which path survives depends on the noise, so no branch would be
+	    // predicted well: select without one.  The upper path survives
+	    // only if it is strictly better, which the sign of the difference
+	    // tells (metrics stay far too small to overflow).
+	    int state = j << 1;
+	    nextMetrics[state] = Math.min(zero0, zero1);
+	    nextMetrics[state + 1] = Math.min(one0, one1);
+	    decisions |= (long)(((zero1 - zero0) >>> 31) |
+				(((one1 - one0) >>> 31) << 1)) << state;
+
+	}
+
+	int[] swap = _metrics;
+	_metrics = _nextMetrics;
+	_nextMetrics = swap;
+
+	_newest = (_newest + 1) % _window;
+	_decisions[_newest] = decisions;
+	_pending++;
+
+	// Once the window is full, settle its oldest bits along the best path,
+	// and keep the metrics small.
+	if (_pending == _window) {
+
+	    int best = 0;
+	    for (int state = 1; state < _states; state++) {
+		if (_metrics[state] < _metrics[best]) {
+		    best = state;
+		}
+	    }
+	    traceback(best, _window, _release);
+	    _pending -= _release;
+
+	    int floor = _metrics[best];
+	    for (int state = 0; state < _states; state++) {
+		_metrics[state] = Math.min(_metrics[state] - floor,
+					   _unreachable);
+	    }
+
+	}
+
+    } // step (int received)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * @param register The encoder's register on a branch: its previous state,
+     *                 with the input bit shifted in.
+     * @param received The pair of code bits received.
+     * @return The number of bits in which the branch's code bits differ from
+     *         those received.
+     **/
+    private int branchMetric (int register, int received) {
+
+	return _distance[_code.output(register) ^ received];
+
+    } // branchMetric (int register, int received)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    /**
+     * Follow the surviving path back from a state, and release the oldest of
+     * the bits along it.
+     *
+     * @param state The state at the newest step.
+     * @param steps How many steps back to follow the path.
+     * @param release How many of the oldest of those steps to release.
+     **/
+    private void traceback (int state, int steps, int release) {
+
+	int half = _states >>> 1;
+	int slot = _newest;
+	for (int i = steps - 1; i >= 0; i--) {
+
+	    _path[i] = state & 1;
+	    int oldest = (int)(_decisions[slot] >>> state) & 1;
+	    state = (state >>> 1) | (oldest * half);
+	    slot = (slot == 0) ? _window - 1 : slot - 1;
+
+	}
+
+	for (int i = 0; i < release; i++) {
+
+	    if ((_decodedBits >>> 3) < _output.length) {
+		_output[_decodedBits >>> 3] |=
+		    (byte)(_path[i] << (7 - (_decodedBits & 7)));
+	    }
+	    _decodedBits++;
+
+	}
+
+    } // traceback (int state, int steps, int release)
+    // =========================================================================
+
+
+
+    // =========================================================================
+    // DATA MEMBERS
+
+    /**
+     * The code, and its number of states.
+     **/
+    private final ConvolutionalCode _code;
+    private final int _states;
+
+    /**
+     * For each pair of code bits that may be received, the metric of each
+     * butterfly's branch from its lower and from its upper previous state, on
+     * a 0 input and on a 1.
+     **/
+    private final int[][] _lowerZero;
+    private final int[][] _upperZero;
+    private final int[][] _lowerOne;
+    private final int[][] _upperOne;
+
+    /**
+     * The length of the window of decisions kept: the traceback depth plus
+     * the number of bits released each time it fills.
+     **/
+    private final int _window;
+
+    /**
+     * The ring of decisions (one bit per state per step), the slot of the
+     * newest, and the number of steps whose bits are not yet released.
+     **/
+    private final long[] _decisions;
+    private int _newest;
+    private int _pending;
+
+    /**
+     * The path metrics of the current and the next step.
+     **/
+    private int[] _metrics;
+    private int[] _nextMetrics;
+
+    /**
+     * The bits traced back along a path, oldest first.
+     **/
+    private final int[] _path;
+
+    /**
+     * The decoded bytes, and the number of bits in them so far.
+     **/
+    private final byte[] _output;
+    private int _decodedBits;
+
+    /**
+     * The number of bits released each time the window fills.
+     **/
+    private static final int _release = 8;
+
+    /**
+     * A metric larger than any real path's, for states not yet reachable.
+     **/
+    private static final int _unreachable = 1 << 20;
+
+    /**
+     * The number of bits in which two pairs of code bits differ.
+     **/
+    private static final int[] _distance = { 0, 1, 1, 2 };
+    // =========================================================================
+
+
+
+// =============================================================================
+} // class ViterbiDecoder
+// =============================================================================
@@ -0,0 +1,338 @@
+// ===================================================================
+// BenchmarkSupport
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+// ===================================================================
+
+
+
+// ===================================================================
+// The pieces that the benchmarks build their links from: media of
+// each type made by name, and layers that only count what reaches
+// them, so that a benchmark measures the layer beneath and nothing
+// above it.
+//
+// The simulator's classes are copied into this package when the
+// benchmarks are built (see pom.xml), so they are used here just as
+// they are used by one another.  Simulator.createMedium() finds its
+// classes by their unqualified names, which do not exist here, so
+// the media are made directly instead.
+class BenchmarkSupport {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // PUBLIC METHODS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create the medium of the given type, with the given error rate
+    // where the medium has one, and the given seed for its noise.
+    static Medium createMedium (String mediumType, double rate, long seed) {
+
+	if (mediumType.equals("Perfect")) {
+
+	    return new PerfectMedium();
+
+	}
+	return Sweep.createMedium(mediumType, rate, seed);
+
+    } // createMedium
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Create the data link layer of the given type on the given
+    // physical layer, with its default framing and frame size.
+    static DataLinkLayer createDataLinkLayer (String dataLinkType,
+					      PhysicalLayer physicalLayer) {
+
+	switch (dataLinkType) {
+
+	case "Dumb":
+	    return new DumbDataLinkLayer(physicalLayer);
+	case "Parity":
+	    return new ParityDataLinkLayer(physicalLayer);
+	case "CRC":
+	    return new CRCDataLinkLayer(physicalLayer);
+	case "Hamming":
+	    return new HammingDataLinkLayer(physicalLayer);
+	case "ReedSolomon":
+	    return new ReedSolomonDataLinkLayer(physicalLayer);
+	case "Convolutional":
+	    return new ConvolutionalDataLinkLayer(physicalLayer);
+	case "Arq":
+	    return new ArqDataLinkLayer(physicalLayer);
+	default:
+	    throw new RuntimeException("Unknown data link layer " +
+				       dataLinkType);
+
+	}
+
+    } // createDataLinkLayer
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Return a payload of the given size, of random bytes drawn from
+    // the given seed.
+    static byte[] payload (int size, long seed) {
+
+	byte[] payload = new byte[size];
+	new SplittableRandom(seed).nextBytes(payload);
+	return payload;
+
+    } // payload
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Silence the layers' reports of damaged frames, which would
+    // otherwise swamp the benchmarks' output and time, and return
+    // the stream that was silenced so that it can be restored.
+    static PrintStream silence () {
+
+	PrintStream err = System.err;
+	System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+	return err;
+
+    } // silence
+    // ===============================================================
+
+
+
+    // ===================================================================
+    // A medium that carries nothing: whatever is sent on it is simply
+    // dropped.  Sending on it costs only what the layers above do.
+    static class SinkMedium extends Medium {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// Accept any number of clients.
+	public void register (PhysicalLayer client) {
+
+	} // register
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Drop a bit, or a block of them.
+	public void send (PhysicalLayer sender, boolean bit) {
+
+	} // send
+
+	public void send (PhysicalLayer sender,
+			  byte[] block,
+			  int offset,
+			  int length) {
+
+	} // send
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class SinkMedium
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A medium that carries nothing, but keeps a copy of every block
+    // sent on it, so that a layer's frames can be replayed later.
+    static class RecordingMedium extends SinkMedium {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// Keep a block.  Physical layers send only blocks, so a single
+	// bit is not expected.
+	public void send (PhysicalLayer sender, boolean bit) {
+
+	    throw new RuntimeException("Only blocks are recorded");
+
+	} // send
+
+	public void send (PhysicalLayer sender,
+			  byte[] block,
+			  int offset,
+			  int length) {
+
+	    recorded.write(block, offset, length);
+
+	} // send
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Return the bytes recorded so far, each bit flipped with the
+	// given probability, drawn from the given seed.
+	byte[] recorded (double rate, long seed) {
+
+	    byte[] bytes = recorded.toByteArray();
+	    SplittableRandom random = new SplittableRandom(seed);
+	    for (int i = 0; i < 8 * bytes.length; i++) {
+
+		if (random.nextDouble() < rate) {
+
+		    bytes[i / 8] ^= (byte)(1 << (i % 8));
+
+		}
+
+	    }
+	    return bytes;
+
+	} // recorded
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The bytes sent so far.
+	ByteArrayOutputStream recorded = new ByteArrayOutputStream();
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class RecordingMedium
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A data link layer that counts the bytes its physical layer
+    // delivers, and does nothing else with them.
+    static class SinkDataLinkLayer extends DataLinkLayer {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// The constructor.
+	SinkDataLinkLayer (PhysicalLayer physicalLayer) {
+
+	    initialize(physicalLayer);
+
+	} // SinkDataLinkLayer
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Nothing is sent through this layer.
+	public void send (byte[] data) {
+
+	    throw new RuntimeException("A sink does not send");
+
+	} // send
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Count a byte delivered.
+	void receive (byte data) {
+
+	    received++;
+
+	} // receive
+
+	void receivedBlock () {
+
+	} // receivedBlock
+
+	protected byte[] processFrame () {
+
+	    return null;
+
+	} // processFrame
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The number of bytes delivered so far.
+	long received;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class SinkDataLinkLayer
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A network layer that counts the messages, and the bytes in them,
+    // that its data link layer delivers.
+    static class SinkNetworkLayer extends NetworkLayer {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// The constructor.
+	SinkNetworkLayer (DataLinkLayer dataLinkLayer) {
+
+	    super(dataLinkLayer);
+
+	} // SinkNetworkLayer
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// Count a message delivered.
+	void receive (byte[] data) {
+
+	    messages++;
+	    bytes += data.length;
+
+	} // receive
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The number of messages, and of bytes, delivered so far.
+	long messages;
+	long bytes;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class SinkNetworkLayer
+    // ===================================================================
+
+
+
+// ===================================================================
+} // class BenchmarkSupport
+// ===================================================================
@@ -0,0 +1,120 @@
+// ===================================================================
+// BitVectorBenchmark
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+// ===================================================================
+
+
+
+// ===================================================================
+// The cost of making a BitVector from bytes, of refilling one, and
+// of turning one back into bytes.  A bit vector holds no noise, so
+// only the payload size varies.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorBenchmark {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // Make the payload, and a vector that already holds it.
+    @Setup
+    public void setup () {
+
+	payload = BenchmarkSupport.payload(payloadSize, seed);
+	vector = new BitVector(payload, 0, payload.length);
+
+    } // setup
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Make a new vector from the payload.
+    @Benchmark
+    public BitVector construct () {
+
+	return new BitVector(payload, 0, payload.length);
+
+    } // construct
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Refill an existing vector from the payload.
+    @Benchmark
+    public BitVector copyFrom () {
+
+	vector.copyFrom(payload, 0, payload.length);
+	return vector;
+
+    } // copyFrom
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Turn the vector back into bytes.
+    @Benchmark
+    public byte[] toByteArray () {
+
+	return vector.toByteArray();
+
+    } // toByteArray
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of bytes in the payload, and the seed from which
+    // they are drawn.
+    @Param({ "64", "1500", "65536" })
+    public int payloadSize;
+
+    @Param({ "1" })
+    public long seed;
+
+    // The payload, and a vector holding it.
+    byte[] payload;
+    BitVector vector;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class BitVectorBenchmark
+// ===================================================================
@@ -0,0 +1,56 @@
+// ===================================================================
+// BitsCarried
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+// ===================================================================
+
+
+
+// ===================================================================
+// A count of the bits that a benchmark carried, which JMH reports
+// beside the benchmark's own score as a cost per bit.  A benchmark
+// that moves a whole payload in each call thus also shows what each
+// of its bits cost, whatever the payload's size.
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class BitsCarried {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // Start each iteration's count afresh.
+    @Setup(Level.Iteration)
+    public void clear () {
+
+	bits = 0;
+
+    } // clear
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The bits carried so far in this iteration.
+    public long bits;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class BitsCarried
+// ===================================================================
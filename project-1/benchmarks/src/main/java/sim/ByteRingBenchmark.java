@@ -0,0 +1,143 @@
+// ===================================================================
+// ByteRingBenchmark
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+// ===================================================================
+
+
+
+// ===================================================================
+// The throughput of a ByteRing, with one thread writing chunks of
+// bytes into it and another reading them out, as a pipelined
+// simulation does.  The two run at once only on a machine with two
+// or more cores; on one, the result is mostly the cost of switching
+// between them.
+//
+// Each side closes the ring once the measurement stops, so that the
+// other is not left waiting for it.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteRingBenchmark {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // Make a fresh ring for each iteration, since the last one was
+    // closed.
+    @Setup(Level.Iteration)
+    public void setup () {
+
+	ring = new ByteRing(ringSize);
+	written = new byte[chunkSize];
+	read = new byte[chunkSize];
+
+    } // setup
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Write one chunk, waiting for room.
+    @Benchmark
+    @Group("transfer")
+    @GroupThreads(1)
+    public void write (Control control) {
+
+	if (control.stopMeasurement) {
+
+	    ring.close();
+	    return;
+
+	}
+	try {
+
+	    ring.write(written, 0, written.length);
+
+	} catch (RuntimeException e) {
+
+	    // The reader has stopped.
+
+	}
+
+    } // write
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Read up to one chunk, waiting for at least a byte.
+    @Benchmark
+    @Group("transfer")
+    @GroupThreads(1)
+    public int read (Control control) {
+
+	if (control.stopMeasurement) {
+
+	    ring.close();
+	    return 0;
+
+	}
+	return ring.read(read, 0, read.length);
+
+    } // read
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of bytes in the ring, and in each chunk written and
+    // read.
+    @Param({ "4096", "65536" })
+    public int ringSize;
+
+    @Param({ "64", "1024" })
+    public int chunkSize;
+
+    // The ring, and the chunks written into it and read out of it.
+    ByteRing ring;
+    byte[] written;
+    byte[] read;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class ByteRingBenchmark
+// ===================================================================
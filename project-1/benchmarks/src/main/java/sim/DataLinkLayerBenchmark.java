@@ -0,0 +1,312 @@
+// ===================================================================
+// DataLinkLayerBenchmark
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+// ===================================================================
+
+
+
+// ===================================================================
+// The throughput of each data link layer, for payloads of each size
+// and media of each error rate:
+//
+//   constructFrame: the payload is sent, and framed, over a medium
+//   that drops it, so that only the building of the frames is
+//   measured.
+//
+//   processFrame: the frames that carry the payload, with bits
+//   flipped at the error rate, are handed to the receiving layer a
+//   byte at a time, as its physical layer would, so that only the
+//   deframing, checking and decoding is measured.
+//
+//   roundTrip: the payload is sent over a noisy medium (a perfect
+//   one when the rate is 0) to the other end, with everything that
+//   happens on the way.
+//
+// An ARQ layer sends nothing more until its frames are acknowledged,
+// and drops frames it has already received, so it can neither send
+// into nothing nor be handed the same frames again; it is measured
+// only by roundTrip.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataLinkLayerBenchmark {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // Build the payload's frames.
+    @Benchmark
+    public DataLinkLayer constructFrame (Encoding link) {
+
+	link.sender.send(link.payload);
+	return link.sender;
+
+    } // constructFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Take in the payload's frames, and deliver what they carry.
+    @Benchmark
+    public long processFrame (Decoding link) {
+
+	byte[] frames = link.frames;
+	for (int i = 0; i < frames.length; i++) {
+
+	    link.receiver.receive(frames[i]);
+
+	}
+	link.receiver.receivedBlock();
+	return link.sink.bytes;
+
+    } // processFrame
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Send the payload to the other end.
+    @Benchmark
+    public long roundTrip (Link link) {
+
+	link.sender.send(link.payload);
+	return link.sink.bytes;
+
+    } // roundTrip
+    // ===============================================================
+
+
+
+    // ===================================================================
+    // A layer that sends into nothing.
+    @State(Scope.Thread)
+    public static class Encoding {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	@Setup
+	public void setup () {
+
+	    err = BenchmarkSupport.silence();
+	    PhysicalLayer physicalLayer =
+		new PhysicalLayer(new BenchmarkSupport.SinkMedium());
+	    sender = BenchmarkSupport.createDataLinkLayer(layer,
+							  physicalLayer);
+	    new BenchmarkSupport.SinkNetworkLayer(sender);
+	    payload = BenchmarkSupport.payload(payloadSize, seed);
+
+	} // setup
+
+	@TearDown
+	public void tearDown () {
+
+	    System.setErr(err);
+
+	} // tearDown
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The layer, the number of bytes in the payload, and the seed
+	// from which they are drawn.
+	@Param({ "Dumb", "Parity", "CRC", "Hamming", "ReedSolomon",
+		 "Convolutional" })
+	public String layer;
+
+	@Param({ "64", "1500", "16384" })
+	public int payloadSize;
+
+	@Param({ "1" })
+	public long seed;
+
+	DataLinkLayer sender;
+	byte[] payload;
+	PrintStream err;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Encoding
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A layer, and the frames of a payload to hand it, damaged at the
+    // error rate.
+    @State(Scope.Thread)
+    public static class Decoding {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	// Record the frames that a layer of the same type sends for
+	// the payload, and damage them.
+	@Setup
+	public void setup () {
+
+	    err = BenchmarkSupport.silence();
+	    BenchmarkSupport.RecordingMedium recorder =
+		new BenchmarkSupport.RecordingMedium();
+	    PhysicalLayer recording = new PhysicalLayer(recorder);
+	    DataLinkLayer sender =
+		BenchmarkSupport.createDataLinkLayer(layer, recording);
+	    sender.send(BenchmarkSupport.payload(payloadSize, seed));
+	    frames = recorder.recorded(rate, seed);
+
+	    PhysicalLayer physicalLayer =
+		new PhysicalLayer(new BenchmarkSupport.SinkMedium());
+	    receiver = BenchmarkSupport.createDataLinkLayer(layer,
+							    physicalLayer);
+	    sink = new BenchmarkSupport.SinkNetworkLayer(receiver);
+
+	} // setup
+
+	@TearDown
+	public void tearDown () {
+
+	    System.setErr(err);
+
+	} // tearDown
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The layer, the error rate, the number of bytes in the
+	// payload, and the seed for the payload and its errors.
+	@Param({ "Dumb", "Parity", "CRC", "Hamming", "ReedSolomon",
+		 "Convolutional" })
+	public String layer;
+
+	@Param({ "0", "0.001", "0.01" })
+	public double rate;
+
+	@Param({ "64", "1500", "16384" })
+	public int payloadSize;
+
+	@Param({ "1" })
+	public long seed;
+
+	DataLinkLayer receiver;
+	BenchmarkSupport.SinkNetworkLayer sink;
+	byte[] frames;
+	PrintStream err;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Decoding
+    // ===================================================================
+
+
+
+    // ===================================================================
+    // A pair of layers at the two ends of a medium.
+    @State(Scope.Thread)
+    public static class Link {
+    // ===================================================================
+
+
+
+	// ===============================================================
+	@Setup
+	public void setup () {
+
+	    err = BenchmarkSupport.silence();
+	    Medium medium =
+		BenchmarkSupport.createMedium((rate == 0.0) ?
+					      "Perfect" :
+					      "LowNoise",
+					      rate,
+					      seed);
+	    sender =
+		BenchmarkSupport.createDataLinkLayer(layer,
+						     new PhysicalLayer(medium));
+	    DataLinkLayer receiver =
+		BenchmarkSupport.createDataLinkLayer(layer,
+						     new PhysicalLayer(medium));
+	    new BenchmarkSupport.SinkNetworkLayer(sender);
+	    sink = new BenchmarkSupport.SinkNetworkLayer(receiver);
+	    payload = BenchmarkSupport.payload(payloadSize, seed);
+
+	} // setup
+
+	@TearDown
+	public void tearDown () {
+
+	    System.setErr(err);
+
+	} // tearDown
+	// ===============================================================
+
+
+
+	// ===============================================================
+	// The layer, the error rate, the number of bytes in the
+	// payload, and the seed for the payload and the noise.
+	@Param({ "Dumb", "Parity", "CRC", "Hamming", "ReedSolomon",
+		 "Convolutional", "Arq" })
+	public String layer;
+
+	@Param({ "0", "0.001", "0.01" })
+	public double rate;
+
+	@Param({ "64", "1500", "16384" })
+	public int payloadSize;
+
+	@Param({ "1" })
+	public long seed;
+
+	DataLinkLayer sender;
+	BenchmarkSupport.SinkNetworkLayer sink;
+	byte[] payload;
+	PrintStream err;
+	// ===============================================================
+
+
+
+    // ===================================================================
+    } // class Link
+    // ===================================================================
+
+
+
+// ===================================================================
+} // class DataLinkLayerBenchmark
+// ===================================================================
@@ -0,0 +1,136 @@
+// ===================================================================
+// MediumBenchmark
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+// ===================================================================
+
+
+
+// ===================================================================
+// The cost of carrying bits over each medium, at each error rate, to
+// a physical layer whose client only counts the bytes that arrive.
+// The payload is sent both one bit at a time, as the original
+// physical layer did, and as one block.  The "bits" counter gives
+// the cost of each bit carried.  A perfect medium has no error rate,
+// so its results are the same at every rate.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MediumBenchmark {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // Attach both ends to the medium, and make the payload.
+    @Setup
+    public void setup () {
+
+	medium = BenchmarkSupport.createMedium(mediumType, rate, seed);
+	sender = new PhysicalLayer(medium);
+	PhysicalLayer receiver = new PhysicalLayer(medium);
+	sink = new BenchmarkSupport.SinkDataLinkLayer(receiver);
+	payload = BenchmarkSupport.payload(payloadSize, seed);
+
+    } // setup
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Send the payload one bit at a time.
+    @Benchmark
+    public long bits (BitsCarried carried) {
+
+	for (int i = 0; i < payload.length; i++) {
+
+	    int currentByte = payload[i];
+	    for (int j = 0; j < 8; j++) {
+
+		medium.send(sender, ((currentByte >>> j) & 0x1) == 0x1);
+
+	    }
+
+	}
+	carried.bits += 8L * payload.length;
+	return sink.received;
+
+    } // bits
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Send the payload as one block.
+    @Benchmark
+    public long block (BitsCarried carried) {
+
+	medium.send(sender, payload, 0, payload.length);
+	carried.bits += 8L * payload.length;
+	return sink.received;
+
+    } // block
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The medium, its error rate (the in-burst rate, for a bursty
+    // one), the number of bytes in the payload, and the seed for the
+    // noise and the payload.
+    @Param({ "Perfect", "LowNoise", "BurstyNoise" })
+    public String mediumType;
+
+    @Param({ "0.001", "0.01" })
+    public double rate;
+
+    @Param({ "64", "1500", "65536" })
+    public int payloadSize;
+
+    @Param({ "1" })
+    public long seed;
+
+    // The medium, the end that sends, the client that counts what
+    // arrives at the other end, and the payload.
+    Medium medium;
+    PhysicalLayer sender;
+    BenchmarkSupport.SinkDataLinkLayer sink;
+    byte[] payload;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class MediumBenchmark
+// ===================================================================
@@ -0,0 +1,145 @@
+// ===================================================================
+// PhysicalLayerBenchmark
+// ===================================================================
+
+
+
+package sim;
+
+
+
+// ===================================================================
+// IMPORTS
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+// ===================================================================
+
+
+
+// ===================================================================
+// The cost of a physical layer turning bytes into bits and bits back
+// into bytes.  Bytes are sent over a perfect medium to a physical
+// layer whose client only counts them, so that the cost is that of
+// the two physical layers and of the medium's plainest path; and
+// they are also received directly, one bit at a time and a block at
+// a time, with no medium at all.  Noise is the media's business, and
+// is measured by MediumBenchmark.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhysicalLayerBenchmark {
+// ===================================================================
+
+
+
+    // ===============================================================
+    // Connect the two physical layers, and make the payload.
+    @Setup
+    public void setup () {
+
+	Medium medium = new PerfectMedium();
+	sender = new PhysicalLayer(medium);
+	receiver = new PhysicalLayer(medium);
+	sink = new BenchmarkSupport.SinkDataLinkLayer(receiver);
+	payload = BenchmarkSupport.payload(payloadSize, seed);
+
+    } // setup
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Send the payload from one physical layer to the other.
+    @Benchmark
+    public long send (BitsCarried carried) {
+
+	sender.send(payload);
+	carried.bits += 8L * payload.length;
+	return sink.received;
+
+    } // send
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Receive the payload one bit at a time, least significant bit of
+    // each byte first, as a medium delivers it.
+    @Benchmark
+    public long receiveBits (BitsCarried carried) {
+
+	for (int i = 0; i < payload.length; i++) {
+
+	    int currentByte = payload[i];
+	    for (int j = 0; j < 8; j++) {
+
+		receiver.receive(((currentByte >>> j) & 0x1) == 0x1);
+
+	    }
+
+	}
+	carried.bits += 8L * payload.length;
+	return sink.received;
+
+    } // receiveBits
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // Receive the payload as one block.
+    @Benchmark
+    public long receiveBlock (BitsCarried carried) {
+
+	receiver.receive(payload, 0, payload.length);
+	carried.bits += 8L * payload.length;
+	return sink.received;
+
+    } // receiveBlock
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // DATA MEMBERS
+    // ===============================================================
+
+
+
+    // ===============================================================
+    // The number of bytes in the payload, and the seed from which
+    // they are drawn.
+    @Param({ "64", "1500", "65536" })
+    public int payloadSize;
+
+    @Param({ "1" })
+    public long seed;
+
+    // The two ends of the link, the client that counts what arrives,
+    // and the payload.
+    PhysicalLayer sender;
+    PhysicalLayer receiver;
+    BenchmarkSupport.SinkDataLinkLayer sink;
+    byte[] payload;
+    // ===============================================================
+
+
+
+// ===================================================================
+} // class PhysicalLayerBenchmark
+// ===================================================================